@@ -1,63 +1,243 @@
 package stratx;
 
-import com.sun.istack.internal.NotNull;
+import com.binance.api.client.domain.market.CandlestickInterval;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import stratx.utils.CandleSeries;
+import stratx.utils.CandleSource;
 import stratx.utils.Candlestick;
+import stratx.utils.DataCatalog;
+import stratx.utils.Resampler;
+import stratx.utils.StrxBlockFile;
+import stratx.utils.StrxFormat;
+import stratx.utils.StrxMappedFile;
+import stratx.utils.StrxWriter;
 import stratx.utils.Utils;
 
+import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 
 public class Loader {
     private static Loader INSTANCE;
     private File dataFile;
     private static final Logger LOGGER = LogManager.getLogger("Loader");
+    /** Files at least this big are memory mapped instead of streamed */
+    private static final long MAPPED_LOAD_THRESHOLD = 8L * 1024 * 1024;
+    /** Bumped when resampling changes, so older cached candles aren't reused */
+    private static final int RESAMPLE_CACHE_VERSION = 2;
     public static String lastDataRange = "";
 
 
-    public static List<Candlestick> loadData(@NotNull String file) {
+    public static List<Candlestick> loadData(String file) {
         return loadData(new File(file));
     }
 
-    public static List<Candlestick> loadData(@NotNull File file) {
+    /** Load every candle as a Candlestick object. Prefer {@link #loadSeries(File)}
+     * for big files, it is several times smaller on the heap. */
+    public static List<Candlestick> loadData(File file) {
+        return loadSeries(file).toCandlesticks();
+    }
+
+    public static CandleSeries loadSeries(String file) {
+        return loadSeries(new File(file));
+    }
+
+    public static CandleSeries loadSeries(File file) {
         try {
             return doLoad(file);
         } catch (Exception e) {
             LOGGER.error("Error while loading data: ", e);
         }
 
-        return new ArrayList<>();
+        return new CandleSeries(0);
+    }
+
+    /** Load only the candles closing within [fromTime, toTime] (Epoch ms).
+     * Seeks straight to the range using the fixed record size (v1) or the
+     * block index (v2), so the rest of the file is never read. */
+    public static CandleSeries loadRange(File file, long fromTime, long toTime) {
+        try {
+            validate(file);
+            if (fromTime > toTime) throw new ParseException("Range start is after range end");
+
+            CandleSeries data = new CandleSeries();
+            readRange(file, fromTime, toTime, data);
+
+            if (data.size() == 0)
+                throw new ParseException("No price data in the requested range");
+
+            logDataRange(data.getCloseTime(0), data.getCloseTime(data.size() - 1));
+            return data;
+        } catch (Exception e) {
+            LOGGER.error("Error while loading data: ", e);
+        }
+
+        return new CandleSeries(0);
+    }
+
+    /** Load the candles of a symbol & interval closing within [fromTime, toTime],
+     * stitched together from every catalog file the range spans */
+    public static CandleSeries loadRange(DataCatalog catalog, String symbol, String interval, long fromTime, long toTime) {
+        try {
+            if (fromTime > toTime) throw new ParseException("Range start is after range end");
+
+            CandleSeries data = new CandleSeries();
+            for (DataCatalog.Entry entry : catalog.find(symbol, interval, fromTime, toTime)) {
+                // Files can overlap, only read on from where the previous one ended
+                long from = data.isEmpty() ? fromTime : Math.max(fromTime, data.getCloseTime(data.size() - 1) + 1);
+                validate(entry.getFile());
+                readRange(entry.getFile(), from, toTime, data);
+            }
+
+            if (data.size() == 0)
+                throw new ParseException(String.format("No %s %s price data in the requested range", symbol, interval));
+
+            logDataRange(data.getCloseTime(0), data.getCloseTime(data.size() - 1));
+            return data;
+        } catch (Exception e) {
+            LOGGER.error("Error while loading data: ", e);
+        }
+
+        return new CandleSeries(0);
+    }
+
+    private static void readRange(File file, long fromTime, long toTime, CandleSeries into) throws Exception {
+        if (StrxFormat.readVersion(file) == StrxFormat.VERSION_2) loadBlocksRange(file, fromTime, toTime, into);
+        else loadMappedRange(file, fromTime, toTime, into);
+    }
+
+    private static void loadMappedRange(File dataFile, long fromTime, long toTime, CandleSeries data) throws Exception {
+        try (StrxMappedFile file = new StrxMappedFile(dataFile)) {
+            int from = file.indexOf(fromTime);
+            int to = file.indexOf(toTime == Long.MAX_VALUE ? toTime : toTime + 1);
+            data.ensureCapacity(data.size() + Math.max(to - from, 0));
+
+            for (int i = from; i < to; i++) {
+                data.add(
+                        file.getCloseTime(i),
+                        file.getOpen(i),
+                        file.getHigh(i),
+                        file.getLow(i),
+                        file.getClose(i),
+                        file.getVolume(i)
+                );
+            }
+        }
+    }
+
+    private static void loadBlocksRange(File dataFile, long fromTime, long toTime, CandleSeries data) throws Exception {
+        try (StrxBlockFile file = new StrxBlockFile(dataFile)) {
+            for (int i = file.findBlock(fromTime); i < file.getBlockCount() && file.getBlockFirstCloseTime(i) <= toTime; i++)
+                file.readBlock(i, data, fromTime, toTime);
+        }
+    }
+
+    /** Load the file resampled to a higher interval (See {@link Resampler}).
+     * When cached, the resampled candles are kept in a cache folder next to the
+     * file and reused until the file changes (e.g. it is updated by the downloader) */
+    public static CandleSeries loadResampled(File file, CandlestickInterval interval, boolean cache) {
+        try {
+            validate(file);
+            File cached = new File(new File(file.getParentFile(), "cache"), file.getName().replace(".strx", "") + "-" + interval.getIntervalId() + "-v" + RESAMPLE_CACHE_VERSION + ".strx");
+
+            if (cache && cached.exists() && cached.lastModified() >= file.lastModified()) {
+                CandleSeries data = doLoad(cached);
+                LOGGER.info("Loaded {} candles from the resample cache", interval.getIntervalId());
+                return data;
+            }
+
+            CandleSeries data;
+            try (CandleSource source = new Resampler(stream(file), interval)) {
+                data = source.toSeries();
+            }
+
+            if (data.size() == 0)
+                throw new ParseException("No price data to resample");
+
+            if (cache) writeCache(cached, data);
+            return data;
+        } catch (Exception e) {
+            LOGGER.error("Error while loading data: ", e);
+        }
+
+        return new CandleSeries(0);
+    }
+
+    private static void writeCache(File cached, CandleSeries data) {
+        File folder = cached.getParentFile();
+        File temp = new File(folder, cached.getName() + ".tmp");
+
+        try {
+            if (!folder.exists() && !folder.mkdirs()) throw new IOException("Failed to create " + folder.getAbsolutePath());
+
+            try (StrxWriter output = StrxWriter.create(temp, StrxFormat.VERSION_2, data.getCloseTime(0), data.getCloseTime(data.size() - 1))) {
+                for (int i = 0; i < data.size(); i++)
+                    output.write(data.getCloseTime(i), data.getOpen(i), data.getHigh(i), data.getLow(i), data.getClose(i), data.getVolume(i));
+            }
+
+            Files.move(temp.toPath(), cached.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write the resample cache: {}", e.getMessage());
+            temp.delete();
+        }
+    }
+
+    /** Open the file as a stream of candles which are read as they are
+     * iterated, instead of loading everything up front. The caller must close it. */
+    public static CandleSource stream(File file) {
+        try {
+            validate(file);
+            if (StrxFormat.readVersion(file) == StrxFormat.VERSION_2) return new BlockSource(file);
+            return new RecordSource(file);
+        } catch (Exception e) {
+            LOGGER.error("Error while loading data: ", e);
+        }
+
+        return CandleSource.of(new CandleSeries(0));
     }
 
-    private static List<Candlestick> doLoad(File file) throws ParseException {
+    private static void validate(File file) throws ParseException {
         if (file == null || !file.exists())
             throw new ParseException("File does not exist");
 
         if (!file.getName().endsWith(".strx"))
             throw new ParseException("File is not a strx file");
+    }
 
+    private static CandleSeries doLoad(File file) throws ParseException {
+        validate(file);
         Loader.INSTANCE = new Loader();
         Loader.INSTANCE.dataFile = file;
 
-        ArrayList<Candlestick> data = new ArrayList<>();
-        Loader.INSTANCE.load(data);
+        CandleSeries data = Loader.INSTANCE.load();
 
         if (data.size() == 0)
             throw new ParseException("Invalid price data file or format");
 
-        System.gc(); // Clear all strings from loading the file
-        return Collections.unmodifiableList(data);
+        return data;
     }
 
     private Loader() {}
 
-    private void load(ArrayList<Candlestick> dataPoints) {
-        try (DataInputStream input = new DataInputStream(Files.newInputStream(this.dataFile.toPath()))) {
+    private CandleSeries load() {
+        try {
+            if (StrxFormat.readVersion(this.dataFile) == StrxFormat.VERSION_2) return loadBlocks();
+            if (this.dataFile.length() >= MAPPED_LOAD_THRESHOLD) return loadMapped();
+            return loadStream();
+        } catch (Exception e) {
+            LOGGER.error("Error while loading data: ", e);
+        }
+
+        return new CandleSeries(0);
+    }
+
+    private CandleSeries loadStream() throws Exception {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.dataFile.toPath()), 1 << 16))) {
             // the magic string is 'b4 ff b4 ff' + the version number
             if (input.readUnsignedByte() != 0xb4
                     || input.readUnsignedByte() != 0xff
@@ -69,26 +249,138 @@ public class Loader {
 
             long startTime = input.readLong();
             long endTime = input.readLong();
-            lastDataRange = String.format("Price data range: %s", Utils.msToNice(endTime - startTime, true, false, false));
-            LOGGER.info(lastDataRange);
-            Candlestick previous = null;
+            logDataRange(startTime, endTime);
+
+            int records = (int) ((this.dataFile.length() - StrxMappedFile.HEADER_SIZE) / StrxMappedFile.RECORD_SIZE);
+            CandleSeries data = new CandleSeries(records);
 
-            while (input.available() > 0) {
-                Candlestick candle = new Candlestick(
+            for (int i = 0; i < records; i++) {
+                data.add(
                         input.readLong(),
                         input.readDouble(),
                         input.readDouble(),
                         input.readDouble(),
                         input.readDouble(),
-                        input.readLong(),
-                        previous
+                        input.readLong()
                 );
+            }
+
+            return data;
+        }
+    }
 
-                dataPoints.add(candle);
-                previous = candle;
+    private CandleSeries loadMapped() throws Exception {
+        try (StrxMappedFile file = new StrxMappedFile(this.dataFile)) {
+            logDataRange(file.getStartTime(), file.getEndTime());
+            CandleSeries data = new CandleSeries(file.size());
+
+            for (int i = 0; i < file.size(); i++) {
+                data.add(
+                        file.getCloseTime(i),
+                        file.getOpen(i),
+                        file.getHigh(i),
+                        file.getLow(i),
+                        file.getClose(i),
+                        file.getVolume(i)
+                );
             }
-        } catch (Exception e) {
-            LOGGER.error("Error while loading data: ", e);
+
+            return data;
+        }
+    }
+
+    private CandleSeries loadBlocks() throws Exception {
+        try (StrxBlockFile file = new StrxBlockFile(this.dataFile)) {
+            logDataRange(file.getStartTime(), file.getEndTime());
+            CandleSeries data = new CandleSeries(file.size());
+
+            for (int i = 0; i < file.getBlockCount(); i++)
+                file.readBlock(i, data);
+
+            return data;
+        }
+    }
+
+    private static void logDataRange(long startTime, long endTime) {
+        lastDataRange = String.format("Price data range: %s", Utils.msToNice(endTime - startTime, true, false, false));
+        LOGGER.info(lastDataRange);
+    }
+
+    /** Streams v1 records through a buffered input */
+    private static class RecordSource extends CandleSource {
+        private final DataInputStream input;
+        private long remaining;
+
+        RecordSource(File file) throws IOException, ParseException {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath()), 1 << 16));
+
+            if (input.readUnsignedByte() != 0xb4
+                    || input.readUnsignedByte() != 0xff
+                    || input.readUnsignedByte() != 0xb4
+                    || input.readUnsignedByte() != 0xff
+                    || input.readUnsignedByte() != 0x01) {
+                input.close();
+                throw new ParseException("Not a valid strx file! (Or outdated version)");
+            }
+
+            logDataRange(input.readLong(), input.readLong());
+            this.remaining = (file.length() - StrxMappedFile.HEADER_SIZE) / StrxMappedFile.RECORD_SIZE;
+        }
+
+        @Override
+        protected boolean advance() throws IOException {
+            if (remaining <= 0) return false;
+
+            closeTime = input.readLong();
+            open = input.readDouble();
+            high = input.readDouble();
+            low = input.readDouble();
+            close = input.readDouble();
+            volume = input.readLong();
+            remaining--;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+
+    /** Decodes v2 files one block at a time */
+    private static class BlockSource extends CandleSource {
+        private final StrxBlockFile file;
+        private final CandleSeries block = new CandleSeries(StrxBlockFile.BLOCK_SIZE);
+        private int nextBlock = 0;
+        private int index = 0;
+
+        BlockSource(File dataFile) throws IOException {
+            this.file = new StrxBlockFile(dataFile);
+            logDataRange(file.getStartTime(), file.getEndTime());
+        }
+
+        @Override
+        protected boolean advance() throws IOException {
+            while (index >= block.size()) {
+                if (nextBlock >= file.getBlockCount()) return false;
+                block.clear();
+                file.readBlock(nextBlock++, block);
+                index = 0;
+            }
+
+            closeTime = block.getCloseTime(index);
+            open = block.getOpen(index);
+            high = block.getHigh(index);
+            low = block.getLow(index);
+            close = block.getClose(index);
+            volume = block.getVolume(index);
+            index++;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
         }
     }
 
@@ -17,6 +17,7 @@ import stratx.utils.Utils;
 
 import javax.swing.*;
 import java.awt.*;
+import java.io.File;
 import java.util.Arrays;
 import java.util.Scanner;
 
@@ -53,6 +54,18 @@ public class StratX {
         LOGGER.info("Starting StratX in {} mode...", MODE);
 
         if (MODE == Mode.Type.DOWNLOAD) {
+            // Headless servers (Or -Dstratx.manifest=<file>) download everything in the manifest
+            String manifest = System.getProperty("stratx.manifest");
+            if (manifest != null || GraphicsEnvironment.isHeadless()) {
+                Configuration config = manifest != null ? new Configuration(new File(manifest)) : new Configuration("config\\downloads.yml");
+                if (!config.exists()) {
+                    LOGGER.error("No download manifest, create config/downloads.yml or pass -Dstratx.manifest=<file>");
+                    System.exit(1);
+                }
+
+                System.exit(new BatchDownloader(config).run() == 0 ? 0 : 1);
+            }
+
             new Downloader().run();
             return;
         }
@@ -0,0 +1,46 @@
+package stratx.gui.indicators;
+
+import stratx.StratX;
+import stratx.gui.candlestick.CandlestickChart;
+import stratx.indicators.EMA;
+import stratx.indicators.Indicator;
+import stratx.indicators.RSI;
+import stratx.indicators.WMA;
+import stratx.strategies.Strategy;
+import stratx.utils.Configuration;
+
+import java.awt.*;
+
+/** Binds a strategy's indicators to a chart, with the styles from the indicators section of config.yml.
+ * Only used when there is a GUI, headless runs never load the chart classes. */
+public class IndicatorCharts {
+    public static void bind(Strategy strategy, CandlestickChart chart) {
+        for (Indicator indicator : strategy.getIndicators())
+            bind(indicator, chart);
+    }
+
+    public static void bind(Indicator indicator, CandlestickChart chart) {
+        Configuration config = StratX.getConfig();
+
+        if (indicator instanceof EMA) {
+            if (!config.getBoolean("indicators.ema.show-on-chart", true)) return;
+            indicator.addListener(new LineOverlay(chart, i -> ((EMA) i).getEMA(),
+                    config.getColor("indicators.ema.color", new Color(0x0F74E7)),
+                    (float) config.getDouble("indicators.ema.line-width", 2.0F)));
+        } else if (indicator instanceof WMA) {
+            if (!config.getBoolean("indicators.wma.show-on-chart", true)) return;
+            indicator.addListener(new LineOverlay(chart, i -> ((WMA) i).getWMA(),
+                    config.getColor("indicators.wma.color", new Color(0xFFBF41)),
+                    (float) config.getDouble("indicators.wma.line-width", 2.0F)));
+        } else if (indicator instanceof RSI) {
+            if (!config.getBoolean("indicators.rsi.show-on-chart", true)) return;
+            indicator.addListener(new RSIPlot(chart,
+                    config.getBoolean("indicators.rsi.midline", true),
+                    config.getColor("indicators.rsi.color", new Color(0x7E44F1)),
+                    config.getColor("indicators.rsi.overbought-color", new Color(0xF33232)),
+                    config.getColor("indicators.rsi.oversold-color", new Color(0x36F54F)),
+                    config.getColor("indicators.rsi.midline-color", new Color(0x6C6C6C)),
+                    (float) config.getDouble("indicators.rsi.line-width", 1.5F)));
+        }
+    }
+}
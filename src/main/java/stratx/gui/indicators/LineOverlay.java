@@ -0,0 +1,37 @@
+package stratx.gui.indicators;
+
+import org.jfree.data.xy.XYSeries;
+import stratx.gui.candlestick.CandlestickChart;
+import stratx.indicators.Indicator;
+import stratx.indicators.IndicatorListener;
+import stratx.utils.Candlestick;
+
+import java.awt.*;
+import java.util.function.ToDoubleFunction;
+
+/** Draws an indicator value as a line over the candles, e.g. an EMA or WMA.
+ * The line is created once the indicator has its first value (Not NaN) */
+public class LineOverlay implements IndicatorListener {
+    private final CandlestickChart chart;
+    private final ToDoubleFunction<Indicator> value;
+    private final Color color;
+    private final float width;
+    private XYSeries line;
+
+
+    public LineOverlay(CandlestickChart chart, ToDoubleFunction<Indicator> value, Color color, float width) {
+        this.chart = chart;
+        this.value = value;
+        this.color = color;
+        this.width = width;
+    }
+
+    @Override
+    public void onUpdate(Indicator indicator, Candlestick candle) {
+        double y = value.applyAsDouble(indicator);
+        if (Double.isNaN(y)) return;
+
+        if (line == null) line = chart.addEMALine(color, width);
+        line.add(candle.getCloseTime(), y);
+    }
+}
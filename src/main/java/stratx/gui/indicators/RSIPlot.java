@@ -0,0 +1,99 @@
+package stratx.gui.indicators;
+
+import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+import stratx.gui.candlestick.CandlestickChart;
+import stratx.indicators.Indicator;
+import stratx.indicators.IndicatorListener;
+import stratx.indicators.RSI;
+import stratx.utils.Candlestick;
+
+import java.awt.*;
+
+import static stratx.gui.candlestick.CandlestickChart.styleAxis;
+import static stratx.gui.candlestick.CandlestickChart.stylePlot;
+
+/** Draws an RSI in its own subplot below the candles, with the overbought, oversold & mid lines */
+public class RSIPlot implements IndicatorListener {
+    private final CandlestickChart chart;
+    private XYPlot rsiSubplot;
+    private XYSeries overboughtLine;
+    private XYSeries oversoldLine;
+    private XYSeries midLine;
+    private XYSeries rsiLine;
+
+    private final boolean showMidLine;
+    private final Color color;
+    private final Color overboughtColor;
+    private final Color oversoldColor;
+    private final Color middleColor;
+    private final float lineWidth;
+
+
+    public RSIPlot(CandlestickChart chart, boolean showMidLine, Color color, Color overboughtColor, Color oversoldColor, Color middleColor, float lineWidth) {
+        this.chart = chart;
+        this.showMidLine = showMidLine;
+        this.color = color;
+        this.overboughtColor = overboughtColor;
+        this.oversoldColor = oversoldColor;
+        this.middleColor = middleColor;
+        this.lineWidth = lineWidth;
+    }
+
+    @Override
+    public void onUpdate(Indicator indicator, Candlestick candle) {
+        RSI rsi = (RSI) indicator;
+        if (Double.isNaN(rsi.getRSI())) return;
+
+        if (rsiLine == null) { // Create RSI overlay
+            XYLineAndShapeRenderer emaRenderer = new XYLineAndShapeRenderer(true, false);
+            emaRenderer.setSeriesPaint(0, overboughtColor);
+            emaRenderer.setSeriesStroke(0, new BasicStroke(1.0F));
+            emaRenderer.setSeriesPaint(1, oversoldColor);
+            emaRenderer.setSeriesStroke(1, new BasicStroke(1.0F));
+            emaRenderer.setSeriesPaint(2, color);
+            emaRenderer.setSeriesStroke(2, new BasicStroke(lineWidth));
+
+            XYSeriesCollection rsiDataset = new XYSeriesCollection();
+            XYSeries rsiSeries = new XYSeries("RSI");
+            rsiDataset.addSeries(rsiSeries);
+
+            NumberAxis rsiAxis = new NumberAxis("RSI");
+            styleAxis(rsiAxis);
+
+            rsiSubplot = new XYPlot(rsiDataset, chart.getDateAxis(), rsiAxis, emaRenderer);
+            stylePlot(rsiSubplot);
+
+            overboughtLine = addLine(overboughtColor, 1.0F);
+            oversoldLine = addLine(oversoldColor, 1.0F);
+            midLine = addLine(middleColor, 1.0F);
+            rsiLine = addLine(color, lineWidth);
+            chart.addPlot(rsiSubplot, true);
+        }
+
+        long x = candle.getCloseTime();
+        overboughtLine.add(x, rsi.getOverbought());
+        oversoldLine.add(x, rsi.getOversold());
+        if (showMidLine) midLine.add(x, (rsi.getOverbought() + rsi.getOversold()) / 2);
+        rsiLine.add(x, rsi.getRSI());
+    }
+
+    private XYSeries addLine(Color color, float width) {
+        int num = rsiSubplot.getDatasetCount() + 1;
+        XYSeriesCollection dataset = new XYSeriesCollection();
+        XYSeries series = new XYSeries("RSI");
+        dataset.addSeries(series);
+
+        XYLineAndShapeRenderer renderer = new XYLineAndShapeRenderer(true, false);
+        renderer.setSeriesPaint(0, color);
+        renderer.setSeriesStroke(0, new BasicStroke(width));
+
+        rsiSubplot.setDataset(num, dataset);
+        rsiSubplot.setRenderer(num, renderer);
+        chart.lockSeries(series);
+        return series;
+    }
+}
@@ -0,0 +1,135 @@
+package stratx.indicators;
+
+import stratx.utils.Candlestick;
+import stratx.utils.ExpAverage;
+import stratx.utils.Signal;
+
+/** Average directional index with the +DI & -DI lines, Wilder's smoothing (Like TradingView's DMI), O(1) per candle.
+ * Signals in the direction of the stronger DI, only while the ADX shows a trend (Above the threshold). */
+public class ADX extends Indicator {
+    private final int period;
+    private final double trendThreshold;
+    private final ExpAverage trueRange;
+    private final ExpAverage plusMove;
+    private final ExpAverage minusMove;
+    private final ExpAverage adx;
+    private long lastCloseTime = -1;
+    // The candle before the latest, NaN if the latest is the first candle
+    private double previousHigh = Double.NaN;
+    private double previousLow = Double.NaN;
+    private double previousClose = Double.NaN;
+    private double lastHigh = Double.NaN;
+    private double lastLow = Double.NaN;
+    private double lastClose = Double.NaN;
+
+
+    public ADX(int period) {
+        this(period, 25);
+    }
+
+    public ADX(int period, double trendThreshold) {
+        super("ADX");
+        this.period = period;
+        this.trendThreshold = trendThreshold;
+        this.trueRange = ExpAverage.wilder(period);
+        this.plusMove = ExpAverage.wilder(period);
+        this.minusMove = ExpAverage.wilder(period);
+        this.adx = ExpAverage.wilder(period);
+    }
+
+    @Override
+    public void update(Candlestick candle) {
+        if (candle.getCloseTime() < lastCloseTime) return;
+        boolean replace = candle.getCloseTime() == lastCloseTime;
+
+        if (!replace) {
+            previousHigh = lastHigh;
+            previousLow = lastLow;
+            previousClose = lastClose;
+        }
+
+        lastCloseTime = candle.getCloseTime();
+        lastHigh = candle.getHigh();
+        lastLow = candle.getLow();
+        lastClose = candle.getClose();
+        if (Double.isNaN(previousClose)) return; // The first candle has no moves
+
+        double up = lastHigh - previousHigh;
+        double down = previousLow - lastLow;
+        double plus = up > down && up > 0 ? up : 0;
+        double minus = down > up && down > 0 ? down : 0;
+        double range = ATR.trueRange(lastHigh, lastLow, previousClose);
+
+        // Whether the ADX is fed only depends on how many candles there are, which replacing doesn't change
+        if (replace) {
+            trueRange.replaceLast(range);
+            plusMove.replaceLast(plus);
+            minusMove.replaceLast(minus);
+            if (trueRange.isReady()) adx.replaceLast(getDX());
+        } else {
+            trueRange.add(range);
+            plusMove.add(plus);
+            minusMove.add(minus);
+            if (trueRange.isReady()) adx.add(getDX());
+        }
+    }
+
+    private double getDX() {
+        double plusDI = getPlusDI();
+        double minusDI = getMinusDI();
+        double sum = plusDI + minusDI;
+        return sum == 0 ? 0 : 100 * Math.abs(plusDI - minusDI) / sum;
+    }
+
+    @Override
+    public void warmUp(Candlestick candle) {
+        update(candle);
+    }
+
+    @Override
+    public double getValue() {
+        return isReady() ? adx.get() : Double.NaN;
+    }
+
+    /** The trend threshold only changes the signal */
+    @Override
+    public String getCacheKey() {
+        return "ADX(" + period + ")";
+    }
+
+    @Override
+    public Signal getSignal() {
+        if (!isReady() || adx.get() < trendThreshold) return Signal.HOLD;
+        double plusDI = getPlusDI();
+        double minusDI = getMinusDI();
+        if (plusDI > minusDI) return Signal.BUY;
+        if (minusDI > plusDI) return Signal.SELL;
+        return Signal.HOLD;
+    }
+
+    /** @return The ADX (0-100), or NaN until {@link #isReady()} */
+    public double getADX() {
+        return adx.get();
+    }
+
+    /** @return +DI (0-100), or NaN if there are less than period + 1 candles */
+    public double getPlusDI() {
+        if (!trueRange.isReady()) return Double.NaN;
+        return trueRange.get() == 0 ? 0 : 100 * plusMove.get() / trueRange.get();
+    }
+
+    /** @return -DI (0-100), or NaN if there are less than period + 1 candles */
+    public double getMinusDI() {
+        if (!trueRange.isReady()) return Double.NaN;
+        return trueRange.get() == 0 ? 0 : 100 * minusMove.get() / trueRange.get();
+    }
+
+    /** @return If the ADX is ready, after 2 * period candles */
+    public boolean isReady() {
+        return adx.isReady();
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+}
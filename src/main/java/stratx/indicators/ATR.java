@@ -0,0 +1,77 @@
+package stratx.indicators;
+
+import stratx.utils.Candlestick;
+import stratx.utils.ExpAverage;
+import stratx.utils.Signal;
+
+/** Average true range, Wilder's smoothing of the true ranges (Like TradingView's ta.atr), O(1) per candle.
+ * A volatility measure without a direction, so it always signals HOLD.
+ * Meant for stops & position sizing, or as part of other indicators. */
+public class ATR extends Indicator {
+    private final int period;
+    private final ExpAverage average;
+    private long lastCloseTime = -1;
+    /** Close of the candle before the latest, NaN if the latest is the first candle */
+    private double previousClose = Double.NaN;
+    private double lastClose = Double.NaN;
+
+
+    public ATR(int period) {
+        super("ATR");
+        this.period = period;
+        this.average = ExpAverage.wilder(period);
+    }
+
+    @Override
+    public void update(Candlestick candle) {
+        if (candle.getCloseTime() < lastCloseTime) return;
+        boolean replace = candle.getCloseTime() == lastCloseTime;
+        if (!replace) previousClose = lastClose;
+
+        double trueRange = trueRange(candle.getHigh(), candle.getLow(), previousClose);
+        if (replace) average.replaceLast(trueRange);
+        else average.add(trueRange);
+
+        lastCloseTime = candle.getCloseTime();
+        lastClose = candle.getClose();
+    }
+
+    /** @param previousClose NaN for the first candle, its true range is high - low */
+    static double trueRange(double high, double low, double previousClose) {
+        if (Double.isNaN(previousClose)) return high - low;
+        return Math.max(high - low, Math.max(Math.abs(high - previousClose), Math.abs(low - previousClose)));
+    }
+
+    @Override
+    public void warmUp(Candlestick candle) {
+        update(candle);
+    }
+
+    @Override
+    public double getValue() {
+        return isReady() ? average.get() : Double.NaN;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return "ATR(" + period + ")";
+    }
+
+    @Override
+    public Signal getSignal() {
+        return Signal.HOLD;
+    }
+
+    /** @return The average true range, or NaN if there are less than period candles */
+    public double getATR() {
+        return average.get();
+    }
+
+    public boolean isReady() {
+        return average.isReady();
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+}
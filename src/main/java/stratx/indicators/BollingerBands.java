@@ -0,0 +1,95 @@
+package stratx.indicators;
+
+import stratx.utils.Candlestick;
+import stratx.utils.RollingWindow;
+import stratx.utils.Signal;
+
+/** Bollinger bands, O(1) per candle. The middle band is the SMA of the closes,
+ * the outer bands are deviations (Population standard deviations) away from it.
+ * Signals BUY when the close is below the lower band, SELL when above the upper band. */
+public class BollingerBands extends Indicator {
+    private final int period;
+    private final double deviations;
+    private final RollingWindow window;
+    private long lastCloseTime = -1;
+    private double lastClose;
+
+
+    public BollingerBands() {
+        this(20, 2.0);
+    }
+
+    public BollingerBands(int period, double deviations) {
+        super("Bollinger");
+        this.period = period;
+        this.deviations = deviations;
+        this.window = new RollingWindow(period);
+    }
+
+    @Override
+    public void update(Candlestick candle) {
+        if (candle.getCloseTime() < lastCloseTime) return;
+
+        if (candle.getCloseTime() == lastCloseTime) window.replaceLast(candle.getClose());
+        else window.add(candle.getClose());
+
+        lastCloseTime = candle.getCloseTime();
+        lastClose = candle.getClose();
+    }
+
+    @Override
+    public void warmUp(Candlestick candle) {
+        update(candle);
+    }
+
+    /** @return The middle band */
+    @Override
+    public double getValue() {
+        return isReady() ? window.getMean() : Double.NaN;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return "Bollinger(" + period + "," + deviations + ")";
+    }
+
+    @Override
+    public Signal getSignal() {
+        if (!isReady()) return Signal.HOLD;
+        if (lastClose < getLower()) return Signal.BUY;
+        if (lastClose > getUpper()) return Signal.SELL;
+        return Signal.HOLD;
+    }
+
+    /** @return The SMA of the closes, or NaN if there are less than period candles */
+    public double getMiddle() {
+        return isReady() ? window.getMean() : Double.NaN;
+    }
+
+    /** @return The upper band, or NaN if there are less than period candles */
+    public double getUpper() {
+        return isReady() ? window.getMean() + deviations * window.getStdDev() : Double.NaN;
+    }
+
+    /** @return The lower band, or NaN if there are less than period candles */
+    public double getLower() {
+        return isReady() ? window.getMean() - deviations * window.getStdDev() : Double.NaN;
+    }
+
+    /** @return (Upper - lower) / middle, or NaN if there are less than period candles */
+    public double getBandwidth() {
+        return isReady() ? 2 * deviations * window.getStdDev() / window.getMean() : Double.NaN;
+    }
+
+    public boolean isReady() {
+        return window.isFull();
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    public double getDeviations() {
+        return deviations;
+    }
+}
@@ -0,0 +1,57 @@
+package stratx.indicators;
+
+import stratx.utils.Candlestick;
+import stratx.utils.Signal;
+
+/** When one indicator's value crosses another's (See {@link Indicator#getValue()}), e.g. a fast & slow EMA.
+ * Both are inputs (See {@link IndicatorGraph}), shared with any other indicator using identical ones.
+ * Signals BUY on the candle the first crosses above the second, SELL on the candle it crosses below. */
+public class Crossover extends Indicator {
+    private double difference = Double.NaN;
+    /** The difference before the latest candle */
+    private double previousDifference = Double.NaN;
+    private long lastCloseTime = -1;
+
+
+    public Crossover(Indicator first, Indicator second) {
+        super("Crossover");
+        addInput(first);
+        addInput(second);
+    }
+
+    @Override
+    public void update(Candlestick candle) {
+        if (candle.getCloseTime() < lastCloseTime) return;
+        if (candle.getCloseTime() != lastCloseTime) previousDifference = difference;
+
+        difference = getInput(0).getValue() - getInput(1).getValue();
+        lastCloseTime = candle.getCloseTime();
+    }
+
+    @Override
+    public void warmUp(Candlestick candle) {
+        update(candle);
+    }
+
+    /** @return First - second, NaN until both have a value */
+    @Override
+    public double getValue() {
+        return difference;
+    }
+
+    @Override
+    public String getCacheKey() {
+        String first = getInput(0).getCacheKey();
+        String second = getInput(1).getCacheKey();
+        if (first == null || second == null) return null;
+        return "Crossover(" + first + "," + second + ")";
+    }
+
+    @Override
+    public Signal getSignal() {
+        if (Double.isNaN(difference) || Double.isNaN(previousDifference)) return Signal.HOLD;
+        if (previousDifference <= 0 && difference > 0) return Signal.BUY;
+        if (previousDifference >= 0 && difference < 0) return Signal.SELL;
+        return Signal.HOLD;
+    }
+}
@@ -0,0 +1,91 @@
+package stratx.indicators;
+
+import stratx.utils.Candlestick;
+import stratx.utils.RollingExtreme;
+import stratx.utils.Signal;
+
+/** Donchian channels, the highest high & lowest low of the latest period candles, O(1) amortized per candle.
+ * Signals breakouts, BUY when the close is above the channel of the period candles before it, SELL when below. */
+public class DonchianChannels extends Indicator {
+    private final int period;
+    private final RollingExtreme highest;
+    private final RollingExtreme lowest;
+    // The channel before the latest candle, the breakout levels
+    private double previousUpper = Double.NaN;
+    private double previousLower = Double.NaN;
+    private long lastCloseTime = -1;
+    private double lastClose;
+
+
+    public DonchianChannels(int period) {
+        super("Donchian");
+        this.period = period;
+        this.highest = RollingExtreme.highest(period);
+        this.lowest = RollingExtreme.lowest(period);
+    }
+
+    @Override
+    public void update(Candlestick candle) {
+        if (candle.getCloseTime() < lastCloseTime) return;
+
+        if (candle.getCloseTime() == lastCloseTime) {
+            highest.replaceLast(candle.getHigh());
+            lowest.replaceLast(candle.getLow());
+        } else {
+            previousUpper = highest.isFull() ? highest.get() : Double.NaN;
+            previousLower = lowest.isFull() ? lowest.get() : Double.NaN;
+            highest.add(candle.getHigh());
+            lowest.add(candle.getLow());
+        }
+
+        lastCloseTime = candle.getCloseTime();
+        lastClose = candle.getClose();
+    }
+
+    @Override
+    public void warmUp(Candlestick candle) {
+        update(candle);
+    }
+
+    /** @return The middle of the channel */
+    @Override
+    public double getValue() {
+        return isReady() ? getMiddle() : Double.NaN;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return "Donchian(" + period + ")";
+    }
+
+    @Override
+    public Signal getSignal() {
+        if (Double.isNaN(previousUpper)) return Signal.HOLD;
+        if (lastClose > previousUpper) return Signal.BUY;
+        if (lastClose < previousLower) return Signal.SELL;
+        return Signal.HOLD;
+    }
+
+    /** @return The highest high, or NaN if there are less than period candles */
+    public double getUpper() {
+        return isReady() ? highest.get() : Double.NaN;
+    }
+
+    /** @return The lowest low, or NaN if there are less than period candles */
+    public double getLower() {
+        return isReady() ? lowest.get() : Double.NaN;
+    }
+
+    /** @return Halfway between the upper & lower channel, or NaN if there are less than period candles */
+    public double getMiddle() {
+        return isReady() ? (highest.get() + lowest.get()) / 2 : Double.NaN;
+    }
+
+    public boolean isReady() {
+        return highest.isFull();
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+}
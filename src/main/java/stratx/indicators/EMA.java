@@ -1,68 +1,124 @@
 package stratx.indicators;
 
-import org.jfree.data.xy.XYSeries;
-import stratx.StratX;
+import stratx.utils.CandleSeries;
 import stratx.utils.Candlestick;
-import stratx.utils.Configuration;
-import stratx.utils.PriceHistory;
 import stratx.utils.Signal;
 
-import java.awt.*;
-
+/** Exponential moving average, updated in O(1) per closed candle.
+ * Seeded with the simple average of the first period closes. */
 public class EMA extends Indicator {
     private final int period;
-    private XYSeries emaLine;
+    private final double k;
 
-    private boolean SHOW_ON_CHART = true;
-    private Color COLOR = new Color(0x0F74E7);
-    private float LINE_WIDTH = 2.0F;
+    private double value = Double.NaN;
+    /** The value before the latest candle, to replace the latest candle */
+    private double previousValue = Double.NaN;
+    /** Sum of the closes while seeding */
+    private double sum = 0;
+    private int count = 0;
+    private long lastCloseTime = -1;
+    private double lastClose;
 
 
     public EMA(int period) {
         super("EMA");
         this.period = period;
-        this.priceHistory = new PriceHistory(period);
-        this.loadSettings(StratX.getConfig());
+        this.k = 2.0 / (period + 1.0D);
     }
 
     @Override
     public void update(Candlestick candle) {
-        priceHistory.add(candle);
+        if (isPrecomputed()) {
+            value = nextPrecomputed(candle);
+            lastClose = candle.getClose();
+        } else advance(candle);
+    }
 
-        if (StratX.getCurrentMode().isShowGUI() && SHOW_ON_CHART && priceHistory.length() >= period) {
-            if (emaLine == null) emaLine = StratX.getCurrentMode().getGUI().getCandlestickChart().addEMALine(COLOR, LINE_WIDTH);
-            else emaLine.add(candle.getCloseTime(), getEMA(candle.getClose()));
+    @Override
+    public void warmUp(Candlestick candle) {
+        advance(candle);
+    }
+
+    private void advance(Candlestick candle) {
+        if (candle.getCloseTime() < lastCloseTime) return;
+        double close = candle.getClose();
+
+        if (candle.getCloseTime() == lastCloseTime) { // Replaces the latest candle, undo it
+            if (count <= period) sum -= lastClose;
+            else value = previousValue;
+            count--;
+        }
+
+        count++;
+        lastCloseTime = candle.getCloseTime();
+        lastClose = close;
+
+        if (count < period) {
+            sum += close;
+        } else if (count == period) {
+            sum += close;
+            value = sum / period;
+        } else {
+            previousValue = value;
+            value = k * (close - value) + value;
         }
     }
 
     @Override
-    public Signal getSignal() {
-        double current = StratX.getCurrentMode().getCurrentPrice();
-        double ema = getEMA(current);
+    public double[] computeAll(CandleSeries series) {
+        double[] values = new double[series.size()];
+        double ema = 0;
+
+        for (int i = 0; i < values.length; i++) {
+            double close = series.getClose(i);
+
+            if (i < period) {
+                ema += close;
+                values[i] = Double.NaN;
+                if (i == period - 1) values[i] = ema /= period;
+            } else {
+                values[i] = ema = k * (close - ema) + ema;
+            }
+        }
 
-        if (ema == -1) return Signal.HOLD;
-        if (current > ema) return Signal.BUY;
-        if (current < ema) return Signal.SELL;
+        return values;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return "EMA(" + period + ")";
+    }
+
+    @Override
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public Signal getSignal() {
+        if (!isReady()) return Signal.HOLD;
+        if (lastClose > value) return Signal.BUY;
+        if (lastClose < value) return Signal.SELL;
         return Signal.HOLD;
     }
 
-    private double getEMA(double currentPrice) {
-        if (priceHistory.length() < period) return -1;
+    /** @return The EMA of the closed candles, or NaN if there are less than period candles */
+    public double getEMA() {
+        return value;
+    }
 
-        double k = 2.0 / (period + 1.0D);
-        double ema = currentPrice;
-        double prevEMA = priceHistory.get(period - 1).getClose();
-        for (Candlestick candle : priceHistory.get()) {
-            ema = k * (candle.getClose() - prevEMA) + prevEMA;
-            prevEMA = ema;
-        }
+    /** @return What the EMA would be if the current candle closed at this price,
+     * or NaN if there are less than period closed candles */
+    public double getProvisionalEMA(double price) {
+        if (!isReady()) return Double.NaN;
+        return k * (price - value) + value;
+    }
 
-        return ema;
+    public boolean isReady() {
+        return !Double.isNaN(value);
     }
 
-    public void loadSettings(Configuration config) {
-        SHOW_ON_CHART = config.getBoolean("indicators.ema.show-on-chart", SHOW_ON_CHART);
-        COLOR = config.getColor("indicators.ema.color", COLOR);
-        LINE_WIDTH = (float) config.getDouble("indicators.ema.line-width", LINE_WIDTH);
+    public int getPeriod() {
+        return period;
     }
 }
@@ -28,6 +28,11 @@ public class HeikinAshiTrends extends Indicator {
         wasLastBullish = isBullish;
     }
 
+    @Override
+    public void warmUp(Candlestick candle) {
+        update(candle);
+    }
+
     /** Get the strength of a candle
      * The bigger the body size = more
      * The smaller the wick = more */
@@ -1,29 +1,159 @@
 package stratx.indicators;
 
 
+import com.binance.api.client.domain.market.CandlestickInterval;
+import stratx.utils.CandleSeries;
 import stratx.utils.Candlestick;
 import stratx.utils.PriceHistory;
 import stratx.utils.Signal;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Pure computation, values & signals. Drawing is done by {@link IndicatorListener}s (See stratx.gui.indicators) */
 public abstract class Indicator {
     protected String name;
     private boolean isRequiredForBuy = false;
     private boolean isRequiredForSell = false;
+    private final List<IndicatorListener> listeners = new ArrayList<>(0);
+    /** Null to use the strategy's candles */
+    private CandlestickInterval timeframe = null;
+    /** Indicators this one is computed from, updated before it by the {@link IndicatorGraph} */
+    private final List<Indicator> inputs = new ArrayList<>(0);
+    /** Values from {@link #computeAll(CandleSeries)}, read by update instead of computing them */
+    private double[] precomputed = null;
+    private CandleSeries precomputedSeries = null;
+    private int cursor = -1;
 
     protected Indicator(String name) {
         this.name = name;
     }
 
+    /** Shared by every indicator of the strategy, the strategy adds each candle before updating the indicators */
     protected PriceHistory priceHistory = null;
 
     public abstract void update(Candlestick candle);
 
     public abstract Signal getSignal();
 
+    /** Called with the candles before trading starts, to fill up the indicator's state.
+     * The candle is already in the price history. */
+    public void warmUp(Candlestick candle) {}
+
+    /** @return The main output, for indicators built on top of this one (See {@link #addInput}),
+     * NaN if there isn't one (yet) */
+    public double getValue() {
+        return Double.NaN;
+    }
+
+    /** Declare an indicator this one is computed from, in the constructor.
+     * Always read it back with {@link #getInput(int)}, the graph can swap it for an identical one it shares.
+     * An input without a timeframe of its own follows this one's (See {@link #setTimeframe}).
+     * Indicators with inputs must be updated by an {@link IndicatorGraph}, as a strategy does */
+    protected void addInput(Indicator input) {
+        inputs.add(input);
+        if (input.getTimeframe() == null && timeframe != null) input.setTimeframe(timeframe);
+    }
+
+    protected Indicator getInput(int index) {
+        return inputs.get(index);
+    }
+
+    public List<Indicator> getInputs() {
+        return Collections.unmodifiableList(inputs);
+    }
+
+    /** Swap an input for an identical one, by {@link IndicatorGraph} */
+    void replaceInput(int index, Indicator input) {
+        inputs.set(index, input);
+    }
+
+    /** @return How many of the latest candles the indicator reads from the price history */
+    public int getLookback() {
+        return 0;
+    }
+
+    /** Compute the indicator's value after every candle of the series in one pass,
+     * for when the whole series is known up front (Backtests, parameter sweeps).
+     * @return The value after each candle (NaN where there aren't enough candles yet, like {@link #getValue()}),
+     * or null if the indicator can only be updated candle by candle */
+    public double[] computeAll(CandleSeries series) {
+        return null;
+    }
+
+    /** @return What the values of {@link #computeAll(CandleSeries)} depend on besides the series,
+     * e.g. the type & period, or null if they can't be cached (See {@link IndicatorCache}).
+     * Settings that only change the signal (Thresholds) must be left out, so they share the values */
+    public String getCacheKey() {
+        return null;
+    }
+
+    /** Make update read the values computed for the series instead of computing them,
+     * the candles must then be the series' candles, in order. Null to compute them again */
+    public void setPrecomputed(CandleSeries series, double[] values) {
+        if (values != null && values.length != series.size()) throw new IllegalArgumentException("Expected " + series.size() + " values, got " + values.length);
+        this.precomputedSeries = values == null ? null : series;
+        this.precomputed = values;
+        this.cursor = -1;
+    }
+
+    protected boolean isPrecomputed() {
+        return precomputed != null;
+    }
+
+    /** @return The precomputed value of the next candle of the series */
+    protected double nextPrecomputed(Candlestick candle) {
+        if (++cursor >= precomputed.length || precomputedSeries.getCloseTime(cursor) != candle.getCloseTime())
+            throw new IllegalStateException("Candle " + candle.getCloseTime() + " is not the next candle of the precomputed series");
+        return precomputed[cursor];
+    }
+
+    /** @return If the price history holds at least this many candles */
+    protected boolean hasHistory(int candles) {
+        return priceHistory != null && priceHistory.length() >= candles;
+    }
+
     public PriceHistory getPriceHistory() {
         return priceHistory;
     }
 
+    public void setPriceHistory(PriceHistory priceHistory) {
+        this.priceHistory = priceHistory;
+    }
+
+    public void addListener(IndicatorListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(IndicatorListener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Called by the strategy after {@link #update(Candlestick)} */
+    public void notifyListeners(Candlestick candle) {
+        for (int i = 0; i < listeners.size(); i++)
+            listeners.get(i).onUpdate(this, candle);
+    }
+
+    /** Update the indicator with candles of this interval, aggregated from the strategy's candles
+     * (e.g. a 1h RSI in a 5m strategy). Null, the default, for the strategy's own candles.
+     * The inputs that had the same timeframe as this one (e.g. a MACD's EMAs) move with it,
+     * inputs set to another timeframe keep theirs. Set it before adding the indicator to a strategy */
+    public void setTimeframe(CandlestickInterval timeframe) {
+        if (timeframe == CandlestickInterval.MONTHLY) throw new IllegalArgumentException("Months aren't a fixed length, can't aggregate to them");
+        CandlestickInterval previous = this.timeframe;
+        if (timeframe == previous) return;
+        this.timeframe = timeframe;
+
+        for (Indicator input : inputs)
+            if (input.getTimeframe() == previous) input.setTimeframe(timeframe);
+    }
+
+    public CandlestickInterval getTimeframe() {
+        return timeframe;
+    }
+
     public String getName() {
         return name;
     }
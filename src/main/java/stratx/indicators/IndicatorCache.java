@@ -0,0 +1,106 @@
+package stratx.indicators;
+
+import stratx.StratX;
+import stratx.utils.CandleSeries;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/** Memoizes {@link Indicator#computeAll(CandleSeries)} results, keyed by the indicator's class,
+ * its {@link Indicator#getCacheKey()} & the identity of the dataset it was computed over.
+ * Least recently used columns are evicted once they take more than the memory budget.
+ *
+ * The cached arrays are shared between everyone asking for the same key, never modify them. */
+public class IndicatorCache {
+    private static final IndicatorCache SHARED = new IndicatorCache(StratX.getConfig().getInt("backtest.indicator-cache-mb", 256) * 1024L * 1024L);
+    /** Array header & map entry */
+    private static final long ENTRY_OVERHEAD = 96;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, double[]> columns = new LinkedHashMap<>(16, 0.75F, true);
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+
+    public IndicatorCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /** The cache backtests share, sized by backtest.indicator-cache-mb in config.yml */
+    public static IndicatorCache getShared() {
+        return SHARED;
+    }
+
+    /** @param dataset Identifies the series, e.g. the file, its modified time & the range read from it
+     * @param series Supplies the series to compute over on a miss
+     * @return The indicator's values over the dataset, computed & cached on a miss.
+     * Null if the indicator can't be computed in batch */
+    public double[] get(String dataset, Indicator indicator, Supplier<CandleSeries> series) {
+        String indicatorKey = indicator.getCacheKey();
+        if (indicatorKey == null) return indicator.computeAll(series.get());
+
+        // The class too, so two indicators with the same key never share values
+        String key = dataset + '|' + indicator.getClass().getName() + '|' + indicatorKey;
+        synchronized (this) {
+            double[] values = columns.get(key);
+            if (values != null) {
+                hits++;
+                return values;
+            }
+        }
+
+        // Computed outside the lock, so parallel backtests don't wait on each other
+        double[] values = indicator.computeAll(series.get());
+        if (values != null) put(key, values); // Not a miss if it can't be computed in batch, it would never hit
+        return values;
+    }
+
+    private synchronized void put(String key, double[] values) {
+        misses++;
+        long size = sizeOf(values);
+        if (size > maxBytes) return; // Would evict everything & still not fit
+
+        double[] previous = columns.put(key, values);
+        if (previous != null) bytes -= sizeOf(previous);
+        bytes += size;
+
+        Iterator<Map.Entry<String, double[]>> eldest = columns.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= sizeOf(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    private static long sizeOf(double[] values) {
+        return values.length * 8L + ENTRY_OVERHEAD;
+    }
+
+    public synchronized void clear() {
+        columns.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return columns.size();
+    }
+
+    /** @return The estimated memory the cached columns take */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
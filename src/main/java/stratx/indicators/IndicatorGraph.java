@@ -0,0 +1,114 @@
+package stratx.indicators;
+
+import stratx.utils.Candlestick;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** The indicators of one timeframe & the inputs they are computed from (See {@link Indicator#addInput}),
+ * evaluated once per candle with every input before the indicators reading it.
+ *
+ * Identical inputs (Same class, {@link Indicator#getCacheKey()} & timeframe) are shared, e.g. a MACD(12, 26, 9)
+ * and an EMA(12) crossover use one EMA(12). The indicators added directly are never swapped for another,
+ * so whoever holds them keeps reading the evaluated instance. */
+public class IndicatorGraph {
+    /** Every node in evaluation (Topological) order */
+    private final List<Indicator> nodes = new ArrayList<>();
+    private final Set<Indicator> present = Collections.newSetFromMap(new IdentityHashMap<>());
+    /** Added directly, not only as an input */
+    private final Set<Indicator> roots = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<String, Indicator> byKey = new HashMap<>();
+    private int shared = 0;
+
+
+    /** Add an indicator & its inputs, swapping inputs for identical nodes already in the graph
+     * @throws IllegalArgumentException If the inputs form a cycle or have another timeframe */
+    public void add(Indicator indicator) {
+        roots.add(indicator);
+        addNode(indicator, true, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    private Indicator addNode(Indicator indicator, boolean root, Set<Indicator> visiting) {
+        if (present.contains(indicator)) return indicator;
+        if (!visiting.add(indicator)) throw new IllegalArgumentException("The inputs of " + indicator.getName() + " form a cycle");
+
+        List<Indicator> inputs = indicator.getInputs();
+        for (int i = 0; i < inputs.size(); i++) {
+            Indicator input = inputs.get(i);
+            if (input.getTimeframe() != indicator.getTimeframe())
+                throw new IllegalArgumentException("The inputs of " + indicator.getName() + " must have the same timeframe");
+
+            Indicator node = addNode(input, false, visiting);
+            if (node != input) indicator.replaceInput(i, node);
+        }
+
+        visiting.remove(indicator);
+        String key = keyOf(indicator);
+        Indicator existing = key == null ? null : byKey.get(key);
+
+        if (existing != null && !root) {
+            shared++;
+            return existing;
+        }
+
+        if (existing != null && !roots.contains(existing)) { // Take the shared input's place, it has the same inputs
+            nodes.set(nodes.indexOf(existing), indicator);
+            present.remove(existing);
+            present.add(indicator);
+            byKey.put(key, indicator);
+            shared++;
+
+            for (Indicator node : nodes) {
+                List<Indicator> nodeInputs = node.getInputs();
+                for (int i = 0; i < nodeInputs.size(); i++)
+                    if (nodeInputs.get(i) == existing) node.replaceInput(i, indicator);
+            }
+
+            return indicator;
+        }
+
+        if (key != null && existing == null) byKey.put(key, indicator);
+        nodes.add(indicator);
+        present.add(indicator);
+        return indicator;
+    }
+
+    private static String keyOf(Indicator indicator) {
+        String cacheKey = indicator.getCacheKey();
+        if (cacheKey == null) return null;
+        return indicator.getClass().getName() + '|' + cacheKey + '|' + indicator.getTimeframe();
+    }
+
+    /** Update every node with the closed candle & notify their listeners */
+    public void update(Candlestick candle) {
+        for (int i = 0; i < nodes.size(); i++) {
+            Indicator node = nodes.get(i);
+            node.update(candle);
+            node.notifyListeners(candle);
+        }
+    }
+
+    public void warmUp(Candlestick candle) {
+        for (int i = 0; i < nodes.size(); i++)
+            nodes.get(i).warmUp(candle);
+    }
+
+    /** @return Every node in evaluation order, the indicators added & their inputs */
+    public List<Indicator> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    public boolean contains(Indicator indicator) {
+        return present.contains(indicator);
+    }
+
+    /** @return How many times an identical node was reused instead of evaluated again */
+    public int getShared() {
+        return shared;
+    }
+}
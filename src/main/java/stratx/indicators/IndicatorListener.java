@@ -0,0 +1,9 @@
+package stratx.indicators;
+
+import stratx.utils.Candlestick;
+
+/** Notified after an indicator was updated with a closed candle, e.g. to draw it on a chart.
+ * Keeps the indicators themselves free of any GUI code. */
+public interface IndicatorListener {
+    void onUpdate(Indicator indicator, Candlestick candle);
+}
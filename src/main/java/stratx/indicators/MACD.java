@@ -0,0 +1,104 @@
+package stratx.indicators;
+
+import stratx.utils.Candlestick;
+import stratx.utils.ExpAverage;
+import stratx.utils.Signal;
+
+/** Moving average convergence divergence, O(1) per candle.
+ * MACD = fast EMA - slow EMA of the closes, the signal line is an EMA of the MACD.
+ * The EMAs are inputs (See {@link IndicatorGraph}), shared with any other indicator using the same EMAs.
+ * Signals BUY while the MACD is above the signal line (Positive histogram), SELL while below. */
+public class MACD extends Indicator {
+    private final int fastPeriod;
+    private final int slowPeriod;
+    private final int signalPeriod;
+    private final ExpAverage signalLine;
+    private long lastCloseTime = -1;
+
+
+    public MACD() {
+        this(12, 26, 9);
+    }
+
+    public MACD(int fastPeriod, int slowPeriod, int signalPeriod) {
+        super("MACD");
+        if (fastPeriod >= slowPeriod) throw new IllegalArgumentException("The fast period must be shorter than the slow period");
+        this.fastPeriod = fastPeriod;
+        this.slowPeriod = slowPeriod;
+        this.signalPeriod = signalPeriod;
+        this.signalLine = ExpAverage.ema(signalPeriod);
+        addInput(new EMA(fastPeriod));
+        addInput(new EMA(slowPeriod));
+    }
+
+    @Override
+    public void update(Candlestick candle) {
+        if (candle.getCloseTime() < lastCloseTime) return;
+        double macd = getValue();
+
+        // The slow EMA is ready on the same candle either way, so replacing never changes whether the signal line is fed
+        if (!Double.isNaN(macd)) {
+            if (candle.getCloseTime() == lastCloseTime) signalLine.replaceLast(macd);
+            else signalLine.add(macd);
+        }
+
+        lastCloseTime = candle.getCloseTime();
+    }
+
+    @Override
+    public void warmUp(Candlestick candle) {
+        update(candle);
+    }
+
+    /** @return The MACD line */
+    @Override
+    public double getValue() {
+        return getInput(0).getValue() - getInput(1).getValue();
+    }
+
+    @Override
+    public String getCacheKey() {
+        return "MACD(" + getInput(0).getCacheKey() + "," + getInput(1).getCacheKey() + "," + signalPeriod + ")";
+    }
+
+    @Override
+    public Signal getSignal() {
+        if (!isReady()) return Signal.HOLD;
+        double histogram = getHistogram();
+        if (histogram > 0) return Signal.BUY;
+        if (histogram < 0) return Signal.SELL;
+        return Signal.HOLD;
+    }
+
+    /** @return Fast EMA - slow EMA, NaN until the slow EMA is ready */
+    public double getMACD() {
+        return getValue();
+    }
+
+    /** @return The EMA of the MACD, NaN until {@link #isReady()} */
+    public double getSignalLine() {
+        return signalLine.get();
+    }
+
+    /** @return MACD - signal line, NaN until {@link #isReady()} */
+    public double getHistogram() {
+        return getMACD() - signalLine.get();
+    }
+
+    /** @return If the signal line is ready, after slow + signal - 1 candles */
+    public boolean isReady() {
+        return signalLine.isReady();
+    }
+
+    public int getFastPeriod() {
+        return fastPeriod;
+    }
+
+    public int getSlowPeriod() {
+        return slowPeriod;
+    }
+
+    public int getSignalPeriod() {
+        return signalPeriod;
+    }
+}
@@ -0,0 +1,97 @@
+package stratx.indicators;
+
+import stratx.utils.Candlestick;
+import stratx.utils.ExpAverage;
+import stratx.utils.Signal;
+
+/** On balance volume, the running total of volume added on up closes & subtracted on down closes, O(1) per candle.
+ * Signals BUY while the OBV is above its EMA (Volume flowing in), SELL while below. */
+public class OBV extends Indicator {
+    private final int signalPeriod;
+    private final ExpAverage average;
+    private double obv = 0;
+    /** The OBV before the latest candle, to replace the latest candle */
+    private double previousOBV = 0;
+    private long lastCloseTime = -1;
+    /** Close of the candle before the latest, NaN if the latest is the first candle */
+    private double previousClose = Double.NaN;
+    private double lastClose = Double.NaN;
+
+
+    public OBV() {
+        this(20);
+    }
+
+    /** @param signalPeriod Period of the EMA the OBV is compared to */
+    public OBV(int signalPeriod) {
+        super("OBV");
+        this.signalPeriod = signalPeriod;
+        this.average = ExpAverage.ema(signalPeriod);
+    }
+
+    @Override
+    public void update(Candlestick candle) {
+        if (candle.getCloseTime() < lastCloseTime) return;
+        boolean replace = candle.getCloseTime() == lastCloseTime;
+
+        if (replace) {
+            obv = previousOBV;
+        } else {
+            previousOBV = obv;
+            previousClose = lastClose;
+        }
+
+        double close = candle.getClose();
+        if (!Double.isNaN(previousClose)) {
+            if (close > previousClose) obv += candle.getVolume();
+            else if (close < previousClose) obv -= candle.getVolume();
+        }
+
+        if (replace) average.replaceLast(obv);
+        else average.add(obv);
+
+        lastCloseTime = candle.getCloseTime();
+        lastClose = close;
+    }
+
+    @Override
+    public void warmUp(Candlestick candle) {
+        update(candle);
+    }
+
+    @Override
+    public double getValue() {
+        return lastCloseTime == -1 ? Double.NaN : obv;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return "OBV(" + signalPeriod + ")";
+    }
+
+    @Override
+    public Signal getSignal() {
+        if (!isReady()) return Signal.HOLD;
+        if (obv > average.get()) return Signal.BUY;
+        if (obv < average.get()) return Signal.SELL;
+        return Signal.HOLD;
+    }
+
+    /** @return The OBV, starting at 0 on the first candle, NaN before it */
+    public double getOBV() {
+        return getValue();
+    }
+
+    /** @return The EMA of the OBV, NaN until {@link #isReady()} */
+    public double getAverage() {
+        return average.get();
+    }
+
+    public boolean isReady() {
+        return average.isReady();
+    }
+
+    public int getSignalPeriod() {
+        return signalPeriod;
+    }
+}
@@ -1,135 +1,254 @@
 package stratx.indicators;
 
-import org.jfree.chart.axis.NumberAxis;
-import org.jfree.chart.plot.XYPlot;
-import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
-import org.jfree.data.xy.XYSeries;
-import org.jfree.data.xy.XYSeriesCollection;
 import stratx.StratX;
-import stratx.gui.candlestick.CandlestickChart;
-import stratx.utils.*;
-
-import java.awt.*;
-
-import static stratx.gui.candlestick.CandlestickChart.styleAxis;
-import static stratx.gui.candlestick.CandlestickChart.stylePlot;
+import stratx.utils.CandleSeries;
+import stratx.utils.Candlestick;
+import stratx.utils.Configuration;
+import stratx.utils.MathUtils;
+import stratx.utils.Signal;
 
+/** Relative strength index, in one of two modes (See {@link Smoothing}) */
 public class RSI extends Indicator {
     private final int period;
     private final double overbought;
     private final double oversold;
-    private XYPlot rsiSubplot;
-    private XYSeries overboughtLine;
-    private XYSeries oversoldLine;
-    private XYSeries midLine;
-    private XYSeries rsiLine;
-
-    private boolean SHOW_ON_CHART = true;
-    private boolean SHOW_MID_LINE = true;
-    private Color COLOR = new Color(0x7E44F1);
-    private Color OVERBOUGHT_COLOR = new Color(0xF33232);
-    private Color OVERSOLD_COLOR = new Color(0x36F54F);
-    private Color MIDDLE_COLOR = new Color(0x6C6C6C);
-    private float LINE_WIDTH = 1.5F;
+    private Smoothing smoothing;
+
+    private double value = Double.NaN;
+
+    // Wilder state, the averages are seeded with the simple average of the first period changes
+    private double avgGain = 0;
+    private double avgLoss = 0;
+    /** The averages before the latest candle, to replace the latest candle */
+    private double previousAvgGain = 0;
+    private double previousAvgLoss = 0;
+    private double lastGain = 0;
+    private double lastLoss = 0;
+    private int count = 0;
+    private long lastCloseTime = -1;
+    private double lastClose;
+    private double previousClose;
+
+    /** @see Smoothing */
+    public enum Smoothing {
+        /** The previous behaviour, plain average of the candle bodies (close - open)
+         * over the last period candles. Recomputed from the price history */
+        SIMPLE,
+        /** Wilder's smoothing of the close to close changes, like TradingView's ta.rsi.
+         * O(1) per candle, converges to TradingView's values after a few hundred candles */
+        WILDER
+    }
 
+    /** Smoothing from indicators.rsi.mode in config.yml */
     public RSI(int period, double overbought, double oversold) {
+        this(period, overbought, oversold, null);
+    }
+
+    public RSI(int period, double overbought, double oversold, Smoothing smoothing) {
         super("RSI");
         this.period = period;
         this.overbought = overbought;
         this.oversold = oversold;
-        this.priceHistory = new PriceHistory(period);
+        this.smoothing = Smoothing.SIMPLE;
         this.loadSettings();
+        if (smoothing != null) this.smoothing = smoothing;
     }
 
     @Override
     public void update(Candlestick candle) {
-        priceHistory.add(candle);
-
-        if (SHOW_ON_CHART && priceHistory.length() >= period) {
-            if (rsiLine == null && StratX.getCurrentMode().isShowGUI()) { // Create RSI overlay
-                CandlestickChart renderer = StratX.getCurrentMode().getGUI().getCandlestickChart();
-                XYLineAndShapeRenderer emaRenderer = new XYLineAndShapeRenderer(true, false);
-                emaRenderer.setSeriesPaint(0, OVERBOUGHT_COLOR);
-                emaRenderer.setSeriesStroke(0, new BasicStroke(1.0F));
-                emaRenderer.setSeriesPaint(1, OVERSOLD_COLOR);
-                emaRenderer.setSeriesStroke(1, new BasicStroke(1.0F));
-                emaRenderer.setSeriesPaint(2, COLOR);
-                emaRenderer.setSeriesStroke(2, new BasicStroke(LINE_WIDTH));
-
-                XYSeriesCollection rsiDataset = new XYSeriesCollection();
-                XYSeries rsiSeries = new XYSeries("RSI");
-                rsiDataset.addSeries(rsiSeries);
-
-                NumberAxis rsiAxis = new NumberAxis("RSI");
-                styleAxis(rsiAxis);
-
-                rsiSubplot = new XYPlot(rsiDataset, renderer.getDateAxis(), rsiAxis, emaRenderer);
-                stylePlot(rsiSubplot);
-
-                overboughtLine = addLine(OVERBOUGHT_COLOR, 1.0F);
-                oversoldLine = addLine(OVERSOLD_COLOR, 1.0F);
-                midLine = addLine(MIDDLE_COLOR, 1.0F);
-                rsiLine = addLine(COLOR, LINE_WIDTH);
-                renderer.addPlot(rsiSubplot, true);
-            } else if (overboughtLine != null) {
-                long x = candle.getCloseTime();
-                overboughtLine.add(x, overbought);
-                oversoldLine.add(x, oversold);
-                if (SHOW_MID_LINE) midLine.add(x, (overbought + oversold) / 2);
-                rsiLine.add(x, getRSI());
+        if (isPrecomputed()) value = nextPrecomputed(candle);
+        else advance(candle);
+    }
+
+    @Override
+    public void warmUp(Candlestick candle) {
+        advance(candle);
+    }
+
+    private void advance(Candlestick candle) {
+        if (smoothing == Smoothing.SIMPLE) value = getSimpleRSI();
+        else advanceWilder(candle);
+    }
+
+    private void advanceWilder(Candlestick candle) {
+        if (candle.getCloseTime() < lastCloseTime) return;
+
+        if (candle.getCloseTime() == lastCloseTime) { // Replaces the latest candle, undo it
+            if (count > period + 1) {
+                avgGain = previousAvgGain;
+                avgLoss = previousAvgLoss;
+            } else if (count == period + 1) { // Back to the sums
+                avgGain = avgGain * period - lastGain;
+                avgLoss = avgLoss * period - lastLoss;
+            } else if (count > 1) {
+                avgGain -= lastGain;
+                avgLoss -= lastLoss;
             }
+
+            count--;
+            lastClose = previousClose;
+        }
+
+        count++;
+        lastCloseTime = candle.getCloseTime();
+        previousClose = lastClose;
+        lastClose = candle.getClose();
+        if (count == 1) return; // No change yet
+
+        double change = lastClose - previousClose;
+        lastGain = Math.max(change, 0);
+        lastLoss = Math.max(-change, 0);
+
+        if (count <= period + 1) { // Seeding, the averages hold the sums
+            avgGain += lastGain;
+            avgLoss += lastLoss;
+            if (count < period + 1) return;
+            avgGain /= period;
+            avgLoss /= period;
+        } else {
+            previousAvgGain = avgGain;
+            previousAvgLoss = avgLoss;
+            avgGain = (avgGain * (period - 1) + lastGain) / period;
+            avgLoss = (avgLoss * (period - 1) + lastLoss) / period;
         }
+
+        value = wilderRSI(avgGain, avgLoss);
+    }
+
+    private static double wilderRSI(double avgGain, double avgLoss) {
+        if (avgLoss == 0) return 100;
+        if (avgGain == 0) return 0;
+        return 100 - (100 / (1 + avgGain / avgLoss));
     }
 
-    private XYSeries addLine(Color color, float width) {
-        // Create ema line overlay
-        int num = rsiSubplot.getDatasetCount() + 1;
-        XYSeriesCollection dataset = new XYSeriesCollection();
-        XYSeries series = new XYSeries("RSI");
-        dataset.addSeries(series);
+    @Override
+    public double[] computeAll(CandleSeries series) {
+        double[] values = new double[series.size()];
+
+        if (smoothing == Smoothing.SIMPLE) {
+            for (int i = 0; i < values.length; i++) {
+                if (i < period - 1) {
+                    values[i] = Double.NaN;
+                    continue;
+                }
+
+                double up = 0;
+                double down = 0;
+                for (int j = i - period + 1; j <= i; j++) {
+                    double change = series.getClose(j) - series.getOpen(j);
+                    if (change > 0) up += change;
+                    else down -= change;
+                }
+
+                values[i] = simpleRSI(up, down);
+            }
+
+            return values;
+        }
+
+        double gain = 0;
+        double loss = 0;
+        if (values.length > 0) values[0] = Double.NaN;
+
+        for (int i = 1; i < values.length; i++) {
+            double change = series.getClose(i) - series.getClose(i - 1);
+            double up = Math.max(change, 0);
+            double down = Math.max(-change, 0);
+
+            if (i <= period) {
+                gain += up;
+                loss += down;
+                values[i] = Double.NaN;
+                if (i < period) continue;
+                gain /= period;
+                loss /= period;
+            } else {
+                gain = (gain * (period - 1) + up) / period;
+                loss = (loss * (period - 1) + down) / period;
+            }
+
+            values[i] = wilderRSI(gain, loss);
+        }
+
+        return values;
+    }
 
-        XYLineAndShapeRenderer renderer = new XYLineAndShapeRenderer(true, false);
-        renderer.setSeriesPaint(0, color);
-        renderer.setSeriesStroke(0, new BasicStroke(width));
+    /** Overbought & oversold only change the signal, RSIs with other thresholds share the values */
+    @Override
+    public String getCacheKey() {
+        return "RSI(" + period + "," + smoothing + ")";
+    }
 
-        rsiSubplot.setDataset(num, dataset);
-        rsiSubplot.setRenderer(num, renderer);
-        StratX.getCurrentMode().getGUI().getCandlestickChart().lockSeries(series);
-        return series;
+    @Override
+    public double getValue() {
+        return value;
     }
 
     @Override
     public Signal getSignal() {
-        double rsi = getRSI();
-        if (rsi == -1) return Signal.HOLD;
+        double rsi = value;
+        if (Double.isNaN(rsi)) return Signal.HOLD;
         if (rsi > overbought) return Signal.SELL;
         if (rsi < oversold) return Signal.BUY;
         return Signal.HOLD;
     }
 
-    private double getRSI() {
-        if (priceHistory.length() < period) return -1; // not enough data yet
+    /** @return The RSI as of the latest closed candle, or NaN if there aren't enough candles yet */
+    public double getRSI() {
+        return value;
+    }
+
+    private double getSimpleRSI() {
+        if (!hasHistory(period)) return Double.NaN; // not enough data yet
+        int start = priceHistory.length() - period;
         double up = 0;
         double down = 0;
 
-        for (int i = 0; i < period; i++) {
-            double change = priceHistory.get(i).getClose() - priceHistory.get(i).getOpen();
+        for (int i = start; i < start + period; i++) {
+            double change = priceHistory.closeAt(i) - priceHistory.openAt(i);
             if (change > 0) up += change;
             else down -= change;
         }
 
+        return simpleRSI(up, down);
+    }
+
+    private double simpleRSI(double up, double down) {
         double rs = (up / period) / (down / period);
         return MathUtils.clampDouble(100 - (100 / (1 + rs)), 0.0D, 100.0D);
     }
 
+    /** Wilder keeps its own state, only the simple mode reads the price history */
+    @Override
+    public int getLookback() {
+        return smoothing == Smoothing.SIMPLE ? period : 0;
+    }
+
+    public Smoothing getSmoothing() {
+        return smoothing;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    public double getOverbought() {
+        return overbought;
+    }
+
+    public double getOversold() {
+        return oversold;
+    }
+
     public void loadSettings() {
         Configuration config = StratX.getConfig();
-        SHOW_ON_CHART = config.getBoolean("indicators.rsi.show-on-chart", SHOW_ON_CHART);
-        SHOW_MID_LINE = config.getBoolean("indicators.rsi.midline", SHOW_MID_LINE);
-        COLOR = config.getColor("indicators.rsi.color", COLOR);
-        OVERBOUGHT_COLOR = config.getColor("indicators.rsi.overbought-color", OVERBOUGHT_COLOR);
-        OVERSOLD_COLOR = config.getColor("indicators.rsi.oversold-color", OVERSOLD_COLOR);
-        MIDDLE_COLOR = config.getColor("indicators.rsi.midline-color", MIDDLE_COLOR);
-        LINE_WIDTH = (float) config.getDouble("indicators.rsi.line-width", LINE_WIDTH);
+        String mode = config.getString("indicators.rsi.mode");
+        if (mode != null) {
+            try {
+                smoothing = Smoothing.valueOf(mode.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                StratX.warn("Unknown RSI mode {}, using {}", mode, smoothing);
+            }
+        }
     }
 }
@@ -0,0 +1,68 @@
+package stratx.indicators;
+
+import stratx.utils.Candlestick;
+import stratx.utils.RollingWindow;
+import stratx.utils.Signal;
+
+/** Simple moving average of the closes, O(1) per candle */
+public class SMA extends Indicator {
+    private final int period;
+    private final RollingWindow window;
+    private long lastCloseTime = -1;
+    private double lastClose;
+
+
+    public SMA(int period) {
+        super("SMA");
+        this.period = period;
+        this.window = new RollingWindow(period);
+    }
+
+    @Override
+    public void update(Candlestick candle) {
+        if (candle.getCloseTime() < lastCloseTime) return;
+
+        if (candle.getCloseTime() == lastCloseTime) window.replaceLast(candle.getClose());
+        else window.add(candle.getClose());
+
+        lastCloseTime = candle.getCloseTime();
+        lastClose = candle.getClose();
+    }
+
+    @Override
+    public void warmUp(Candlestick candle) {
+        update(candle);
+    }
+
+    @Override
+    public double getValue() {
+        return isReady() ? window.getMean() : Double.NaN;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return "SMA(" + period + ")";
+    }
+
+    @Override
+    public Signal getSignal() {
+        if (!isReady()) return Signal.HOLD;
+        double sma = window.getMean();
+        if (lastClose > sma) return Signal.BUY;
+        if (lastClose < sma) return Signal.SELL;
+        return Signal.HOLD;
+    }
+
+    /** @return The average of the latest period closes, or NaN if there are less than period candles */
+    public double getSMA() {
+        return isReady() ? window.getMean() : Double.NaN;
+    }
+
+    public boolean isReady() {
+        return window.isFull();
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+}
@@ -0,0 +1,110 @@
+package stratx.indicators;
+
+import stratx.utils.Candlestick;
+import stratx.utils.RollingExtreme;
+import stratx.utils.RollingWindow;
+import stratx.utils.Signal;
+
+/** Stochastic oscillator, O(1) amortized per candle.
+ * %K = where the close is in the high-low range of the latest kPeriod candles (0-100), %D = SMA of %K.
+ * Signals BUY when %K is below oversold & above %D (Turning up), SELL when above overbought & below %D. */
+public class Stochastic extends Indicator {
+    private final int kPeriod;
+    private final int dPeriod;
+    private final double overbought;
+    private final double oversold;
+    private final RollingExtreme highest;
+    private final RollingExtreme lowest;
+    private final RollingWindow d;
+    private double k = Double.NaN;
+    private long lastCloseTime = -1;
+
+
+    public Stochastic() {
+        this(14, 3, 80, 20);
+    }
+
+    public Stochastic(int kPeriod, int dPeriod, double overbought, double oversold) {
+        super("Stochastic");
+        this.kPeriod = kPeriod;
+        this.dPeriod = dPeriod;
+        this.overbought = overbought;
+        this.oversold = oversold;
+        this.highest = RollingExtreme.highest(kPeriod);
+        this.lowest = RollingExtreme.lowest(kPeriod);
+        this.d = new RollingWindow(dPeriod);
+    }
+
+    @Override
+    public void update(Candlestick candle) {
+        if (candle.getCloseTime() < lastCloseTime) return;
+        boolean replace = candle.getCloseTime() == lastCloseTime;
+
+        if (replace) {
+            highest.replaceLast(candle.getHigh());
+            lowest.replaceLast(candle.getLow());
+        } else {
+            highest.add(candle.getHigh());
+            lowest.add(candle.getLow());
+        }
+
+        lastCloseTime = candle.getCloseTime();
+        if (!highest.isFull()) return;
+
+        double range = highest.get() - lowest.get();
+        k = range == 0 ? 50 : 100 * (candle.getClose() - lowest.get()) / range;
+
+        // %K is only added once the window is full, which replacing doesn't change
+        if (replace && d.getCount() > 0) d.replaceLast(k);
+        else d.add(k);
+    }
+
+    @Override
+    public void warmUp(Candlestick candle) {
+        update(candle);
+    }
+
+    /** @return %K */
+    @Override
+    public double getValue() {
+        return k;
+    }
+
+    /** Overbought & oversold only change the signal */
+    @Override
+    public String getCacheKey() {
+        return "Stochastic(" + kPeriod + "," + dPeriod + ")";
+    }
+
+    @Override
+    public Signal getSignal() {
+        if (!isReady()) return Signal.HOLD;
+        double d = getD();
+        if (k < oversold && k > d) return Signal.BUY;
+        if (k > overbought && k < d) return Signal.SELL;
+        return Signal.HOLD;
+    }
+
+    /** @return %K, or NaN if there are less than kPeriod candles */
+    public double getK() {
+        return k;
+    }
+
+    /** @return %D, or NaN until {@link #isReady()} */
+    public double getD() {
+        return isReady() ? d.getMean() : Double.NaN;
+    }
+
+    /** @return If %D is ready, after kPeriod + dPeriod - 1 candles */
+    public boolean isReady() {
+        return d.isFull();
+    }
+
+    public int getKPeriod() {
+        return kPeriod;
+    }
+
+    public int getDPeriod() {
+        return dPeriod;
+    }
+}
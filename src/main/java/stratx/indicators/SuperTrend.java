@@ -0,0 +1,120 @@
+package stratx.indicators;
+
+import stratx.utils.Candlestick;
+import stratx.utils.Signal;
+
+/** SuperTrend, bands multiplier ATRs around hl2 that only tighten while the trend holds
+ * (Same values as TradingView's ta.supertrend), O(1) per candle.
+ * Starts in a downtrend on the first candle with an ATR, & flips when the close crosses the band on the other side.
+ * The ATR is an input (See {@link IndicatorGraph}), shared with an identical ATR.
+ * Signals BUY in an uptrend, SELL in a downtrend. */
+public class SuperTrend extends Indicator {
+    private final int atrPeriod;
+    private final double multiplier;
+    private boolean ready = false;
+    private double lowerBand;
+    private double upperBand;
+    /** 1 for an uptrend, -1 for a downtrend (TradingView's direction, negated) */
+    private int trend = -1;
+    // Before the latest candle, to replace the latest candle
+    private boolean previousReady = false;
+    private double previousLowerBand;
+    private double previousUpperBand;
+    private int previousTrend = -1;
+    private double previousClose = Double.NaN;
+    private double lastClose = Double.NaN;
+    private long lastCloseTime = -1;
+
+
+    public SuperTrend() {
+        this(10, 3);
+    }
+
+    public SuperTrend(int atrPeriod, double multiplier) {
+        super("SuperTrend");
+        this.atrPeriod = atrPeriod;
+        this.multiplier = multiplier;
+        addInput(new ATR(atrPeriod));
+    }
+
+    @Override
+    public void update(Candlestick candle) {
+        if (candle.getCloseTime() < lastCloseTime) return;
+
+        if (candle.getCloseTime() != lastCloseTime) {
+            previousReady = ready;
+            previousLowerBand = lowerBand;
+            previousUpperBand = upperBand;
+            previousTrend = trend;
+            previousClose = lastClose;
+        }
+
+        lastCloseTime = candle.getCloseTime();
+        lastClose = candle.getClose();
+
+        double atr = getInput(0).getValue();
+        ready = !Double.isNaN(atr);
+        if (!ready) return;
+
+        double middle = (candle.getHigh() + candle.getLow()) / 2;
+        double lower = middle - multiplier * atr;
+        double upper = middle + multiplier * atr;
+
+        if (previousReady) {
+            if (previousClose >= previousLowerBand) lower = Math.max(lower, previousLowerBand);
+            if (previousClose <= previousUpperBand) upper = Math.min(upper, previousUpperBand);
+
+            // Against the bands of this candle, after they tightened
+            if (previousTrend == -1) trend = lastClose > upper ? 1 : -1;
+            else trend = lastClose < lower ? -1 : 1;
+        } else {
+            trend = -1; // Starts in a downtrend, like TradingView
+        }
+
+        lowerBand = lower;
+        upperBand = upper;
+    }
+
+    @Override
+    public void warmUp(Candlestick candle) {
+        update(candle);
+    }
+
+    @Override
+    public double getValue() {
+        return ready ? getSuperTrend() : Double.NaN;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return "SuperTrend(" + getInput(0).getCacheKey() + "," + multiplier + ")";
+    }
+
+    @Override
+    public Signal getSignal() {
+        if (!ready) return Signal.HOLD;
+        return trend == 1 ? Signal.BUY : Signal.SELL;
+    }
+
+    /** @return The active band, the lower one in an uptrend & the upper one in a downtrend, or NaN if the ATR isn't ready */
+    public double getSuperTrend() {
+        if (!ready) return Double.NaN;
+        return trend == 1 ? lowerBand : upperBand;
+    }
+
+    public boolean isUptrend() {
+        return trend == 1;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getAtrPeriod() {
+        return atrPeriod;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+}
@@ -0,0 +1,93 @@
+package stratx.indicators;
+
+import stratx.utils.Candlestick;
+import stratx.utils.Signal;
+
+/** Volume weighted average price of the typical price (hlc3), anchored to sessions
+ * that restart every anchor period (Daily by default, in UTC like the exchange's candles). O(1) per candle.
+ * Signals BUY while the close is above the VWAP, SELL while below. */
+public class VWAP extends Indicator {
+    public static final long DAY_MS = 24 * 60 * 60 * 1000L;
+    private final long anchorMs;
+    private double priceVolume = 0;
+    private double volume = 0;
+    private long session = Long.MIN_VALUE;
+    // Before the latest candle, to replace the latest candle
+    private double previousPriceVolume = 0;
+    private double previousVolume = 0;
+    private long previousSession = Long.MIN_VALUE;
+    private long lastCloseTime = -1;
+    private double lastClose;
+    private double lastTypical = Double.NaN;
+
+
+    public VWAP() {
+        this(DAY_MS);
+    }
+
+    /** @param anchorMs Length of a session, e.g. {@link #DAY_MS} */
+    public VWAP(long anchorMs) {
+        super("VWAP");
+        if (anchorMs <= 0) throw new IllegalArgumentException("Anchor period must be greater than 0");
+        this.anchorMs = anchorMs;
+    }
+
+    @Override
+    public void update(Candlestick candle) {
+        if (candle.getCloseTime() < lastCloseTime) return;
+
+        if (candle.getCloseTime() == lastCloseTime) {
+            priceVolume = previousPriceVolume;
+            volume = previousVolume;
+        } else {
+            previousPriceVolume = priceVolume;
+            previousVolume = volume;
+            previousSession = session;
+        }
+
+        session = Math.floorDiv(candle.getCloseTime(), anchorMs);
+        if (session != previousSession) { // New session
+            priceVolume = 0;
+            volume = 0;
+        }
+
+        lastTypical = (candle.getHigh() + candle.getLow() + candle.getClose()) / 3.0;
+        priceVolume += lastTypical * candle.getVolume();
+        volume += candle.getVolume();
+        lastCloseTime = candle.getCloseTime();
+        lastClose = candle.getClose();
+    }
+
+    @Override
+    public void warmUp(Candlestick candle) {
+        update(candle);
+    }
+
+    @Override
+    public double getValue() {
+        return getVWAP();
+    }
+
+    @Override
+    public String getCacheKey() {
+        return "VWAP(" + anchorMs + ")";
+    }
+
+    @Override
+    public Signal getSignal() {
+        double vwap = getVWAP();
+        if (Double.isNaN(vwap)) return Signal.HOLD;
+        if (lastClose > vwap) return Signal.BUY;
+        if (lastClose < vwap) return Signal.SELL;
+        return Signal.HOLD;
+    }
+
+    /** @return The session's VWAP, the typical price while the session has no volume, or NaN before the first candle */
+    public double getVWAP() {
+        return volume == 0 ? lastTypical : priceVolume / volume;
+    }
+
+    public long getAnchorMs() {
+        return anchorMs;
+    }
+}
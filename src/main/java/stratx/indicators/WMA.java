@@ -1,65 +1,153 @@
 package stratx.indicators;
 
-import org.jfree.data.xy.XYSeries;
-import stratx.StratX;
+import stratx.utils.CandleSeries;
 import stratx.utils.Candlestick;
-import stratx.utils.Configuration;
-import stratx.utils.PriceHistory;
 import stratx.utils.Signal;
 
-import java.awt.*;
-
+/** Weighted moving average, the newest close has weight period, the oldest 1.
+ * Kept up to date in O(1) per candle with a running sum & weighted sum. */
 public class WMA extends Indicator {
+    /** Recompute the sums from the history this often, so floating point error can't build up */
+    private static final int RECOMPUTE_EVERY = 1000;
     private final int period;
-    private XYSeries wmaLine;
+    private final double denominator;
 
-    private boolean SHOW_ON_CHART = true;
-    private Color COLOR = new Color(0xFFBF41);
-    private float LINE_WIDTH = 2.0F;
+    private double sum = 0;
+    private double weightedSum = 0;
+    private double value = Double.NaN;
+    private long lastCloseTime = -1;
+    private double lastClose = 0;
+    private int sinceRecompute = 0;
 
 
     public WMA(int period) {
         super("WMA");
         this.period = period;
-        this.priceHistory = new PriceHistory(period);
-        this.loadSettings();
+        this.denominator = period * (period + 1) / 2.0;
     }
 
     @Override
     public void update(Candlestick candle) {
-        priceHistory.add(candle);
+        if (isPrecomputed()) {
+            value = nextPrecomputed(candle);
+            lastClose = candle.getClose();
+        } else advance();
+    }
+
+    @Override
+    public void warmUp(Candlestick candle) {
+        advance();
+    }
+
+    /** Slide the window by the newest candle in the history */
+    private void advance() {
+        if (!hasHistory(period)) {
+            value = Double.NaN;
+            lastCloseTime = -1;
+            return;
+        }
+
+        int length = priceHistory.length();
+        long latest = priceHistory.getLatestCloseTime();
+        boolean oneNewCandle = lastCloseTime != -1 && length > period && latest > lastCloseTime
+                && priceHistory.closeTimeAt(length - 2) == lastCloseTime && priceHistory.closeAt(length - 2) == lastClose;
+
+        if (oneNewCandle && ++sinceRecompute < RECOMPUTE_EVERY) {
+            double added = priceHistory.closeAt(length - 1);
+            double evicted = priceHistory.closeAt(length - 1 - period);
+            weightedSum += period * added - sum; // Every weight drops by 1, the evicted close to 0
+            sum += added - evicted;
+        } else {
+            recompute(); // First window, a replaced candle, or time to limit drift
+        }
+
+        lastCloseTime = latest;
+        lastClose = priceHistory.closeAt(length - 1);
+        value = weightedSum / denominator;
+    }
+
+    private void recompute() {
+        int start = priceHistory.length() - period;
+        sum = 0;
+        weightedSum = 0;
+
+        for (int i = 0; i < period; i++) {
+            double close = priceHistory.closeAt(start + i);
+            sum += close;
+            weightedSum += close * (i + 1);
+        }
+
+        sinceRecompute = 0;
+    }
+
+    /** Same sliding sums & recompute schedule as the candle by candle updates, so the values are identical */
+    @Override
+    public double[] computeAll(CandleSeries series) {
+        double[] values = new double[series.size()];
+        double sum = 0;
+        double weightedSum = 0;
+        int sinceRecompute = 0;
+
+        for (int i = 0; i < values.length; i++) {
+            if (i < period - 1) {
+                values[i] = Double.NaN;
+                continue;
+            }
+
+            if (i == period - 1 || ++sinceRecompute >= RECOMPUTE_EVERY) {
+                int start = i - period + 1;
+                sum = 0;
+                weightedSum = 0;
+
+                for (int j = 0; j < period; j++) {
+                    double close = series.getClose(start + j);
+                    sum += close;
+                    weightedSum += close * (j + 1);
+                }
 
-        if (StratX.getCurrentMode().isShowGUI() && SHOW_ON_CHART && priceHistory.length() >= period) {
-            if (wmaLine == null) wmaLine = StratX.getCurrentMode().getGUI().getCandlestickChart().addEMALine(COLOR, LINE_WIDTH);
-            else wmaLine.add(candle.getCloseTime(), getWMA());
+                sinceRecompute = 0;
+            } else {
+                double added = series.getClose(i);
+                weightedSum += period * added - sum;
+                sum += added - series.getClose(i - period);
+            }
+
+            values[i] = weightedSum / denominator;
         }
+
+        return values;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return "WMA(" + period + ")";
+    }
+
+    @Override
+    public double getValue() {
+        return value;
     }
 
     @Override
     public Signal getSignal() {
-        double current = StratX.getCurrentMode().getCurrentPrice();
-        double wma = getWMA();
-        if (wma == -1) return Signal.HOLD;
-        if (wma > current) return Signal.SELL;
-        if (wma < current) return Signal.BUY;
+        if (Double.isNaN(value)) return Signal.HOLD;
+        if (value > lastClose) return Signal.SELL;
+        if (value < lastClose) return Signal.BUY;
         return Signal.HOLD;
     }
 
-    private double getWMA() {
-        if (priceHistory.length() < period) return -1;
-        double sum = 0;
-        double denom = 0;
-        for (int i = 0; i < period; i++) {
-            sum += priceHistory.get(i).getClose() * ((i + 1) / (double) period);
-            denom += ((i + 1) / (double) period);
-        }
-        return sum / denom;
+    /** @return The WMA of the latest period closes, or NaN if there aren't enough candles yet */
+    public double getWMA() {
+        return value;
+    }
+
+    /** One more than the period, the close leaving the window is still needed */
+    @Override
+    public int getLookback() {
+        return period + 1;
     }
 
-    public void loadSettings() {
-        Configuration config = StratX.getConfig();
-        SHOW_ON_CHART = config.getBoolean("indicators.wma.show-on-chart", SHOW_ON_CHART);
-        COLOR = config.getColor("indicators.wma.color", COLOR);
-        LINE_WIDTH = (float) config.getDouble("indicators.wma.line-width", LINE_WIDTH);
+    public int getPeriod() {
+        return period;
     }
 }
@@ -1,23 +1,43 @@
 package stratx.modes;
 
+import com.binance.api.client.domain.market.CandlestickInterval;
 import stratx.Loader;
 import stratx.StratX;
 import stratx.gui.Gui;
 import stratx.gui.GuiTheme;
+import stratx.gui.indicators.IndicatorCharts;
+import stratx.indicators.IndicatorCache;
 import stratx.strategies.Strategy;
+import stratx.utils.CandleSeries;
+import stratx.utils.CandleSource;
 import stratx.utils.Candlestick;
 import stratx.utils.CurrencyPair;
+import stratx.utils.DataCatalog;
 import stratx.utils.MathUtils;
+import stratx.utils.Resampler;
+import stratx.utils.Utils;
 
 import javax.swing.*;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 
 public class BackTest extends Mode {
     private String PRICE_DATA;
-    private List<Candlestick> data;
+    /** Null when streaming the price data from the file */
+    private CandleSeries data;
+    /** Read candles from the file as the test runs instead of loading them all first */
+    private final boolean STREAMING = StratX.getConfig().getBoolean("backtest.streaming", false);
+    /** Resample the price data to this interval before testing, null to test on the file's own interval */
+    private final CandlestickInterval RESAMPLE_INTERVAL = readResampleInterval();
+    /** Keep resampled price data on disk, so it is only built once */
+    private final boolean CACHE_RESAMPLED = StratX.getConfig().getBoolean("backtest.cache-resampled", true);
+    /** Compute the indicators over the whole price data before the test, instead of candle by candle */
+    private final boolean PRECOMPUTE_INDICATORS = StratX.getConfig().getBoolean("backtest.precompute-indicators", true);
+    /** Identifies the loaded price data in the indicator cache */
+    private String datasetId;
 
 
     public BackTest(Strategy strategy) {
@@ -25,15 +45,57 @@ public class BackTest extends Mode {
         showFilePickerGui();
     }
 
+    /** Backtest only the candles closing within [fromTime, toTime] of the file,
+     * without the file picker. Call {@link #begin()} to run it.
+     * @throws IllegalArgumentException If no candles close within the range */
+    public BackTest(Strategy strategy, File priceData, long fromTime, long toTime) {
+        super(Type.BACKTEST, strategy, null);
+        setup(priceData.getAbsolutePath(), fromTime, toTime);
+    }
+
+    /** @return The backtest.resample-interval, null if it is not set */
+    private static CandlestickInterval readResampleInterval() {
+        Object value = StratX.getConfig().get("backtest.resample-interval");
+        if (value == null || value.toString().trim().isEmpty()) return null;
+
+        CandlestickInterval interval = Downloader.parseInterval(value.toString().trim());
+        if (interval == null) { // Don't quietly test on the file's own interval instead
+            StratX.warn("Unknown backtest.resample-interval '{}' (e.g. 5m, 1h, 1d), exiting..", value);
+            System.exit(1);
+        }
+
+        return interval;
+    }
+
     private void setup(String priceDataFile) {
+        setup(priceDataFile, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    private void setup(String priceDataFile, long fromTime, long toTime) {
         this.PRICE_DATA = priceDataFile;
-        this.setCoin(new CurrencyPair(PRICE_DATA.substring(PRICE_DATA.lastIndexOf('\\') + 1).split("_")[0]));
-        this.loadData(this.PRICE_DATA); // Load the price data in
+        this.setCoin(new CurrencyPair(new File(PRICE_DATA).getName().split("_")[0]));
+        this.loadData(this.PRICE_DATA, fromTime, toTime); // Load the price data in
     }
 
-    private void loadData(String file) {
+    private void loadData(String file, long fromTime, long toTime) {
         long start = System.currentTimeMillis();
-        data = Loader.loadData(file);
+        File dataFile = new File(file);
+        datasetId = dataFile.getAbsolutePath() + "|" + dataFile.length() + "|" + dataFile.lastModified() + "|" + fromTime + "-" + toTime
+                + "|" + (RESAMPLE_INTERVAL == null ? "" : RESAMPLE_INTERVAL.getIntervalId());
+        boolean fullFile = fromTime == Long.MIN_VALUE && toTime == Long.MAX_VALUE;
+
+        if (STREAMING && fullFile) {
+            data = null;
+            LOGGER.info("Streaming price data from {}{}", file, RESAMPLE_INTERVAL == null ? "" : " resampled to " + RESAMPLE_INTERVAL.getIntervalId());
+            return;
+        }
+
+        if (RESAMPLE_INTERVAL == null) data = fullFile ? Loader.loadSeries(file) : Loader.loadRange(new File(file), fromTime, toTime);
+        else if (fullFile) data = Loader.loadResampled(new File(file), RESAMPLE_INTERVAL, CACHE_RESAMPLED);
+        else data = Resampler.resample(Loader.loadRange(new File(file), fromTime, toTime), RESAMPLE_INTERVAL);
+
+        if (data.size() == 0 && !fullFile) // Walk-forward loops skip empty windows instead of ending the run
+            throw new IllegalArgumentException("No price data in " + dataFile.getName() + " between " + fromTime + " and " + toTime);
 
         if (data.size() == 0) {
             StratX.warn("Failed to load price data, exiting..");
@@ -43,27 +105,60 @@ public class BackTest extends Mode {
         LOGGER.info("Loader has successfully loaded {} data points in {}ms", MathUtils.COMMAS.format(data.size()), System.currentTimeMillis() - start);
     }
 
+    /** The price data's interval, from the loaded candles or the file name when streaming */
+    @Override
+    protected long getCandleIntervalMs() {
+        if (RESAMPLE_INTERVAL != null) return Utils.binanceIntervalToMs(RESAMPLE_INTERVAL);
+        if (data != null) return data.getIntervalMs();
+
+        String[] parts = new File(PRICE_DATA).getName().split("_");
+        CandlestickInterval interval = parts.length >= 3 ? Downloader.parseInterval(parts[1]) : null;
+        return interval == null ? 0 : Utils.binanceIntervalToMs(interval);
+    }
+
     @Override
     protected void start() {
         if (SHOW_GUI) {
             GUI = new Gui("StratX Backtest", 1800, 900, false);
             GUI.setIcon("/icon.png");
             GUI.addCandlestickChart(this.getCoin().toString());
+            IndicatorCharts.bind(strategy, GUI.getCandlestickChart());
         }
 
-        StratX.trace(PRICE_DATA.substring(PRICE_DATA.lastIndexOf('\\') + 1));
-        StratX.trace("Starting backtest at {} ({}) on {} candles...", new Date(), System.currentTimeMillis(), data.size());
-        StratX.trace("Starting balance: ${}", MathUtils.COMMAS.format(STARTING_BALANCE));
+        if (PRECOMPUTE_INDICATORS && data != null) {
+            long start = System.currentTimeMillis();
+            IndicatorCache cache = IndicatorCache.getShared();
+            long hits = cache.getHits();
+            int precomputed = strategy.precompute(data, datasetId, cache);
+            LOGGER.info("Precomputed {} of {} indicators in {}ms ({} cached)", precomputed, strategy.getIndicators().size(), System.currentTimeMillis() - start, cache.getHits() - hits);
+        }
+
+        try (CandleSource source = data != null ? CandleSource.of(data) : openStream()) {
+            if (!source.hasNext()) { // A streamed file is only read now
+                StratX.warn("Failed to load price data, exiting..");
+                System.exit(1);
+            }
+
+            StratX.trace(new File(PRICE_DATA).getName());
+            StratX.trace("Starting backtest at {} ({}) on {} candles...", new Date(), System.currentTimeMillis(), data == null ? "streamed" : data.size());
+            StratX.trace("Starting balance: ${}", MathUtils.COMMAS.format(STARTING_BALANCE));
 
-        LOGGER.info("Running test with a starting balance of ${}\n\n", MathUtils.COMMAS.format(STARTING_BALANCE));
-        LOGGER.info("-- Begin --");
+            LOGGER.info("Running test with a starting balance of ${}\n\n", MathUtils.COMMAS.format(STARTING_BALANCE));
+            LOGGER.info("-- Begin --");
 
-        for (Candlestick candle : data) {
-            this.currentCandle = candle;
-            lastPrice = candle.getUnmodifiedClose();
-            this.onPriceUpdate(previousCandle == null ? candle.getClose() : previousCandle.getClose(), candle.getClose());
-            this.onCandleClose(candle);
-            this.previousCandle = candle;
+            while (source.hasNext()) {
+                Candlestick candle = source.next();
+                this.currentCandle = candle;
+                lastPrice = candle.getUnmodifiedClose();
+                this.onPriceUpdate(previousCandle == null ? candle.getClose() : previousCandle.getClose(), candle.getClose());
+                this.onCandleClose(candle);
+                this.previousCandle = candle;
+            }
+
+            if (data == null) LOGGER.info("Streamed {} data points", MathUtils.COMMAS.format(source.getRead()));
+        } catch (IOException | UncheckedIOException e) { // Streamed files can fail part way through
+            LOGGER.error("Error while reading price data, exiting..", e);
+            System.exit(1);
         }
 
         LOGGER.info("-- End --");
@@ -77,6 +172,11 @@ public class BackTest extends Mode {
         }
     }
 
+    private CandleSource openStream() {
+        CandleSource source = Loader.stream(new File(PRICE_DATA));
+        return RESAMPLE_INTERVAL == null ? source : new Resampler(source, RESAMPLE_INTERVAL);
+    }
+
     @Override
     protected void onPriceUpdate(double prevPrice, double newPrice) {
         this.checkTakeProfitStopLoss();
@@ -113,17 +213,18 @@ public class BackTest extends Mode {
     }
 
     private ArrayList<File> getValidFiles() {
-        File[] files = new File(StratX.DATA_FOLDER + "\\downloader\\").listFiles();
+        DataCatalog catalog = new DataCatalog(new File(StratX.DATA_FOLDER + "\\downloader\\"));
+        catalog.refresh();
+
+        ArrayList<File> validFiles = new ArrayList<>();
+        for (DataCatalog.Entry entry : catalog.getEntries())
+            validFiles.add(entry.getFile());
 
-        if (files == null || files.length == 0) {
+        if (validFiles.isEmpty()) {
             StratX.getLogger().error("No files found in {}, download them using the downloader mode!", StratX.DATA_FOLDER + "\\downloader\\");
             System.exit(1);
         }
 
-        List<File> validFiles = new ArrayList<>();
-        for (File file : files)
-            if (file.getName().endsWith(".strx")) validFiles.add(file);
-
-        return new ArrayList<>(validFiles);
+        return validFiles;
     }
 }
@@ -0,0 +1,173 @@
+package stratx.modes;
+
+import com.binance.api.client.BinanceApiClientFactory;
+import com.binance.api.client.BinanceApiRestClient;
+import com.binance.api.client.domain.market.CandlestickInterval;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import stratx.utils.Configuration;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Headless downloader driven by a YAML manifest (See config/downloads.yml).
+ * Every job is a symbol x interval x date range. Symbols are downloaded in parallel,
+ * the intervals of one symbol one after another. All downloaders share one rate limiter. */
+public class BatchDownloader {
+    private final Logger LOGGER = LogManager.getLogger("BATCH DOWNLOADER");
+    private final BinanceApiRestClient CLIENT;
+    private final Configuration MANIFEST;
+    /** How many symbols are downloaded at once */
+    private final int PARALLEL_SYMBOLS;
+    /** Append to the latest existing file of a symbol & interval instead of downloading it again */
+    private final boolean UPDATE;
+
+
+    public BatchDownloader(Configuration manifest) {
+        this(manifest, BinanceApiClientFactory.newInstance().newRestClient());
+    }
+
+    public BatchDownloader(Configuration manifest, BinanceApiRestClient client) {
+        this.CLIENT = client;
+        this.MANIFEST = manifest;
+        this.PARALLEL_SYMBOLS = Math.max(1, manifest.getInt("parallel-symbols", 2));
+        this.UPDATE = manifest.getBoolean("update", true);
+    }
+
+    /** Run every job in the manifest, blocks until all are done
+     * @return The amount of jobs which failed */
+    public int run() {
+        Map<String, List<Job>> jobs = readJobs();
+        if (jobs.isEmpty()) {
+            LOGGER.warn("No jobs in the download manifest");
+            return 0;
+        }
+
+        int total = jobs.values().stream().mapToInt(List::size).sum();
+        LOGGER.info("Starting {} download jobs for {} symbols, {} symbols at a time", total, jobs.size(), PARALLEL_SYMBOLS);
+
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(PARALLEL_SYMBOLS, jobs.size()));
+        AtomicInteger failed = new AtomicInteger();
+        AtomicLong candles = new AtomicLong();
+        long started = System.currentTimeMillis();
+
+        for (List<Job> symbolJobs : jobs.values()) {
+            workers.submit(() -> {
+                Downloader downloader = new Downloader(CLIENT);
+                for (Job job : symbolJobs) {
+                    try {
+                        candles.addAndGet(job.run(downloader));
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        LOGGER.error("Job {} failed", job, e);
+                    }
+                }
+            });
+        }
+
+        workers.shutdown();
+        try {
+            while (!workers.awaitTermination(1, TimeUnit.MINUTES))
+                LOGGER.info("Still downloading, {} candles so far..", String.format("%,d", candles.get()));
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        double seconds = Math.max(System.currentTimeMillis() - started, 1) / 1000.0;
+        LOGGER.info("Finished {}/{} jobs, {} candles in {}s ({} candles/s)", total - failed.get(), total,
+                String.format("%,d", candles.get()), String.format("%.1f", seconds), String.format("%,.0f", candles.get() / seconds));
+        return failed.get();
+    }
+
+    /** @return The jobs grouped by symbol, in manifest order */
+    @SuppressWarnings("unchecked")
+    private Map<String, List<Job>> readJobs() {
+        Map<String, List<Job>> jobs = new LinkedHashMap<>();
+        Object list = MANIFEST.get("jobs");
+        if (!(list instanceof List)) return jobs;
+
+        for (Object entry : (List<Object>) list) {
+            if (!(entry instanceof Map)) continue;
+            Map<String, Object> map = (Map<String, Object>) entry;
+
+            try {
+                long startTime = parseTime(map.get("start"));
+                long endTime = map.containsKey("end") ? parseTime(map.get("end")) : System.currentTimeMillis();
+                if (startTime >= endTime) throw new IllegalArgumentException("Start must be before end");
+
+                for (String symbol : asList(map.get("symbols"))) {
+                    for (String intervalId : asList(map.get("intervals"))) {
+                        CandlestickInterval interval = Downloader.parseInterval(intervalId);
+                        if (interval == null) throw new IllegalArgumentException("Unknown interval: " + intervalId);
+                        jobs.computeIfAbsent(symbol.toUpperCase(), k -> new ArrayList<>())
+                                .add(new Job(symbol.toUpperCase(), interval, startTime, endTime));
+                    }
+                }
+            } catch (Exception e) {
+                LOGGER.error("Skipping invalid manifest entry {}: {}", entry, e.getMessage());
+            }
+        }
+
+        return jobs;
+    }
+
+    /** A single value or a list */
+    private static List<String> asList(Object value) {
+        List<String> list = new ArrayList<>();
+        if (value instanceof List) for (Object o : (List<?>) value) list.add(String.valueOf(o));
+        else if (value != null) list.add(String.valueOf(value));
+        return list;
+    }
+
+    /** Dates are yyyy-MM-dd (Parsed by SnakeYAML as UTC midnight), "now" or epoch millis */
+    private static long parseTime(Object value) {
+        if (value instanceof Date) return ((Date) value).getTime();
+        if (value instanceof Number) return ((Number) value).longValue();
+        if (value == null) throw new IllegalArgumentException("Missing start date");
+        if ("now".equalsIgnoreCase(value.toString())) return System.currentTimeMillis();
+        return LocalDate.parse(value.toString()).atStartOfDay(ZoneId.of("UTC")).toInstant().toEpochMilli();
+    }
+
+    private final class Job {
+        private final String symbol;
+        private final CandlestickInterval interval;
+        private final long startTime;
+        private final long endTime;
+
+        Job(String symbol, CandlestickInterval interval, long startTime, long endTime) {
+            this.symbol = symbol;
+            this.interval = interval;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        /** @return The amount of candles downloaded */
+        long run(Downloader downloader) throws Exception {
+            long started = System.currentTimeMillis();
+            File existing = UPDATE ? downloader.findExisting(symbol, interval) : null;
+            long candles = existing != null ? downloader.update(existing, endTime) : downloader.download(symbol, startTime, endTime, interval);
+
+            double seconds = Math.max(System.currentTimeMillis() - started, 1) / 1000.0;
+            LOGGER.info("{}: {} {} candles in {}s ({} candles/s)", this, existing != null ? "appended" : "downloaded",
+                    String.format("%,d", candles), String.format("%.1f", seconds), String.format("%,.0f", candles / seconds));
+            return candles;
+        }
+
+        @Override
+        public String toString() {
+            return symbol + " " + interval.getIntervalId();
+        }
+    }
+}
@@ -12,36 +12,71 @@ import stratx.gui.Gui;
 import stratx.gui.GuiTheme;
 import stratx.utils.Configuration;
 import stratx.utils.MathUtils;
+import stratx.utils.RateLimiter;
+import stratx.utils.StrxFormat;
+import stratx.utils.StrxWriter;
 import stratx.utils.Utils;
 
 import javax.swing.*;
-import java.io.BufferedOutputStream;
-import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @SuppressWarnings("FieldCanBeLocal")
 public class Downloader {
-    private final BinanceApiRestClient CLIENT = BinanceApiClientFactory.newInstance().newRestClient(); // No credentials needed
+    private final BinanceApiRestClient CLIENT;
     private final int MAX_CANDLES_PER_REQUEST = 1000; // Binance limitation
+    /** Request weight of a klines request, counted against the per minute limit */
+    private final int KLINES_WEIGHT = 2;
+    private final int MAX_RETRIES = 3;
     private final String DATA_FOLDER = StratX.DATA_FOLDER + "downloader\\";
     private final Configuration CONFIG = new Configuration("\\config\\config.yml");
-    private final int BREAK_SECONDS = CONFIG.getInt("downloader.break-seconds", 3);
+    /** How many requests are fetched at once */
+    private final int THREADS = Math.max(1, CONFIG.getInt("downloader.threads", 4));
+    /** The request weight limit is per IP, so every downloader shares one limiter */
+    private static RateLimiter SHARED_RATE_LIMITER;
+    private final RateLimiter RATE_LIMITER;
+    /** Write compressed (v2) files instead of raw records (v1) */
+    private final boolean COMPRESS = CONFIG.getBoolean("downloader.compress", true);
     private final Logger LOGGER = LogManager.getLogger("DOWNLOADER");
 
     private boolean downloading = false;
+    /** Of the latest download or update */
+    private GapReport report = null;
     private JButton downloadButton;
+    private JButton updateButton;
     private JTextArea console;
 
 
+    public Downloader() {
+        this(BinanceApiClientFactory.newInstance().newRestClient()); // No credentials needed
+    }
+
+    public Downloader(BinanceApiRestClient client) {
+        this.CLIENT = client;
+
+        synchronized (Downloader.class) {
+            if (SHARED_RATE_LIMITER == null) SHARED_RATE_LIMITER = new RateLimiter(CONFIG.getInt("downloader.weight-per-minute", 1000));
+            this.RATE_LIMITER = SHARED_RATE_LIMITER;
+        }
+    }
+
+    /** With its own rate limiter instead of the shared one (e.g. a stand-in client) */
+    Downloader(BinanceApiRestClient client, RateLimiter rateLimiter) {
+        this.CLIENT = client;
+        this.RATE_LIMITER = rateLimiter;
+    }
+
     public void run() {
         Gui newGui = new Gui("StratX Downloader", 450, 600, false);
         newGui.setCloseOperation(WindowConstants.EXIT_ON_CLOSE);
@@ -56,12 +91,15 @@ public class Downloader {
         newGui.addPaddingY(20);
 
         downloadButton = newGui.addButton("Download", GuiTheme.INFO_COLOR, GuiTheme.TEXT_COLOR, null, 10);
+        newGui.addPaddingY(5);
+        updateButton = newGui.addButton("Update Existing", GuiTheme.INFO_COLOR, GuiTheme.TEXT_COLOR, null, 10);
         newGui.addPaddingY(10);
         console = newGui.addConsoleLog(150);
 
         downloadButton.addActionListener(e -> {
             console.setText("");
             downloadButton.setEnabled(false);
+            updateButton.setEnabled(false);
 
             String symbol = symbolField.getText();
             long startTime = localDateToEpoch(startDatePicker.getDate());
@@ -74,8 +112,32 @@ public class Downloader {
                 } catch (Exception ex) {
                     log("ERROR: Caught exception during download: %s", ex);
                     LOGGER.error("ERROR: Caught exception during download: ", ex);
-                    downloading = false;
-                    downloadButton.setEnabled(true);
+                }
+            }).start();
+        });
+
+        updateButton.addActionListener(e -> {
+            console.setText("");
+
+            String symbol = symbolField.getText();
+            long endTime = localDateToEpoch(endDatePicker.getDate());
+            CandlestickInterval interval = (CandlestickInterval) intervalBox.getSelectedItem();
+            File existing = findExisting(symbol, interval);
+
+            if (existing == null) {
+                log("No existing %s %s file to update", symbol, interval.getIntervalId());
+                return;
+            }
+
+            downloadButton.setEnabled(false);
+            updateButton.setEnabled(false);
+
+            new Thread(() -> {
+                try {
+                    update(existing, endTime);
+                } catch (Exception ex) {
+                    log("ERROR: Caught exception during update: %s", ex);
+                    LOGGER.error("ERROR: Caught exception during update: ", ex);
                 }
             }).start();
         });
@@ -107,76 +169,223 @@ public class Downloader {
         throw new IOException("Failed to create data file: " + dataFile.getAbsolutePath());
     }
 
-    public void download(String symbol, final long startTime, final long endTime, CandlestickInterval interval) throws IOException {
+    /** @return The amount of candles downloaded */
+    public int download(String symbol, final long startTime, final long endTime, CandlestickInterval interval) throws IOException {
         if (downloading) throw new IllegalStateException("Already downloading");
         downloading = true;
 
-        int totalCandles = (int) ((endTime - startTime) / Utils.binanceIntervalToMs(interval));
-        int numRequests = MathUtils.clampInt(totalCandles / MAX_CANDLES_PER_REQUEST, 1, Integer.MAX_VALUE);
+        try {
+            if (!isValidSymbol(symbol)) {
+                log("ERROR: Invalid symbol: " + symbol);
+                throw new IllegalArgumentException("Invalid symbol: " + symbol);
+            }
+
+            String fileName = createFile(symbol, interval, startTime);
+            int version = COMPRESS ? StrxFormat.VERSION_2 : StrxFormat.VERSION_1;
+            GapReport report = this.report = new GapReport(interval);
 
-        if (!isValidSymbol(symbol)) {
-            log("ERROR: Invalid symbol: " + symbol);
-            throw new IllegalArgumentException("Invalid symbol: " + symbol);
+            int written;
+            try (StrxWriter output = StrxWriter.create(new File(fileName), version, startTime, closedUntil(endTime))) {
+                transfer(symbol, interval, startTime, endTime, output, report);
+                written = output.getWritten();
+            }
+
+            report.print();
+            log("Download complete!");
+            return written;
+        } finally {
+            downloading = false;
+            if (downloadButton != null) downloadButton.setEnabled(true);
+            if (updateButton != null) updateButton.setEnabled(true);
         }
+    }
 
-        String fileName = createFile(symbol, interval, startTime);
-        log("Downloading %s on %s interval (%s candlesticks/%s requests)..", symbol, interval.getIntervalId(), MathUtils.COMMAS.format(totalCandles), numRequests);
+    /** Append the candles closing after the last one in an existing file, up to the end time.
+     * Also resumes an interrupted download. The file is only replaced once every
+     * candle was written, if anything fails it is left as it was.
+     * @return The amount of candles appended */
+    public int update(File file, final long endTime) throws IOException {
+        if (downloading) throw new IllegalStateException("Already downloading");
+        downloading = true;
+
+        try {
+            String[] parts = file.getName().split("_");
+            CandlestickInterval interval = parts.length >= 3 ? parseInterval(parts[1]) : null;
+            if (interval == null) throw new IllegalArgumentException("Not a downloader file: " + file.getName());
+            String symbol = parts[0];
+
+            StrxWriter output = StrxWriter.append(file);
+            long startTime = output.getLastCloseTime() == Long.MIN_VALUE ? output.getStartTime() : output.getLastCloseTime() + 1;
+
+            if (startTime >= closedUntil(endTime)) {
+                output.abort();
+                log("%s is already up to date", file.getName());
+                return 0;
+            }
+
+            GapReport report = this.report = new GapReport(interval);
+            report.lastCloseTime = output.getLastCloseTime();
+            log("Updating %s from %s", file.getName(), new Date(startTime));
+
+            try {
+                transfer(symbol, interval, startTime, endTime, output, report);
+                output.setEndTime(closedUntil(endTime));
+                output.close();
+            } catch (Exception e) {
+                output.abort();
+                throw e;
+            }
+
+            report.print();
+            log("Update complete!");
+            return output.getWritten();
+        } finally {
+            downloading = false;
+            if (downloadButton != null) downloadButton.setEnabled(true);
+            if (updateButton != null) updateButton.setEnabled(true);
+        }
+    }
 
-        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(fileName))))) {
-            long currentStartTime = startTime;
+    /** Fetch every window in the range and write it to the output */
+    private void transfer(String symbol, CandlestickInterval interval, long startTime, long endTime, StrxWriter output, GapReport report) throws IOException {
+        final long intervalMs = Utils.binanceIntervalToMs(interval);
+        final long windowMs = intervalMs * MAX_CANDLES_PER_REQUEST;
+        long totalCandles = (endTime - startTime) / intervalMs;
+        int numRequests = (int) MathUtils.clampDouble(Math.ceil((endTime - startTime) / (double) windowMs), 1, Integer.MAX_VALUE);
 
-            // the magic string is 'b4 ff b4 ff' + the version number
-            output.writeByte(0xb4);
-            output.writeByte(0xff);
-            output.writeByte(0xb4);
-            output.writeByte(0xff);
-            output.writeByte(0x01);
+        log("Downloading %s on %s interval (%s candlesticks/%s requests, %d at a time)..", symbol, interval.getIntervalId(), MathUtils.COMMAS.format(totalCandles), numRequests, THREADS);
 
-            output.writeLong(startTime);
-            output.writeLong(endTime);
+        // Windows are fetched concurrently, but written in order by this thread
+        ExecutorService fetchers = Executors.newFixedThreadPool(THREADS);
+        ArrayDeque<Future<List<Candlestick>>> inFlight = new ArrayDeque<>();
+
+        try {
+            int submitted = 0;
 
-            List<Long> times = new ArrayList<>();
             for (int i = 0; i < numRequests; i++) {
-                List<Candlestick> downloaded = CLIENT.getCandlestickBars(symbol, interval, MAX_CANDLES_PER_REQUEST, currentStartTime, endTime);
+                while (submitted < numRequests && inFlight.size() < THREADS * 2) {
+                    final long windowStart = startTime + submitted * windowMs;
+                    final long windowEnd = Math.min(windowStart + windowMs, endTime) - 1; // End time is exclusive
+                    inFlight.add(fetchers.submit(() -> fetch(symbol, interval, windowStart, windowEnd)));
+                    submitted++;
+                }
+
+                List<Candlestick> downloaded = await(inFlight.poll());
 
                 // Date Open High Low Close Volume
+                long closedUntil = closedUntil(endTime);
                 for (Candlestick candle : downloaded) {
-                    if (times.contains(candle.getCloseTime())) {
-                        log("WARN: Duplicate candle time: " + candle.getCloseTime());
-                        continue;
-                    }
-
-                    times.add(candle.getCloseTime());
-                    output.writeLong(candle.getCloseTime());
-                    output.writeDouble(Double.parseDouble(candle.getOpen()));
-                    output.writeDouble(Double.parseDouble(candle.getHigh()));
-                    output.writeDouble(Double.parseDouble(candle.getLow()));
-                    output.writeDouble(Double.parseDouble(candle.getClose()));
-                    output.writeLong((long) Double.parseDouble(candle.getVolume()));
+                    if (candle.getCloseTime() >= closedUntil) continue; // Still open, the next update fetches it once it closed
+                    if (!report.accept(candle.getCloseTime())) continue;
+
+                    output.write(candle.getCloseTime(),
+                            Double.parseDouble(candle.getOpen()),
+                            Double.parseDouble(candle.getHigh()),
+                            Double.parseDouble(candle.getLow()),
+                            Double.parseDouble(candle.getClose()),
+                            (long) Double.parseDouble(candle.getVolume()));
                 }
 
-                downloaded.clear();
                 output.flush();
-                currentStartTime += Utils.binanceIntervalToMs(interval) * MAX_CANDLES_PER_REQUEST;
-                if (i % 5 == 0 && i > 0) {
-                    log("Sent %d/%d requests, %s candles", i, numRequests, MathUtils.COMMAS.format((long) i * MAX_CANDLES_PER_REQUEST));
-                    System.gc();
-                }
+                if (i % 5 == 0 && i > 0)
+                    log("Received %d/%d requests, %s candles", i, numRequests, MathUtils.COMMAS.format(output.getWritten()));
+            }
+        } finally {
+            fetchers.shutdownNow();
+        }
+    }
 
-                if (i % 15 == 0 && i > 0) {
-                    log("Sleeping for %d seconds", BREAK_SECONDS);
-                    try {
-                        Thread.sleep(BREAK_SECONDS * 1000L);
-                    } catch (Exception ignored) {}
-                }
+    /** @return The end time, or now if that is earlier. Candles closing at or after it are still open & not written */
+    private static long closedUntil(long endTime) {
+        return Math.min(endTime, System.currentTimeMillis());
+    }
+
+    /** Fetch one window of candles, waiting on the rate limiter & retrying on failure */
+    private List<Candlestick> fetch(String symbol, CandlestickInterval interval, long startTime, long endTime) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            RATE_LIMITER.acquire(KLINES_WEIGHT);
+
+            try {
+                return CLIENT.getCandlestickBars(symbol, interval, MAX_CANDLES_PER_REQUEST, startTime, endTime);
+            } catch (Exception e) {
+                if (attempt >= MAX_RETRIES) throw e;
+                LOGGER.warn("Request for {} at {} failed ({}), retrying..", symbol, startTime, e.getMessage());
+                Thread.sleep(1000L * attempt);
+            }
+        }
+    }
+
+    /** Windows are written in order, so duplicates & gaps are found by
+     * comparing each candle to the last written close time */
+    final class GapReport {
+        private static final int MAX_LISTED_GAPS = 10;
+        private final long intervalMs;
+        private final boolean checkGaps;
+        private final List<String> listedGaps = new ArrayList<>();
+        private long lastCloseTime = Long.MIN_VALUE;
+        private int duplicates = 0;
+        private int gaps = 0;
+        private long missing = 0;
+
+        GapReport(CandlestickInterval interval) {
+            this.intervalMs = Utils.binanceIntervalToMs(interval);
+            this.checkGaps = interval != CandlestickInterval.MONTHLY; // Months aren't a fixed length
+        }
+
+        /** @return false if the candle overlaps what was already written and should be skipped */
+        boolean accept(long closeTime) {
+            if (closeTime <= lastCloseTime) {
+                duplicates++;
+                return false;
+            }
+
+            if (checkGaps && lastCloseTime != Long.MIN_VALUE && closeTime - lastCloseTime > intervalMs) {
+                long gapCandles = (closeTime - lastCloseTime) / intervalMs - 1;
+                gaps++;
+                missing += gapCandles;
+
+                if (listedGaps.size() < MAX_LISTED_GAPS)
+                    listedGaps.add(String.format("%s -> %s (%s candles)", new Date(lastCloseTime), new Date(closeTime), MathUtils.COMMAS.format(gapCandles)));
             }
 
-            output.flush();
+            lastCloseTime = closeTime;
+            return true;
         }
 
-        downloading = false;
-        if (downloadButton != null) downloadButton.setEnabled(true);
-        log("Download complete!");
+        int getDuplicates() {
+            return duplicates;
+        }
+
+        int getGaps() {
+            return gaps;
+        }
+
+        long getMissing() {
+            return missing;
+        }
+
+        void print() {
+            if (duplicates > 0) log("WARN: Skipped %s duplicate/overlapping candles", MathUtils.COMMAS.format(duplicates));
+            if (gaps == 0) {
+                log("No gaps detected");
+                return;
+            }
+
+            log("WARN: Detected %s gaps, %s candles missing (Exchange downtime or delisting)", MathUtils.COMMAS.format(gaps), MathUtils.COMMAS.format(missing));
+            for (String gap : listedGaps) log("  Gap: %s", gap);
+            if (gaps > listedGaps.size()) log("  ..and %d more", gaps - listedGaps.size());
+        }
+    }
+
+    private static List<Candlestick> await(Future<List<Candlestick>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to download candles", e.getCause());
+        }
     }
 
     private void log(String msg, Object... args) {
@@ -194,6 +403,24 @@ public class Downloader {
         return false;
     }
 
+    /** @return The interval with the id (e.g. 1h) or name (e.g. HOURLY), or null */
+    static CandlestickInterval parseInterval(String id) {
+        for (CandlestickInterval interval : CandlestickInterval.values())
+            if (interval.getIntervalId().equals(id) || interval.name().equalsIgnoreCase(id)) return interval;
+        return null;
+    }
+
+    /** @return The most recently modified file downloaded for the symbol & interval, or null */
+    File findExisting(String symbol, CandlestickInterval interval) {
+        File[] files = new File(DATA_FOLDER).listFiles((dir, name) -> name.startsWith(symbol + "_" + interval.getIntervalId() + "_") && name.endsWith(".strx"));
+        if (files == null) return null;
+
+        File latest = null;
+        for (File file : files)
+            if (latest == null || file.lastModified() > latest.lastModified()) latest = file;
+        return latest;
+    }
+
     private String formatDate(Date d) {
         Calendar cal = Calendar.getInstance();
         cal.setTime(d);
@@ -204,6 +431,11 @@ public class Downloader {
         return d.atStartOfDay().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
     }
 
+    /** @return The duplicates & gaps of the latest download or update, null before the first */
+    GapReport getReport() {
+        return report;
+    }
+
     public boolean isDownloading() {
         return downloading;
     }
@@ -26,7 +26,6 @@ public abstract class Mode {
     protected final Logger LOGGER;
     protected final double STARTING_BALANCE;
     protected Closeable candlestickEventListener;
-    protected PriceHistory priceHistory;
     protected Candlestick currentCandle = null;
     protected Candlestick previousCandle = null;
     protected double lastPrice = 0.0;
@@ -52,6 +51,7 @@ public abstract class Mode {
         this.ACCOUNT = new Account(STARTING_BALANCE, type == Type.LIVE ? 0.0 : fee);
     }
 
+    /** @throws IllegalArgumentException If an indicator's timeframe isn't longer than the strategy's candles */
     public void begin() {
         if (TYPE.requiresMarketDataStream()) setupReconnect();
         ACCOUNT.reset();
@@ -59,11 +59,17 @@ public abstract class Mode {
         if (this.strategy != null) {
             LOGGER.info("Using strategy: " + strategy.name);
             StratX.trace(this.strategy.toString());
+            strategy.checkTimeframes(getCandleIntervalMs());
         }
 
         this.start();
     }
 
+    /** @return The interval of the candles the strategy gets, 0 if unknown */
+    protected long getCandleIntervalMs() {
+        return Utils.binanceIntervalToMs(strategy.CANDLESTICK_INTERVAL);
+    }
+
     private void setupReconnect() {
         try {
             setupMarketDataStream();
@@ -84,7 +90,6 @@ public abstract class Mode {
     }
 
     private void setupMarketDataStream() {
-        priceHistory = new PriceHistory(200);
         final double[] prevPrice = {0};
 
         LOGGER.info("(Market stream) Trading on " + strategy.CANDLESTICK_INTERVAL + " interval");
@@ -109,7 +114,6 @@ public abstract class Mode {
 
                 if (candle.isFinal()) {
                     onCandleClose(candle);
-                    priceHistory.add(candle);
                     previousCandle = candle;
                     return;
                 }
@@ -144,8 +148,11 @@ public abstract class Mode {
 
         // Populate price history
         List<com.binance.api.client.domain.market.Candlestick> bars = StratX.API.get().getCandlestickBars(COIN.toString(), strategy.CANDLESTICK_INTERVAL);
+        long now = System.currentTimeMillis();
 
         for (com.binance.api.client.domain.market.Candlestick bar : bars) {
+            if (bar.getCloseTime() > now) continue; // Still open, it is added by the stream once it closes
+
             Candlestick candle = new Candlestick(
                     bar.getCloseTime(),
                     Double.parseDouble(bar.getOpen()),
@@ -155,11 +162,7 @@ public abstract class Mode {
                     (long) Double.parseDouble(bar.getVolume()),
                     previousCandle, true);
 
-            priceHistory.add(candle);
-            this.strategy.getIndicators().forEach(indicator -> {
-                if (indicator.getPriceHistory() != null)
-                    indicator.getPriceHistory().add(candle);
-            });
+            strategy.warmUp(candle);
             previousCandle = candle;
         }
         bars.clear();
@@ -202,7 +205,7 @@ public abstract class Mode {
 
     /** Places buy/sell orders */
     protected void checkBuySellSignals(Candlestick candle) {
-        strategy.onCandleClose(candle);
+        strategy.closeCandle(candle);
         Signal signal = strategy.getSignal();
 
         if (signal == Signal.BUY) forceBuy();
@@ -3,10 +3,17 @@ package stratx.strategies;
 import com.binance.api.client.domain.market.CandlestickInterval;
 import stratx.StratX;
 import stratx.indicators.Indicator;
+import stratx.indicators.IndicatorCache;
+import stratx.indicators.IndicatorGraph;
+import stratx.strategies.rules.RuleSet;
 import stratx.utils.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 public class Strategy {
     /** The name of the strategy */
@@ -75,6 +82,14 @@ public class Strategy {
     public CandlestickInterval CANDLESTICK_INTERVAL = CandlestickInterval.FIVE_MINUTES;
 
     private final ArrayList<Indicator> indicators = new ArrayList<>();
+    /** The indicators on the strategy's candles & their inputs */
+    private IndicatorGraph graph = new IndicatorGraph();
+    /** Indicators with their own timeframe, grouped by it (See {@link Indicator#setTimeframe}) */
+    private final Map<CandlestickInterval, Timeframe> timeframes = new LinkedHashMap<>();
+    /** One history for every indicator, sized to the longest lookback */
+    private final PriceHistory priceHistory = new PriceHistory(1);
+    /** The indicators' signals on the latest candle, null until taken (See {@link #getBuySellSignals()}) */
+    private BuySellSignals signals;
     private String configName;
 
 
@@ -86,6 +101,7 @@ public class Strategy {
         this.name = name;
         this.indicators.addAll(Arrays.asList(indicators));
         this.configName = configFile;
+        this.shareHistory();
 
         StratX.log("Loading strategy settings from " + configFile);
         Configuration config = new Configuration("config/strategies/" + configFile);
@@ -101,10 +117,115 @@ public class Strategy {
     /** Called every time a price update is received */
     public void onPriceUpdate(double prevPrice, double newPrice) {}
 
+    /** Called by the mode every time a candle is closed or every "tick", runs {@link #onCandleClose}
+     * then takes the indicators' signals, so they are fresh even if an override doesn't call super */
+    public final void closeCandle(Candlestick candle) {
+        onCandleClose(candle);
+        signals = takeSignals();
+    }
+
     /** Called every time a candle is closed or every "tick" */
     public void onCandleClose(Candlestick candle) {
-        for (Indicator indicator : indicators)
-            indicator.update(candle);
+        priceHistory.add(candle);
+        graph.update(candle);
+
+        for (Timeframe timeframe : timeframes.values())
+            timeframe.add(candle, false);
+
+        signals = null;
+    }
+
+    /** Called with the candles before trading starts (e.g. the latest bars from the exchange),
+     * fills the price history & indicators without placing trades */
+    public void warmUp(Candlestick candle) {
+        priceHistory.add(candle);
+        graph.warmUp(candle);
+
+        for (Timeframe timeframe : timeframes.values())
+            timeframe.add(candle, true);
+
+        signals = null;
+    }
+
+    /** Compute the indicators & inputs that support it over the whole series up front (See {@link Indicator#computeAll}),
+     * the candles must then be the series' candles, in order. The other indicators still update per candle.
+     * @return How many indicators were precomputed */
+    public int precompute(CandleSeries series) {
+        return precompute(series, null, null);
+    }
+
+    /** Like {@link #precompute(CandleSeries)}, reusing the values the cache has for the dataset.
+     * Indicators with their own timeframe are computed over the series resampled to it
+     * @param dataset Identifies the series in the cache, e.g. the file & the range read from it */
+    public int precompute(CandleSeries series, String dataset, IndicatorCache cache) {
+        checkTimeframes(series.getIntervalMs());
+        int precomputed = precompute(series, dataset, cache, graph);
+
+        for (Map.Entry<CandlestickInterval, Timeframe> timeframe : timeframes.entrySet()) {
+            String id = timeframe.getKey().getIntervalId();
+            precomputed += precompute(Resampler.resample(series, timeframe.getKey()), dataset == null ? null : dataset + "|" + id, cache, timeframe.getValue().graph);
+        }
+
+        return precomputed;
+    }
+
+    private int precompute(CandleSeries series, String dataset, IndicatorCache cache, IndicatorGraph graph) {
+        CandleSeries[] candles = new CandleSeries[1]; // Only converted on a cache miss
+        Supplier<CandleSeries> converted = () -> candles[0] != null ? candles[0] : (candles[0] = series.toCandlestickValues());
+        if (dataset != null && Candlestick.isHeikinAshi()) dataset += "|heikin-ashi";
+        int precomputed = 0;
+
+        for (Indicator indicator : graph.getNodes()) {
+            double[] values = cache == null || dataset == null ? indicator.computeAll(converted.get()) : cache.get(dataset, indicator, converted);
+            indicator.setPrecomputed(series, values);
+            if (values != null) precomputed++;
+        }
+
+        return precomputed;
+    }
+
+    /** Check every indicator's timeframe is longer than the candles the strategy gets, before trading on them.
+     * Otherwise aggregating the candles to it only fails on the third candle, mid-run
+     * @param candleMs The interval of the strategy's candles, 0 if it is unknown (Nothing is checked)
+     * @throws IllegalArgumentException If a timeframe isn't longer */
+    public void checkTimeframes(long candleMs) {
+        for (CandlestickInterval timeframe : timeframes.keySet()) {
+            if (candleMs > 0 && Utils.binanceIntervalToMs(timeframe) <= candleMs)
+                throw new IllegalArgumentException("Indicators on the " + timeframe.getIntervalId() + " timeframe need candles shorter than it, got " + candleMs + "ms candles");
+        }
+    }
+
+    /** Build the indicator graphs, size the shared history to the longest lookback & hand it to every indicator.
+     * Indicators with their own timeframe share that timeframe's graph & history */
+    private void shareHistory() {
+        graph = new IndicatorGraph();
+        for (Timeframe timeframe : timeframes.values())
+            timeframe.graph = new IndicatorGraph();
+
+        for (Indicator indicator : indicators) {
+            if (indicator.getTimeframe() == null) graph.add(indicator);
+            else timeframes.computeIfAbsent(indicator.getTimeframe(), Timeframe::new).graph.add(indicator);
+        }
+
+        share(graph, priceHistory);
+
+        // Drop timeframes without indicators
+        Iterator<Timeframe> iterator = timeframes.values().iterator();
+        while (iterator.hasNext()) {
+            Timeframe timeframe = iterator.next();
+            if (timeframe.graph.getNodes().isEmpty()) iterator.remove();
+            else share(timeframe.graph, timeframe.history);
+        }
+    }
+
+    private static void share(IndicatorGraph graph, PriceHistory history) {
+        int lookback = 1;
+        for (Indicator indicator : graph.getNodes())
+            lookback = Math.max(lookback, indicator.getLookback());
+
+        if (lookback != history.getMaxLength()) history.setMaxLength(lookback);
+        for (Indicator indicator : graph.getNodes())
+            indicator.setPriceHistory(history);
     }
 
     /** Default implementation, uses the indicators to determine the signal
@@ -130,8 +251,8 @@ public class Strategy {
         int buySignals = buySellSignals.buySignals;
         int sellSignals = buySellSignals.sellSignals;
 
-        return (((MIN_BUY_SIGNALS == -1 && buySignals >= indicators.size()) || (buySignals >= MIN_BUY_SIGNALS && MIN_BUY_SIGNALS != -1))
-                && buyRequirementsMet()
+        return (((MIN_BUY_SIGNALS == -1 && buySignals >= countSignalling(Signal.BUY)) || (buySignals >= MIN_BUY_SIGNALS && MIN_BUY_SIGNALS != -1))
+                && buySellSignals.buyRequirementsMet
                 && (buySignals >= sellSignals && DONT_BUY_IF_SELL_GREATER)
                 && (StratX.getCurrentMode().getAccount().getOpenTrades() == 0)
                 && (StratX.getCurrentMode().getAccount().getBalance() > 0)
@@ -139,42 +260,53 @@ public class Strategy {
         );
     }
 
-    private boolean buyRequirementsMet() {
-        for (Indicator indicator : indicators)
-            if (indicator.isRequiredForBuy() && indicator.getSignal() != Signal.BUY) return false;
-
-        return true;
-    }
-
     /** Called to determine if a sell position can be opened. Should generally be kept
      * the same. */
     public boolean isValidSell() {
-        int sellSignals = getBuySellSignals().sellSignals;
-        return (((MIN_SELL_SIGNALS == -1 && sellSignals >= indicators.size()) || (sellSignals >= MIN_SELL_SIGNALS && MIN_SELL_SIGNALS != -1))
-                && sellRequirementsMet()
+        BuySellSignals buySellSignals = getBuySellSignals();
+        int sellSignals = buySellSignals.sellSignals;
+        return (((MIN_SELL_SIGNALS == -1 && sellSignals >= countSignalling(Signal.SELL)) || (sellSignals >= MIN_SELL_SIGNALS && MIN_SELL_SIGNALS != -1))
+                && buySellSignals.sellRequirementsMet
                 && SELL_BASED_ON_INDICATORS
                 && StratX.getCurrentMode().getAccount().getOpenTrades() > 0
         );
     }
 
-    private boolean sellRequirementsMet() {
-        for (Indicator indicator : indicators)
-            if (indicator.isRequiredForSell() && indicator.getSignal() != Signal.SELL) return false;
+    /** @return How many indicators can give the signal, all of which min-signals -1 requires.
+     * Rules without an entry (exit) rule never buy (sell), so they aren't counted. Integer.MAX_VALUE if none can */
+    int countSignalling(Signal signal) {
+        int count = 0;
+        for (Indicator indicator : indicators) {
+            if (indicator instanceof RuleSet && !(signal == Signal.BUY ? ((RuleSet) indicator).hasEntry() : ((RuleSet) indicator).hasExit())) continue;
+            count++;
+        }
+        return count == 0 ? Integer.MAX_VALUE : count;
+    }
 
-        return true;
+    /** @return The indicators' signals on the latest candle, taken once when it closed so every check of
+     * the candle agrees (See {@link #closeCandle}). Taken now if the candle didn't go through it */
+    public BuySellSignals getBuySellSignals() {
+        if (signals == null) signals = takeSignals();
+        return signals;
     }
 
-    private BuySellSignals getBuySellSignals() {
+    /** Poll every indicator's signal once */
+    private BuySellSignals takeSignals() {
         int buySignals = 0;
         int sellSignals = 0;
+        boolean buyRequirementsMet = true;
+        boolean sellRequirementsMet = true;
 
         for (Indicator indicator : indicators) {
             Signal signal = indicator.getSignal();
             if (signal == Signal.BUY) buySignals++;
             else if (signal == Signal.SELL) sellSignals++;
+
+            if (indicator.isRequiredForBuy() && signal != Signal.BUY) buyRequirementsMet = false;
+            if (indicator.isRequiredForSell() && signal != Signal.SELL) sellRequirementsMet = false;
         }
 
-        return new BuySellSignals(buySignals, sellSignals);
+        return new BuySellSignals(buySignals, sellSignals, buyRequirementsMet, sellRequirementsMet);
     }
 
     /** Called when a trade is opened to determine how much USD
@@ -207,6 +339,16 @@ public class Strategy {
         MIN_SELL_SIGNALS = config.getInt("sell.min-signals", MIN_SELL_SIGNALS);
         SELL_BASED_ON_INDICATORS = config.getBoolean("sell.based-on-indicators", SELL_BASED_ON_INDICATORS);
 
+        if (config.has("rules")) {
+            try {
+                indicators.add(new RuleSet(config.getString("rules.entry"), config.getString("rules.exit")));
+                shareHistory();
+            } catch (IllegalArgumentException e) {
+                StratX.error("Invalid rules in " + configName, e);
+                System.exit(1);
+            }
+        }
+
         for (String indStr : config.getStringList("buy.required"))
             for (Indicator ind : indicators)
                 if (ind.getName().equals(indStr)) ind.setRequiredForBuy(true);
@@ -227,16 +369,34 @@ public class Strategy {
 
     public void addIndicator(Indicator indicator) {
         indicators.add(indicator);
+        shareHistory();
     }
 
     public void removeIndicator(Indicator indicator) {
         indicators.remove(indicator);
+        indicator.setPriceHistory(null);
+        shareHistory();
+    }
+
+    public PriceHistory getPriceHistory() {
+        return priceHistory;
+    }
+
+    /** @return The history of the candles aggregated to the timeframe, or null if no indicator uses it */
+    public PriceHistory getPriceHistory(CandlestickInterval timeframe) {
+        Timeframe aggregated = timeframes.get(timeframe);
+        return aggregated == null ? null : aggregated.history;
     }
 
     public ArrayList<Indicator> getIndicators() {
         return indicators;
     }
 
+    /** @return The graph evaluating the indicators on the strategy's candles & their inputs */
+    public IndicatorGraph getIndicatorGraph() {
+        return graph;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -262,4 +422,32 @@ public class Strategy {
         
         return sb.toString();
     }
+
+    /** Aggregates the strategy's candles into a higher timeframe for the indicators using it.
+     * An aggregated candle closes with the last strategy candle in it, indicators see it then */
+    private static class Timeframe {
+        private final CandleAggregator aggregator;
+        private final PriceHistory history = new PriceHistory(1);
+        private IndicatorGraph graph = new IndicatorGraph();
+        private Candlestick previous = null;
+
+        private Timeframe(CandlestickInterval interval) {
+            this.aggregator = new CandleAggregator(interval);
+        }
+
+        private void add(Candlestick candle, boolean warmUp) {
+            aggregator.add(candle.getCloseTime(), candle.getUnmodifiedOpen(), candle.getUnmodifiedHigh(),
+                    candle.getUnmodifiedLow(), candle.getUnmodifiedClose(), candle.getVolume());
+
+            while (aggregator.poll()) {
+                Candlestick aggregated = new Candlestick(aggregator.getCloseTime(), aggregator.getOpen(), aggregator.getHigh(),
+                        aggregator.getLow(), aggregator.getClose(), aggregator.getVolume(), previous);
+                previous = aggregated;
+                history.add(aggregated);
+
+                if (warmUp) graph.warmUp(aggregated);
+                else graph.update(aggregated);
+            }
+        }
+    }
 }
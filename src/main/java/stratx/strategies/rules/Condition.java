@@ -0,0 +1,206 @@
+package stratx.strategies.rules;
+
+/** A compiled boolean node of a rule, evaluated on the latest candle without allocating.
+ * Three valued: comparisons with NaN (A value that isn't known yet) are {@link #UNKNOWN}, which not keeps unknown,
+ * and & or only settle when the known side decides them (Unknown and false is false, unknown or true is true).
+ * A rule only holds when it is {@link #TRUE} */
+abstract class Condition {
+    static final int FALSE = 0;
+    static final int TRUE = 1;
+    static final int UNKNOWN = 2;
+
+    /** @return {@link #TRUE}, {@link #FALSE} or {@link #UNKNOWN} */
+    abstract int test();
+
+    /** @return Unknown if either side is NaN, else whether the comparison holds */
+    static int compare(double left, double right, boolean holds) {
+        if (Double.isNaN(left) || Double.isNaN(right)) return UNKNOWN;
+        return holds ? TRUE : FALSE;
+    }
+
+    static final class And extends Condition {
+        private final Condition left;
+        private final Condition right;
+
+        And(Condition left, Condition right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int test() {
+            int l = left.test();
+            if (l == FALSE) return FALSE;
+            int r = right.test();
+            if (r == FALSE) return FALSE;
+            return l == TRUE && r == TRUE ? TRUE : UNKNOWN;
+        }
+    }
+
+    static final class Or extends Condition {
+        private final Condition left;
+        private final Condition right;
+
+        Or(Condition left, Condition right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int test() {
+            int l = left.test();
+            if (l == TRUE) return TRUE;
+            int r = right.test();
+            if (r == TRUE) return TRUE;
+            return l == FALSE && r == FALSE ? FALSE : UNKNOWN;
+        }
+    }
+
+    static final class Not extends Condition {
+        private final Condition operand;
+
+        Not(Condition operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        int test() {
+            int value = operand.test();
+            if (value == UNKNOWN) return UNKNOWN;
+            return value == TRUE ? FALSE : TRUE;
+        }
+    }
+
+    static final class Less extends Condition {
+        private final Expression left;
+        private final Expression right;
+
+        Less(Expression left, Expression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int test() {
+            double l = left.evaluate();
+            double r = right.evaluate();
+            return compare(l, r, l < r);
+        }
+    }
+
+    static final class LessOrEqual extends Condition {
+        private final Expression left;
+        private final Expression right;
+
+        LessOrEqual(Expression left, Expression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int test() {
+            double l = left.evaluate();
+            double r = right.evaluate();
+            return compare(l, r, l <= r);
+        }
+    }
+
+    static final class Greater extends Condition {
+        private final Expression left;
+        private final Expression right;
+
+        Greater(Expression left, Expression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int test() {
+            double l = left.evaluate();
+            double r = right.evaluate();
+            return compare(l, r, l > r);
+        }
+    }
+
+    static final class GreaterOrEqual extends Condition {
+        private final Expression left;
+        private final Expression right;
+
+        GreaterOrEqual(Expression left, Expression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int test() {
+            double l = left.evaluate();
+            double r = right.evaluate();
+            return compare(l, r, l >= r);
+        }
+    }
+
+    static final class Equal extends Condition {
+        private final Expression left;
+        private final Expression right;
+
+        Equal(Expression left, Expression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int test() {
+            double l = left.evaluate();
+            double r = right.evaluate();
+            return compare(l, r, l == r);
+        }
+    }
+
+    static final class NotEqual extends Condition {
+        private final Expression left;
+        private final Expression right;
+
+        NotEqual(Expression left, Expression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int test() {
+            double l = left.evaluate();
+            double r = right.evaluate();
+            return compare(l, r, l != r);
+        }
+    }
+
+    /** True on the candle the left side crosses above (Or below) the right side, like {@link stratx.indicators.Crossover}.
+     * Needs the difference of the previous candle, so the rule set updates it on every candle
+     * (See {@link #update(boolean)}) even when the rest of the rule short circuits past it */
+    static final class Crosses extends Condition {
+        private final Expression left;
+        private final Expression right;
+        private final boolean above;
+        private double difference = Double.NaN;
+        /** The difference before the latest candle */
+        private double previousDifference = Double.NaN;
+
+        Crosses(Expression left, Expression right, boolean above) {
+            this.left = left;
+            this.right = right;
+            this.above = above;
+        }
+
+        /** @param replace If the latest candle was replaced, instead of a new one added */
+        void update(boolean replace) {
+            if (!replace) previousDifference = difference;
+            difference = left.evaluate() - right.evaluate();
+        }
+
+        /** Unknown until the difference is known on both candles */
+        @Override
+        int test() {
+            if (above) return compare(previousDifference, difference, previousDifference <= 0 && difference > 0);
+            return compare(previousDifference, difference, previousDifference >= 0 && difference < 0);
+        }
+    }
+}
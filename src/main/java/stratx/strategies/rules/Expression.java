@@ -0,0 +1,166 @@
+package stratx.strategies.rules;
+
+import stratx.indicators.Indicator;
+import stratx.utils.PriceHistory;
+
+import java.util.function.ToDoubleFunction;
+
+/** A compiled numeric node of a rule, evaluated on the latest candle without allocating.
+ * NaN while a value isn't known yet (Indicator not ready, not enough candles), comparisons with it are unknown (See {@link Condition}) */
+abstract class Expression {
+    abstract double evaluate();
+
+    static final class Constant extends Expression {
+        final double value;
+
+        Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        double evaluate() {
+            return value;
+        }
+    }
+
+    /** A value of the candle offset candles before the latest, e.g. close[1] */
+    static final class Price extends Expression {
+        static final int OPEN = 0;
+        static final int HIGH = 1;
+        static final int LOW = 2;
+        static final int CLOSE = 3;
+        static final int VOLUME = 4;
+
+        private final RuleSet rules;
+        private final int field;
+        private final int offset;
+
+        Price(RuleSet rules, int field, int offset) {
+            this.rules = rules;
+            this.field = field;
+            this.offset = offset;
+        }
+
+        @Override
+        double evaluate() {
+            PriceHistory history = rules.getPriceHistory();
+            int index = history.length() - 1 - offset;
+            if (index < 0) return Double.NaN;
+
+            switch (field) {
+                case OPEN: return history.openAt(index);
+                case HIGH: return history.highAt(index);
+                case LOW: return history.lowAt(index);
+                case CLOSE: return history.closeAt(index);
+                default: return history.volumeAt(index);
+            }
+        }
+    }
+
+    /** The main value of an input of the rules (See {@link Indicator#getValue()}) */
+    static final class Value extends Expression {
+        private final RuleSet rules;
+        private final int input;
+
+        Value(RuleSet rules, int input) {
+            this.rules = rules;
+            this.input = input;
+        }
+
+        @Override
+        double evaluate() {
+            return rules.input(input).getValue();
+        }
+    }
+
+    /** Another output of an input of the rules, e.g. the upper bollinger band */
+    static final class Output extends Expression {
+        private final RuleSet rules;
+        private final int input;
+        private final ToDoubleFunction<Indicator> output;
+
+        Output(RuleSet rules, int input, ToDoubleFunction<Indicator> output) {
+            this.rules = rules;
+            this.input = input;
+            this.output = output;
+        }
+
+        @Override
+        double evaluate() {
+            return output.applyAsDouble(rules.input(input));
+        }
+    }
+
+    static final class Negate extends Expression {
+        private final Expression operand;
+
+        Negate(Expression operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        double evaluate() {
+            return -operand.evaluate();
+        }
+    }
+
+    static final class Add extends Expression {
+        private final Expression left;
+        private final Expression right;
+
+        Add(Expression left, Expression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate() {
+            return left.evaluate() + right.evaluate();
+        }
+    }
+
+    static final class Subtract extends Expression {
+        private final Expression left;
+        private final Expression right;
+
+        Subtract(Expression left, Expression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate() {
+            return left.evaluate() - right.evaluate();
+        }
+    }
+
+    static final class Multiply extends Expression {
+        private final Expression left;
+        private final Expression right;
+
+        Multiply(Expression left, Expression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate() {
+            return left.evaluate() * right.evaluate();
+        }
+    }
+
+    static final class Divide extends Expression {
+        private final Expression left;
+        private final Expression right;
+
+        Divide(Expression left, Expression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate() {
+            return left.evaluate() / right.evaluate();
+        }
+    }
+}
@@ -0,0 +1,445 @@
+package stratx.strategies.rules;
+
+import stratx.indicators.ADX;
+import stratx.indicators.ATR;
+import stratx.indicators.BollingerBands;
+import stratx.indicators.DonchianChannels;
+import stratx.indicators.EMA;
+import stratx.indicators.Indicator;
+import stratx.indicators.MACD;
+import stratx.indicators.OBV;
+import stratx.indicators.RSI;
+import stratx.indicators.SMA;
+import stratx.indicators.Stochastic;
+import stratx.indicators.SuperTrend;
+import stratx.indicators.VWAP;
+import stratx.indicators.WMA;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/** Compiles rules into {@link Condition} trees for a {@link RuleSet}, e.g.
+ * {@code rsi(14) < 30 and close > wma(30)} or {@code ema(9) crosses above ema(21) or not (macd().histogram > 0)}
+ *
+ * <ul>
+ *     <li>Prices of the latest candle: open, high, low, close & volume. close[1] is the close of the candle before</li>
+ *     <li>Indicators: rsi(period), ema(period), wma(period), sma(period), atr(period), adx(period), obv(), vwap(),
+ *     macd(fast, slow, signal), bollinger(period, deviations), donchian(period), stochastic(k, d) & supertrend(period, multiplier),
+ *     arguments can be left out from the end for the indicator's defaults. Other outputs are read with a dot, e.g. bollinger(20, 2).upper
+ *     (See {@link #output})</li>
+ *     <li>Arithmetic: + - * / & parentheses</li>
+ *     <li>Comparisons: {@literal < <= > >= == !=}, a crosses above b & a crosses below b</li>
+ *     <li>Logic: and, or, not</li>
+ * </ul>
+ * Names are case insensitive. Identical indicators are only added to the rule set once */
+class RuleParser {
+    private final RuleSet rules;
+    /** Indicator class & cache key -> input index */
+    private final Map<String, Integer> inputs = new HashMap<>();
+    private final List<Condition.Crosses> crossings = new ArrayList<>();
+    private int lookback = 0;
+
+    private String source;
+    private int position;
+    private Token token;
+    private int tokenStart;
+    private String text;
+    private double number;
+
+    private enum Token { NUMBER, NAME, SYMBOL, END }
+
+
+    RuleParser(RuleSet rules) {
+        this.rules = rules;
+    }
+
+    /** @throws IllegalArgumentException If the rule isn't valid, with the position of the problem */
+    Condition parse(String rule) {
+        this.source = rule;
+        this.position = 0;
+        next();
+
+        Object parsed = parseOr();
+        if (token != Token.END) throw error("Unexpected '" + text + "'");
+        return condition(parsed, 0);
+    }
+
+    /** @return The crossings of every rule parsed, updated on every candle */
+    Condition.Crosses[] getCrossings() {
+        return crossings.toArray(new Condition.Crosses[0]);
+    }
+
+    /** @return How many of the latest candles the parsed rules read */
+    int getLookback() {
+        return lookback;
+    }
+
+    private Object parseOr() {
+        Object left = parseAnd();
+
+        while (isName("or")) {
+            int start = tokenStart;
+            next();
+            left = new Condition.Or(condition(left, start), condition(parseAnd(), start));
+        }
+
+        return left;
+    }
+
+    private Object parseAnd() {
+        Object left = parseNot();
+
+        while (isName("and")) {
+            int start = tokenStart;
+            next();
+            left = new Condition.And(condition(left, start), condition(parseNot(), start));
+        }
+
+        return left;
+    }
+
+    private Object parseNot() {
+        if (!isName("not")) return parseComparison();
+        int start = tokenStart;
+        next();
+        return new Condition.Not(condition(parseNot(), start));
+    }
+
+    private Object parseComparison() {
+        Object left = parseSum();
+        int start = tokenStart;
+
+        if (isName("crosses")) {
+            next();
+            boolean above = isName("above");
+            if (!above && !isName("below")) throw error("Expected 'above' or 'below'");
+            next();
+
+            Condition.Crosses crosses = new Condition.Crosses(number(left, start), number(parseSum(), start), above);
+            crossings.add(crosses);
+            return crosses;
+        }
+
+        if (token != Token.SYMBOL) return left;
+        String operator = text;
+
+        switch (operator) {
+            case "<": next(); return new Condition.Less(number(left, start), number(parseSum(), start));
+            case "<=": next(); return new Condition.LessOrEqual(number(left, start), number(parseSum(), start));
+            case ">": next(); return new Condition.Greater(number(left, start), number(parseSum(), start));
+            case ">=": next(); return new Condition.GreaterOrEqual(number(left, start), number(parseSum(), start));
+            case "==": next(); return new Condition.Equal(number(left, start), number(parseSum(), start));
+            case "!=": next(); return new Condition.NotEqual(number(left, start), number(parseSum(), start));
+            default: return left;
+        }
+    }
+
+    private Object parseSum() {
+        Object left = parseProduct();
+
+        while (isSymbol("+") || isSymbol("-")) {
+            boolean add = isSymbol("+");
+            int start = tokenStart;
+            next();
+            Expression l = number(left, start);
+            Expression r = number(parseProduct(), start);
+
+            if (l instanceof Expression.Constant && r instanceof Expression.Constant)
+                left = new Expression.Constant(add ? l.evaluate() + r.evaluate() : l.evaluate() - r.evaluate());
+            else left = add ? new Expression.Add(l, r) : new Expression.Subtract(l, r);
+        }
+
+        return left;
+    }
+
+    private Object parseProduct() {
+        Object left = parseUnary();
+
+        while (isSymbol("*") || isSymbol("/")) {
+            boolean multiply = isSymbol("*");
+            int start = tokenStart;
+            next();
+            Expression l = number(left, start);
+            Expression r = number(parseUnary(), start);
+
+            if (l instanceof Expression.Constant && r instanceof Expression.Constant)
+                left = new Expression.Constant(multiply ? l.evaluate() * r.evaluate() : l.evaluate() / r.evaluate());
+            else left = multiply ? new Expression.Multiply(l, r) : new Expression.Divide(l, r);
+        }
+
+        return left;
+    }
+
+    private Object parseUnary() {
+        if (!isSymbol("-")) return parsePrimary();
+        int start = tokenStart;
+        next();
+
+        Expression operand = number(parseUnary(), start);
+        if (operand instanceof Expression.Constant) return new Expression.Constant(-operand.evaluate());
+        return new Expression.Negate(operand);
+    }
+
+    private Object parsePrimary() {
+        int start = tokenStart;
+
+        if (token == Token.NUMBER) {
+            double value = number;
+            next();
+            return new Expression.Constant(value);
+        }
+
+        if (isSymbol("(")) {
+            next();
+            Object inner = parseOr();
+            expect(")");
+            return inner;
+        }
+
+        if (token != Token.NAME) throw error(token == Token.END ? "Unexpected end of rule" : "Unexpected '" + text + "'");
+        String name = text;
+        next();
+
+        int field = priceField(name);
+        if (field != -1) {
+            int offset = 0;
+
+            if (isSymbol("[")) {
+                next();
+                if (token != Token.NUMBER || number < 0 || number != Math.floor(number)) throw error("Expected a candle offset");
+                offset = (int) number;
+                next();
+                expect("]");
+            }
+
+            lookback = Math.max(lookback, offset + 1);
+            return new Expression.Price(rules, field, offset);
+        }
+
+        if (!isSymbol("(")) throw error("Unknown value '" + name + "'", start);
+        next();
+        List<Double> args = new ArrayList<>();
+
+        while (!isSymbol(")")) {
+            if (!args.isEmpty()) expect(",");
+            boolean negative = isSymbol("-");
+            if (negative) next();
+            if (token != Token.NUMBER) throw error("Expected a number");
+            args.add(negative ? -number : number);
+            next();
+        }
+
+        next();
+        Indicator indicator = indicator(name, args, start);
+        int input = input(indicator);
+        if (!isSymbol(".")) return new Expression.Value(rules, input);
+
+        next();
+        if (token != Token.NAME) throw error("Expected an output of " + name);
+        ToDoubleFunction<Indicator> output = output(indicator, text);
+        if (output == null) throw error(name + " has no output '" + text + "'");
+        next();
+        return new Expression.Output(rules, input, output);
+    }
+
+    /** @return The index of the rule set's input identical to the indicator, added if there isn't one */
+    private int input(Indicator indicator) {
+        String key = indicator.getClass().getName() + '|' + indicator.getCacheKey();
+        Integer input = inputs.get(key);
+        if (input != null) return input;
+
+        input = rules.addRuleInput(indicator);
+        inputs.put(key, input);
+        return input;
+    }
+
+    private static int priceField(String name) {
+        switch (name) {
+            case "open": return Expression.Price.OPEN;
+            case "high": return Expression.Price.HIGH;
+            case "low": return Expression.Price.LOW;
+            case "close": return Expression.Price.CLOSE;
+            case "volume": return Expression.Price.VOLUME;
+            default: return -1;
+        }
+    }
+
+    private Indicator indicator(String name, List<Double> args, int start) {
+        int max = maxArguments(name);
+        if (max == -1) throw error("Unknown indicator '" + name + "'", start);
+        if (args.size() > max) throw error(name + " takes at most " + max + " argument(s)", start);
+
+        switch (name) {
+            case "rsi": return new RSI(period(args, 0, 14, name, start), 70, 30);
+            case "ema": return new EMA(period(args, 0, -1, name, start));
+            case "wma": return new WMA(period(args, 0, -1, name, start));
+            case "sma": return new SMA(period(args, 0, -1, name, start));
+            case "atr": return new ATR(period(args, 0, 14, name, start));
+            case "adx": return new ADX(period(args, 0, 14, name, start));
+            case "obv": return new OBV(period(args, 0, 20, name, start));
+            case "vwap": return new VWAP();
+            case "macd":
+                return new MACD(period(args, 0, 12, name, start), period(args, 1, 26, name, start), period(args, 2, 9, name, start));
+            case "bollinger":
+                return new BollingerBands(period(args, 0, 20, name, start), argument(args, 1, 2.0, name, start));
+            case "donchian": return new DonchianChannels(period(args, 0, 20, name, start));
+            case "stochastic":
+                return new Stochastic(period(args, 0, 14, name, start), period(args, 1, 3, name, start), 80, 20);
+            case "supertrend":
+                return new SuperTrend(period(args, 0, 10, name, start), argument(args, 1, 3.0, name, start));
+            default: throw error("Unknown indicator '" + name + "'", start);
+        }
+    }
+
+    /** @return The outputs besides {@link Indicator#getValue()}, which are NaN until ready like the main value */
+    private static ToDoubleFunction<Indicator> output(Indicator indicator, String name) {
+        if (indicator instanceof MACD) {
+            switch (name) {
+                case "signal": return i -> ((MACD) i).getSignalLine();
+                case "histogram": return i -> ((MACD) i).getHistogram();
+            }
+        } else if (indicator instanceof BollingerBands) {
+            switch (name) {
+                case "upper": return i -> ((BollingerBands) i).getUpper();
+                case "middle": return i -> ((BollingerBands) i).getMiddle();
+                case "lower": return i -> ((BollingerBands) i).getLower();
+                case "bandwidth": return i -> ((BollingerBands) i).getBandwidth();
+            }
+        } else if (indicator instanceof DonchianChannels) {
+            switch (name) {
+                case "upper": return i -> ((DonchianChannels) i).getUpper();
+                case "middle": return i -> ((DonchianChannels) i).getMiddle();
+                case "lower": return i -> ((DonchianChannels) i).getLower();
+            }
+        } else if (indicator instanceof Stochastic) {
+            switch (name) {
+                case "k": return i -> ((Stochastic) i).getK();
+                case "d": return i -> ((Stochastic) i).getD();
+            }
+        } else if (indicator instanceof ADX) {
+            switch (name) {
+                case "plus_di": return i -> ((ADX) i).getPlusDI();
+                case "minus_di": return i -> ((ADX) i).getMinusDI();
+            }
+        } else if (indicator instanceof OBV) {
+            if (name.equals("average")) return i -> ((OBV) i).getAverage();
+        } else if (indicator instanceof SuperTrend) {
+            if (name.equals("uptrend")) return i -> !((SuperTrend) i).isReady() ? Double.NaN : ((SuperTrend) i).isUptrend() ? 1 : 0;
+        }
+
+        return null;
+    }
+
+    private int period(List<Double> args, int index, int def, String name, int start) {
+        double period = argument(args, index, def, name, start);
+        if (period < 1 || period != Math.floor(period)) throw error(name + " needs a whole, positive period", start);
+        return (int) period;
+    }
+
+    /** @param def The default if the argument is left out, -1 if it's required */
+    private double argument(List<Double> args, int index, double def, String name, int start) {
+        if (index < args.size()) return args.get(index);
+        if (def == -1) throw error(name + " needs " + (index + 1) + " argument(s)", start);
+        return def;
+    }
+
+    /** @return How many arguments the indicator takes at most, -1 if there is no such indicator */
+    private static int maxArguments(String name) {
+        switch (name) {
+            case "rsi":
+            case "ema":
+            case "wma":
+            case "sma":
+            case "atr":
+            case "adx":
+            case "obv":
+            case "donchian": return 1;
+            case "bollinger":
+            case "stochastic":
+            case "supertrend": return 2;
+            case "macd": return 3;
+            case "vwap": return 0;
+            default: return -1;
+        }
+    }
+
+    private void expect(String symbol) {
+        if (!isSymbol(symbol)) throw error("Expected '" + symbol + "'");
+        next();
+    }
+
+    private boolean isName(String name) {
+        return token == Token.NAME && text.equals(name);
+    }
+
+    private boolean isSymbol(String symbol) {
+        return token == Token.SYMBOL && text.equals(symbol);
+    }
+
+    private Condition condition(Object parsed, int start) {
+        if (parsed instanceof Condition) return (Condition) parsed;
+        throw error("Expected a condition, not a value", start);
+    }
+
+    private Expression number(Object parsed, int start) {
+        if (parsed instanceof Expression) return (Expression) parsed;
+        throw error("Expected a value, not a condition", start);
+    }
+
+    private IllegalArgumentException error(String message) {
+        return error(message, tokenStart);
+    }
+
+    private IllegalArgumentException error(String message, int at) {
+        return new IllegalArgumentException(message + " at " + (at + 1) + " in \"" + source + "\"");
+    }
+
+    /** Read the next token */
+    private void next() {
+        while (position < source.length() && Character.isWhitespace(source.charAt(position))) position++;
+        tokenStart = position;
+
+        if (position == source.length()) {
+            token = Token.END;
+            text = "";
+            return;
+        }
+
+        char c = source.charAt(position);
+
+        if (Character.isDigit(c) || (c == '.' && position + 1 < source.length() && Character.isDigit(source.charAt(position + 1)))) {
+            while (position < source.length() && (Character.isDigit(source.charAt(position)) || source.charAt(position) == '.')) position++;
+            token = Token.NUMBER;
+            text = source.substring(tokenStart, position);
+
+            try {
+                number = Double.parseDouble(text);
+            } catch (NumberFormatException e) {
+                throw error("Invalid number '" + text + "'");
+            }
+
+            return;
+        }
+
+        if (Character.isLetter(c) || c == '_') {
+            while (position < source.length() && (Character.isLetterOrDigit(source.charAt(position)) || source.charAt(position) == '_')) position++;
+            token = Token.NAME;
+            text = source.substring(tokenStart, position).toLowerCase();
+            return;
+        }
+
+        token = Token.SYMBOL;
+        if ((c == '<' || c == '>' || c == '=' || c == '!') && position + 1 < source.length() && source.charAt(position + 1) == '=') {
+            text = source.substring(position, position + 2);
+            position += 2;
+            return;
+        }
+
+        if ("()[],.+-*/<>".indexOf(c) == -1) throw error("Unexpected '" + c + "'");
+        text = String.valueOf(c);
+        position++;
+    }
+}
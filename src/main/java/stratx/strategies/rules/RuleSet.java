@@ -0,0 +1,109 @@
+package stratx.strategies.rules;
+
+import stratx.indicators.Indicator;
+import stratx.utils.Candlestick;
+import stratx.utils.Signal;
+
+/** Entry & exit rules written as expressions, e.g. {@code rsi(14) < 30 and close > wma(30)} (See {@link RuleParser} for the syntax).
+ * They are compiled once into a tree of nodes that evaluates without allocating, so new rules can be tried without recompiling
+ * & without interpreting them on every candle. The indicators the rules use are inputs (See {@link stratx.indicators.IndicatorGraph}),
+ * shared with identical indicators of the strategy & precomputed in backtests like any other.
+ * Signals BUY while the entry rule holds, SELL while the exit rule holds, HOLD when neither or both do.
+ * A rule doesn't hold while it depends on a value that isn't known yet (See {@link Condition}), even under a not. */
+public class RuleSet extends Indicator {
+    private final String entryRule;
+    private final String exitRule;
+    /** Null if there is no such rule, it never holds */
+    private final Condition entry;
+    private final Condition exit;
+    private final Condition.Crosses[] crossings;
+    private final int lookback;
+    private boolean entered = false;
+    private boolean exited = false;
+    private long lastCloseTime = -1;
+
+
+    /** @param entryRule When to buy, null for never
+     * @param exitRule When to sell, null for never
+     * @throws IllegalArgumentException If a rule isn't valid */
+    public RuleSet(String entryRule, String exitRule) {
+        super("Rules");
+        this.entryRule = entryRule;
+        this.exitRule = exitRule;
+
+        RuleParser parser = new RuleParser(this);
+        this.entry = entryRule == null ? null : parser.parse(entryRule);
+        this.exit = exitRule == null ? null : parser.parse(exitRule);
+        this.crossings = parser.getCrossings();
+        this.lookback = parser.getLookback();
+    }
+
+    @Override
+    public void update(Candlestick candle) {
+        if (candle.getCloseTime() < lastCloseTime) return;
+        boolean replace = candle.getCloseTime() == lastCloseTime;
+
+        for (Condition.Crosses crosses : crossings)
+            crosses.update(replace);
+
+        entered = entry != null && entry.test() == Condition.TRUE;
+        exited = exit != null && exit.test() == Condition.TRUE;
+        lastCloseTime = candle.getCloseTime();
+    }
+
+    @Override
+    public void warmUp(Candlestick candle) {
+        update(candle);
+    }
+
+    @Override
+    public Signal getSignal() {
+        if (entered == exited) return Signal.HOLD;
+        return entered ? Signal.BUY : Signal.SELL;
+    }
+
+    /** @return If there is an entry rule, without one the rules never buy */
+    public boolean hasEntry() {
+        return entry != null;
+    }
+
+    /** @return If there is an exit rule, without one the rules never sell */
+    public boolean hasExit() {
+        return exit != null;
+    }
+
+    @Override
+    public int getLookback() {
+        return lookback;
+    }
+
+    /** Add an indicator a rule reads, by {@link RuleParser}
+     * @return Its input index */
+    int addRuleInput(Indicator indicator) {
+        addInput(indicator);
+        return getInputs().size() - 1;
+    }
+
+    /** The graph can swap inputs for identical ones, so the nodes read them through here */
+    Indicator input(int index) {
+        return getInput(index);
+    }
+
+    /** @return If the entry rule held on the latest candle */
+    public boolean isEntered() {
+        return entered;
+    }
+
+    /** @return If the exit rule held on the latest candle */
+    public boolean isExited() {
+        return exited;
+    }
+
+    public String getEntryRule() {
+        return entryRule;
+    }
+
+    public String getExitRule() {
+        return exitRule;
+    }
+}
@@ -1,11 +1,23 @@
 package stratx.utils;
 
-public class BuySellSignals {
-    public int buySignals;
-    public int sellSignals;
+/** What the strategy's indicators signaled on a candle, taken once per candle
+ * so every buy/sell check of that candle reads the same signals */
+public final class BuySellSignals {
+    public final int buySignals;
+    public final int sellSignals;
+    /** If every indicator required for a buy signaled BUY */
+    public final boolean buyRequirementsMet;
+    /** If every indicator required for a sell signaled SELL */
+    public final boolean sellRequirementsMet;
 
     public BuySellSignals(int b, int s) {
+        this(b, s, true, true);
+    }
+
+    public BuySellSignals(int b, int s, boolean buyRequirementsMet, boolean sellRequirementsMet) {
         buySignals = b;
         sellSignals = s;
+        this.buyRequirementsMet = buyRequirementsMet;
+        this.sellRequirementsMet = sellRequirementsMet;
     }
 }
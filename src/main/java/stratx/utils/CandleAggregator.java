@@ -0,0 +1,181 @@
+package stratx.utils;
+
+import com.binance.api.client.domain.market.CandlestickInterval;
+
+/** Incrementally builds higher interval OHLCV candles out of lower interval ones.
+ * Buckets line up with the exchange's candles, so a bucket's close time is
+ * its open time + interval - 1, like the close times of downloaded candles.
+ *
+ * A bucket is completed by its last candle, or by a candle of a later bucket
+ * (When the data has a gap). Completed buckets are read with {@link #poll()}
+ * and the getters, poll until it returns false before adding the next candle.
+ * Allocation free, the raw (Not heikin ashi) values must be added.
+ *
+ * The first bucket is left out if the candles start after its open (e.g. a range read from the middle of an hour),
+ * it would look like a whole candle. The source interval is taken from the gaps between the candles,
+ * if the first buckets only get one candle each the source interval isn't shorter & adding throws an IllegalArgumentException. */
+public class CandleAggregator {
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+    /** Epoch was a thursday, weekly candles open on monday */
+    private static final long WEEK_OFFSET_MS = 4 * DAY_MS;
+
+    private final long intervalMs;
+    private final long offsetMs;
+
+    // The bucket being built
+    private boolean building = false;
+    private long bucketClose;
+    private double open;
+    private double high;
+    private double low;
+    private double close;
+    private long volume;
+    private int bucketCandles;
+    private long bucketFirstCloseTime;
+    /** Smallest gap between the candles of the bucket */
+    private long bucketMinGap;
+
+    /** If no bucket was completed yet */
+    private boolean first = true;
+    /** If a bucket got more than one candle, so the source interval is shorter */
+    private boolean finer = false;
+    private int singleCandleBuckets = 0;
+    private long previousCloseTime;
+
+    // Completed buckets waiting to be polled, a gap can complete two buckets with one candle
+    private final long[] readyCloseTime = new long[2];
+    private final double[] readyOpen = new double[2];
+    private final double[] readyHigh = new double[2];
+    private final double[] readyLow = new double[2];
+    private final double[] readyClose = new double[2];
+    private final long[] readyVolume = new long[2];
+    private int readyCount = 0;
+    private int readyIndex = 0;
+    private int current = -1;
+
+
+    public CandleAggregator(CandlestickInterval interval) {
+        if (interval == CandlestickInterval.MONTHLY) throw new IllegalArgumentException("Months aren't a fixed length, can't resample to them");
+        this.intervalMs = Utils.binanceIntervalToMs(interval);
+        this.offsetMs = interval == CandlestickInterval.WEEKLY ? WEEK_OFFSET_MS : 0;
+    }
+
+    public CandleAggregator(long intervalMs) {
+        if (intervalMs <= 0) throw new IllegalArgumentException("Interval must be greater than 0");
+        this.intervalMs = intervalMs;
+        this.offsetMs = 0;
+    }
+
+    /** Add the next lower interval candle, candles must be added in close time order */
+    public void add(long closeTime, double open, double high, double low, double close, long volume) {
+        if (readyIndex == readyCount) readyIndex = readyCount = 0; // Everything was polled
+        long bucketClose = Math.floorDiv(closeTime - offsetMs, intervalMs) * intervalMs + offsetMs + intervalMs - 1;
+
+        if (building && bucketClose != this.bucketClose) complete(); // Gap, the last candles of the bucket are missing
+
+        if (!building) {
+            building = true;
+            this.bucketClose = bucketClose;
+            this.open = open;
+            this.high = high;
+            this.low = low;
+            this.volume = 0;
+            this.bucketCandles = 0;
+            this.bucketFirstCloseTime = closeTime;
+            this.bucketMinGap = Long.MAX_VALUE;
+        } else {
+            this.high = Math.max(this.high, high);
+            this.low = Math.min(this.low, low);
+            if (closeTime > previousCloseTime) bucketMinGap = Math.min(bucketMinGap, closeTime - previousCloseTime);
+        }
+
+        bucketCandles++;
+        previousCloseTime = closeTime;
+
+        this.close = close;
+        this.volume += volume;
+
+        if (closeTime >= bucketClose) complete();
+    }
+
+    /** Complete the bucket being built, even if it is missing candles */
+    public void flush() {
+        if (readyIndex == readyCount) readyIndex = readyCount = 0;
+        if (building) complete();
+    }
+
+    /** Drop the bucket being built & anything not yet polled, the next candle starts over */
+    public void reset() {
+        building = false;
+        first = true;
+        readyIndex = readyCount = 0;
+        current = -1;
+    }
+
+    private void complete() {
+        building = false;
+        boolean partial = first && !startsAtOpen();
+        first = false;
+
+        if (bucketCandles > 1) finer = true;
+        else if (!finer && ++singleCandleBuckets >= 3)
+            throw new IllegalArgumentException("The candles are at least " + intervalMs + "ms apart, resample them to a longer interval");
+
+        if (partial) return;
+        readyCloseTime[readyCount] = bucketClose;
+        readyOpen[readyCount] = open;
+        readyHigh[readyCount] = high;
+        readyLow[readyCount] = low;
+        readyClose[readyCount] = close;
+        readyVolume[readyCount] = volume;
+        readyCount++;
+    }
+
+    /** @return If the bucket's first candle opened with the bucket, judged by the gaps between its candles */
+    private boolean startsAtOpen() {
+        if (bucketCandles < 2) return false;
+        long bucketOpen = bucketClose - intervalMs + 1;
+        return bucketFirstCloseTime - bucketMinGap + 1 <= bucketOpen;
+    }
+
+    /** Move to the next completed bucket, its values are then returned by the getters
+     * @return false if there is no completed bucket left */
+    public boolean poll() {
+        if (readyIndex >= readyCount) return false;
+        current = readyIndex++;
+        return true;
+    }
+
+    /** @return If a bucket is being built (Some of its candles were added) */
+    public boolean isBuilding() {
+        return building;
+    }
+
+    public long getIntervalMs() {
+        return intervalMs;
+    }
+
+    public long getCloseTime() {
+        return readyCloseTime[current];
+    }
+
+    public double getOpen() {
+        return readyOpen[current];
+    }
+
+    public double getHigh() {
+        return readyHigh[current];
+    }
+
+    public double getLow() {
+        return readyLow[current];
+    }
+
+    public double getClose() {
+        return readyClose[current];
+    }
+
+    public long getVolume() {
+        return readyVolume[current];
+    }
+}
@@ -0,0 +1,156 @@
+package stratx.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** Columnar (struct of arrays) store of raw candle values.
+ * Uses a fraction of the heap of one Candlestick object per candle,
+ * candlestick objects are only created on demand with {@link #toCandlestick(int, Candlestick)} */
+public class CandleSeries {
+    private long[] closeTime;
+    private double[] open;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private long[] volume;
+    private int size = 0;
+
+
+    public CandleSeries() {
+        this(1024);
+    }
+
+    public CandleSeries(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.closeTime = new long[capacity];
+        this.open = new double[capacity];
+        this.high = new double[capacity];
+        this.low = new double[capacity];
+        this.close = new double[capacity];
+        this.volume = new long[capacity];
+    }
+
+    public void add(long closeTime, double open, double high, double low, double close, long volume) {
+        if (size == this.closeTime.length) grow();
+
+        this.closeTime[size] = closeTime;
+        this.open[size] = open;
+        this.high[size] = high;
+        this.low[size] = low;
+        this.close[size] = close;
+        this.volume[size] = volume;
+        size++;
+    }
+
+    /** Make room for at least this many candles, to avoid growing while adding them */
+    public void ensureCapacity(int capacity) {
+        if (capacity > this.closeTime.length) resize(capacity);
+    }
+
+    private void grow() {
+        resize(this.closeTime.length + (this.closeTime.length >> 1) + 1);
+    }
+
+    private void resize(int capacity) {
+        this.closeTime = Arrays.copyOf(this.closeTime, capacity);
+        this.open = Arrays.copyOf(this.open, capacity);
+        this.high = Arrays.copyOf(this.high, capacity);
+        this.low = Arrays.copyOf(this.low, capacity);
+        this.close = Arrays.copyOf(this.close, capacity);
+        this.volume = Arrays.copyOf(this.volume, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Remove every candle, keeping the allocated capacity */
+    public void clear() {
+        size = 0;
+    }
+
+    public long getCloseTime(int index) {
+        checkIndex(index);
+        return closeTime[index];
+    }
+
+    public double getOpen(int index) {
+        checkIndex(index);
+        return open[index];
+    }
+
+    public double getHigh(int index) {
+        checkIndex(index);
+        return high[index];
+    }
+
+    public double getLow(int index) {
+        checkIndex(index);
+        return low[index];
+    }
+
+    public double getClose(int index) {
+        checkIndex(index);
+        return close[index];
+    }
+
+    public long getVolume(int index) {
+        checkIndex(index);
+        return volume[index];
+    }
+
+    /** @return The smallest gap between the close times of the first candles, i.e. the series' interval.
+     * 0 if there are less than 2 candles */
+    public long getIntervalMs() {
+        long interval = Long.MAX_VALUE;
+        for (int i = 1; i < Math.min(size, 100); i++)
+            interval = Math.min(interval, closeTime[i] - closeTime[i - 1]);
+        return interval == Long.MAX_VALUE ? 0 : interval;
+    }
+
+    /** Create a candlestick for the given index, previous is the candle
+     * before it (Used for heikin ashi candles), or null */
+    public Candlestick toCandlestick(int index, Candlestick previous) {
+        checkIndex(index);
+        return new Candlestick(closeTime[index], open[index], high[index], low[index], close[index], volume[index], previous);
+    }
+
+    /** Materialize every candle, only use this for small series */
+    public List<Candlestick> toCandlesticks() {
+        ArrayList<Candlestick> candles = new ArrayList<>(size);
+        Candlestick previous = null;
+
+        for (int i = 0; i < size; i++) {
+            previous = toCandlestick(i, previous);
+            candles.add(previous);
+        }
+
+        return Collections.unmodifiableList(candles);
+    }
+
+    /** @return The values the series' candlesticks have, i.e. this series converted to
+     * heikin ashi candles when those are on, otherwise this series itself */
+    public CandleSeries toCandlestickValues() {
+        if (!Candlestick.isHeikinAshi()) return this;
+
+        CandleSeries converted = new CandleSeries(size);
+        Candlestick previous = null;
+
+        for (int i = 0; i < size; i++) {
+            previous = toCandlestick(i, previous);
+            converted.add(closeTime[i], previous.getOpen(), previous.getHigh(), previous.getLow(), previous.getClose(), volume[i]);
+        }
+
+        return converted;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+}
@@ -0,0 +1,96 @@
+package stratx.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/** A forward only, lazily read stream of candles.
+ * Only the candle being handed out is kept, so memory use is constant
+ * no matter how many candles the source holds. */
+public abstract class CandleSource implements Iterator<Candlestick>, Closeable {
+    protected long closeTime;
+    protected double open;
+    protected double high;
+    protected double low;
+    protected double close;
+    protected long volume;
+
+    private Candlestick previous = null;
+    private boolean hasNext = false;
+    private boolean advanced = false;
+    private int read = 0;
+
+
+    /** Read the next candle into the protected fields
+     * @return false if there are no more candles */
+    protected abstract boolean advance() throws IOException;
+
+    @Override
+    public boolean hasNext() {
+        if (!advanced) {
+            try {
+                hasNext = advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            advanced = true;
+        }
+
+        return hasNext;
+    }
+
+    @Override
+    public Candlestick next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        advanced = false;
+        read++;
+
+        previous = new Candlestick(closeTime, open, high, low, close, volume, previous);
+        return previous;
+    }
+
+    /** Read the remaining candles into a series, without creating candlestick objects */
+    public CandleSeries toSeries() {
+        CandleSeries series = new CandleSeries();
+
+        while (hasNext()) {
+            advanced = false;
+            read++;
+            series.add(closeTime, open, high, low, close, volume);
+        }
+
+        return series;
+    }
+
+    /** @return The amount of candles handed out so far */
+    public int getRead() {
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {}
+
+    /** Stream the candles of an in-memory series */
+    public static CandleSource of(CandleSeries series) {
+        return new CandleSource() {
+            private int index = 0;
+
+            @Override
+            protected boolean advance() {
+                if (index >= series.size()) return false;
+
+                closeTime = series.getCloseTime(index);
+                open = series.getOpen(index);
+                high = series.getHigh(index);
+                low = series.getLow(index);
+                close = series.getClose(index);
+                volume = series.getVolume(index);
+                index++;
+                return true;
+            }
+        };
+    }
+}
@@ -4,6 +4,7 @@ import stratx.StratX;
 
 /** A class representing a candlestick/OHLC values. */
 public class Candlestick {
+    private static final boolean HEIKIN_ASHI = StratX.getConfig().getBoolean("heikin-ashi-candles", false);
     private static int MAX_ID = 0;
     private int ID = MAX_ID++;
     private final long closeTime;
@@ -12,9 +13,12 @@ public class Candlestick {
     private double high;
     private double low;
     private double close;
+    // The candle's own values, before being turned into a heikin ashi candle
+    private final double unmodifiedOpen;
+    private double unmodifiedHigh;
+    private double unmodifiedLow;
     private double unmodifiedClose;
     private long volume;
-    private final Candlestick previous;
 
 
     public Candlestick(long closeTime, double open, double high, double low, double close, long volume, Candlestick previous) throws RuntimeException {
@@ -28,7 +32,8 @@ public class Candlestick {
         this.closeTime = closeTime;
         this.isFinal = isFinal;
 
-        if (StratX.getConfig().getBoolean("heikin-ashi-candles", false)) {
+        // The previous candle is only needed here, it is not kept so candles don't chain up in memory
+        if (HEIKIN_ASHI) {
             this.open = previous == null ? open : (previous.getOpen() + previous.getClose()) / 2.0;
             this.high = Math.max(high, Math.max(open, close));
             this.low = Math.min(low, Math.min(open, close));
@@ -40,9 +45,31 @@ public class Candlestick {
             this.close = close;
         }
 
+        this.unmodifiedOpen = open;
+        this.unmodifiedHigh = high;
+        this.unmodifiedLow = low;
         this.unmodifiedClose = close;
         this.volume = volume;
-        this.previous = previous;
+    }
+
+    private Candlestick(Candlestick other) {
+        this.closeTime = other.closeTime;
+        this.isFinal = other.isFinal;
+        this.open = other.open;
+        this.high = other.high;
+        this.low = other.low;
+        this.close = other.close;
+        this.unmodifiedOpen = other.unmodifiedOpen;
+        this.unmodifiedHigh = other.unmodifiedHigh;
+        this.unmodifiedLow = other.unmodifiedLow;
+        this.unmodifiedClose = other.unmodifiedClose;
+        this.volume = other.volume;
+        this.ID = other.ID; // Persist id
+    }
+
+    /** @return If candles are converted to heikin ashi candles (heikin-ashi-candles in config.yml) */
+    public static boolean isHeikinAshi() {
+        return HEIKIN_ASHI;
     }
 
     public boolean isFinal() {
@@ -65,6 +92,7 @@ public class Candlestick {
     public void setHigh(double high) {
         if (isFinal) throw new IllegalStateException("Cannot modify closed candlestick");
         this.high = high;
+        this.unmodifiedHigh = high;
     }
 
     public double getLow() {
@@ -74,6 +102,7 @@ public class Candlestick {
     public void setLow(double low) {
         if (isFinal) throw new IllegalStateException("Cannot modify closed candlestick");
         this.low = low;
+        this.unmodifiedLow = low;
     }
 
     public double getClose() {
@@ -86,6 +115,18 @@ public class Candlestick {
         this.unmodifiedClose = close;
     }
 
+    public double getUnmodifiedOpen() {
+        return unmodifiedOpen;
+    }
+
+    public double getUnmodifiedHigh() {
+        return unmodifiedHigh;
+    }
+
+    public double getUnmodifiedLow() {
+        return unmodifiedLow;
+    }
+
     public double getUnmodifiedClose() {
         return unmodifiedClose;
     }
@@ -137,8 +178,6 @@ public class Candlestick {
     @Override
     public Candlestick clone() throws CloneNotSupportedException {
         super.clone();
-        Candlestick clone = new Candlestick(closeTime, open, high, low, close, volume, this.previous, isFinal);
-        clone.setID(ID); // Persist id
-        return clone;
+        return new Candlestick(this);
     }
 }
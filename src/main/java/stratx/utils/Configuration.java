@@ -87,6 +87,18 @@ public class Configuration {
         return new ArrayList<>();
     }
 
+    /** @return If the path is set, without warning when it isn't */
+    public boolean has(String path) {
+        Object obj = configMap;
+
+        for (String key : path.split("\\.")) {
+            if (!(obj instanceof Map) || !((Map<?, ?>) obj).containsKey(key)) return false;
+            obj = ((Map<?, ?>) obj).get(key);
+        }
+
+        return true;
+    }
+
     public boolean exists() {
         return exists;
     }
@@ -0,0 +1,322 @@
+package stratx.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/** Index of the .strx files in a folder, persisted to {@link #INDEX_FILE} in that folder.
+ * Files are only opened when they are new or their size/modified time changed,
+ * so listing & finding price data doesn't read every file's header.
+ * Symbol & interval come from the downloader's file names: SYMBOL_INTERVAL_DATE[_ID].strx
+ * Files that can't be indexed (Other names, corrupt headers) are still listed, without metadata (See {@link Entry#isIndexed()}) */
+public class DataCatalog {
+    public static final String INDEX_FILE = "catalog.json";
+    private static final int INDEX_VERSION = 1;
+    /** The checksum of an entry that wasn't verified yet */
+    private static final long NO_CHECKSUM = -1;
+    private static final Logger LOGGER = LogManager.getLogger("Catalog");
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private final File folder;
+    private final File indexFile;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+
+    public DataCatalog(File folder) {
+        this.folder = folder;
+        this.indexFile = new File(folder, INDEX_FILE);
+        readIndex();
+    }
+
+    /** Index new & changed files, drop deleted ones and save the index if anything changed */
+    public synchronized void refresh() {
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(".strx"));
+        if (files == null) files = new File[0];
+
+        boolean changed = false;
+        Map<String, File> present = new HashMap<>();
+        for (File file : files) present.put(file.getName(), file);
+
+        changed |= entries.keySet().retainAll(present.keySet());
+
+        for (File file : present.values()) {
+            Entry entry = entries.get(file.getName());
+            if (entry != null && entry.size == file.length() && entry.modified == file.lastModified()) continue;
+
+            try {
+                entries.put(file.getName(), index(file));
+            } catch (Exception e) { // Remembered by size & modified time, so it is only tried again once the file changes
+                LOGGER.warn("Can't index {}: {}", file.getName(), e.getMessage());
+                entries.put(file.getName(), unindexed(file, String.valueOf(e.getMessage())));
+            }
+
+            changed = true;
+        }
+
+        if (changed) writeIndex();
+    }
+
+    /** @return Every file, ordered by symbol, interval & first close time. Files that couldn't be indexed last, by name */
+    public synchronized List<Entry> getEntries() {
+        List<Entry> list = new ArrayList<>(entries.values());
+        list.sort(Comparator.comparing((Entry e) -> e.symbol, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(e -> e.interval, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparingLong(e -> e.firstCloseTime)
+                .thenComparing(e -> e.file));
+        return list;
+    }
+
+    public synchronized TreeSet<String> getSymbols() {
+        TreeSet<String> symbols = new TreeSet<>();
+        for (Entry entry : entries.values())
+            if (entry.isIndexed()) symbols.add(entry.symbol);
+        return symbols;
+    }
+
+    /** Pick the files that together cover [fromTime, toTime] for the symbol & interval,
+     * in time order. Files fully covered by an earlier pick are skipped, overlaps
+     * between picked files are left to the reader to trim.
+     * @return The files to read, empty if there is no data in the range */
+    public synchronized List<Entry> find(String symbol, String interval, long fromTime, long toTime) {
+        List<Entry> candidates = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.isIndexed() && entry.symbol.equalsIgnoreCase(symbol) && entry.interval.equals(interval)
+                    && entry.count > 0 && entry.lastCloseTime >= fromTime && entry.firstCloseTime <= toTime) {
+                candidates.add(entry);
+            }
+        }
+
+        // Longest file first on ties, so it wins over the ones it contains
+        candidates.sort(Comparator.comparingLong((Entry e) -> e.firstCloseTime).thenComparingLong(e -> -e.lastCloseTime));
+
+        List<Entry> picked = new ArrayList<>();
+        long coveredUntil = Long.MIN_VALUE;
+        for (Entry entry : candidates) {
+            if (entry.lastCloseTime <= coveredUntil) continue;
+            picked.add(entry);
+            coveredUntil = entry.lastCloseTime;
+        }
+
+        return Collections.unmodifiableList(picked);
+    }
+
+    /** Reads the whole file, so unlike indexing it is only done on request.
+     * The first verify of an entry records the checksum, later ones compare against it
+     * @return If the file is unchanged since it was indexed & still matches its checksum */
+    public synchronized boolean verify(Entry entry) {
+        File file = entry.getFile();
+        if (!entry.isIndexed() || file.length() != entry.size || file.lastModified() != entry.modified) return false;
+
+        try {
+            long checksum = checksum(file);
+            if (entry.checksum != NO_CHECKSUM) return checksum == entry.checksum;
+
+            entry.checksum = checksum;
+            writeIndex();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private Entry index(File file) throws IOException {
+        String[] parts = file.getName().replace(".strx", "").split("_");
+        if (parts.length < 3) throw new IOException("Not a downloader file name");
+
+        Entry entry = new Entry();
+        entry.file = file.getName();
+        entry.symbol = parts[0].toUpperCase();
+        entry.interval = parts[1];
+        entry.size = file.length();
+        entry.modified = file.lastModified();
+        entry.version = StrxFormat.readVersion(file);
+
+        if (entry.version == StrxFormat.VERSION_2) {
+            try (StrxBlockFile strx = new StrxBlockFile(file)) {
+                int blocks = strx.getBlockCount();
+                entry.count = strx.size();
+                entry.startTime = strx.getStartTime();
+                entry.endTime = strx.getEndTime();
+                entry.firstCloseTime = blocks == 0 ? 0 : strx.getBlockFirstCloseTime(0);
+                entry.lastCloseTime = blocks == 0 ? 0 : strx.getBlockLastCloseTime(blocks - 1);
+            }
+        } else if (entry.version == StrxFormat.VERSION_1) {
+            try (StrxMappedFile strx = new StrxMappedFile(file)) {
+                entry.count = strx.size();
+                entry.startTime = strx.getStartTime();
+                entry.endTime = strx.getEndTime();
+                entry.firstCloseTime = strx.size() == 0 ? 0 : strx.getCloseTime(0);
+                entry.lastCloseTime = strx.size() == 0 ? 0 : strx.getCloseTime(strx.size() - 1);
+            }
+        } else {
+            throw new IOException("Not a valid strx file");
+        }
+
+        entry.folder = folder;
+        return entry;
+    }
+
+    private Entry unindexed(File file, String error) {
+        Entry entry = new Entry();
+        entry.file = file.getName();
+        entry.size = file.length();
+        entry.modified = file.lastModified();
+        entry.error = error;
+        entry.folder = folder;
+        return entry;
+    }
+
+    private static long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                crc.update(buffer.array(), 0, buffer.limit());
+                buffer.clear();
+            }
+        }
+
+        return crc.getValue();
+    }
+
+    private void readIndex() {
+        if (!indexFile.exists()) return;
+
+        try (Reader reader = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8)) {
+            Index index = GSON.fromJson(reader, Index.class);
+            if (index == null || index.version != INDEX_VERSION || index.files == null) return;
+
+            for (Entry entry : index.files) {
+                entry.folder = folder;
+                entries.put(entry.file, entry);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Failed to read the catalog index, rebuilding it: {}", e.getMessage());
+            entries.clear();
+        }
+    }
+
+    private void writeIndex() {
+        Index index = new Index();
+        index.version = INDEX_VERSION;
+        index.files = getEntries();
+
+        // Written to a temp file first, so a crash never leaves a half written index
+        File temp = new File(folder, INDEX_FILE + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+                GSON.toJson(index, writer);
+            }
+
+            Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to save the catalog index: {}", e.getMessage());
+        }
+    }
+
+    private static class Index {
+        int version;
+        List<Entry> files;
+    }
+
+    /** A .strx file & what the index knows about it */
+    public static class Entry {
+        private transient File folder;
+        private String file;
+        private String symbol;
+        private String interval;
+        private int version;
+        private long startTime;
+        private long endTime;
+        private long firstCloseTime;
+        private long lastCloseTime;
+        private int count;
+        private long size;
+        private long modified;
+        private long checksum = NO_CHECKSUM;
+        /** Why the file couldn't be indexed, null if it was */
+        private String error;
+
+        public File getFile() {
+            return new File(folder, file);
+        }
+
+        /** @return If the file's metadata is known, otherwise only the file, size & modified time are */
+        public boolean isIndexed() {
+            return error == null;
+        }
+
+        /** @return Why the file couldn't be indexed, null if it was */
+        public String getError() {
+            return error;
+        }
+
+        /** @return The symbol, null if the file isn't indexed */
+        public String getSymbol() {
+            return symbol;
+        }
+
+        /** @return The interval id, e.g. 5m. Null if the file isn't indexed */
+        public String getInterval() {
+            return interval;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        /** @return The start time from the header (The requested range) */
+        public long getStartTime() {
+            return startTime;
+        }
+
+        /** @return The end time from the header (The requested range) */
+        public long getEndTime() {
+            return endTime;
+        }
+
+        public long getFirstCloseTime() {
+            return firstCloseTime;
+        }
+
+        public long getLastCloseTime() {
+            return lastCloseTime;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /** @return The CRC32 of the file, -1 until it is first verified (See {@link DataCatalog#verify(Entry)}) */
+        public long getChecksum() {
+            return checksum;
+        }
+
+        @Override
+        public String toString() {
+            return file;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package stratx.utils;
+
+/** Exponentially smoothed average of a stream of values, O(1) & allocation free.
+ * Seeded with the simple average of the first period values, like the EMA indicator.
+ * The latest value can be replaced, e.g. when a candle is updated before it closes. */
+public class ExpAverage {
+    private final int period;
+    private final double alpha;
+    private double value = 0;
+    /** The value before the latest input, to replace the latest input */
+    private double previousValue = 0;
+    /** Sum of the inputs while seeding */
+    private double sum = 0;
+    private double lastInput = 0;
+    private int count = 0;
+
+
+    public ExpAverage(int period, double alpha) {
+        if (period <= 0) throw new IllegalArgumentException("Period must be greater than 0");
+        this.period = period;
+        this.alpha = alpha;
+    }
+
+    /** Exponential moving average, alpha = 2 / (period + 1) */
+    public static ExpAverage ema(int period) {
+        return new ExpAverage(period, 2.0 / (period + 1.0D));
+    }
+
+    /** Wilder's smoothing (TradingView's ta.rma), alpha = 1 / period */
+    public static ExpAverage wilder(int period) {
+        return new ExpAverage(period, 1.0 / period);
+    }
+
+    public void add(double input) {
+        count++;
+        lastInput = input;
+
+        if (count < period) {
+            sum += input;
+        } else if (count == period) {
+            sum += input;
+            value = sum / period;
+        } else {
+            previousValue = value;
+            value = alpha * (input - value) + value;
+        }
+    }
+
+    /** Replace the latest input */
+    public void replaceLast(double input) {
+        if (count == 0) {
+            add(input);
+            return;
+        }
+
+        if (count <= period) sum -= lastInput;
+        else value = previousValue;
+        count--;
+        add(input);
+    }
+
+    /** @return The average, NaN until {@link #isReady()} */
+    public double get() {
+        return isReady() ? value : Double.NaN;
+    }
+
+    public boolean isReady() {
+        return count >= period;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    public void reset() {
+        value = previousValue = sum = lastInput = 0;
+        count = 0;
+    }
+}
@@ -1,55 +1,183 @@
 package stratx.utils;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
 
+/** The latest candles, oldest first (Index 0), up to the max length.
+ * Stored in a fixed size circular buffer, so adding & evicting are O(1).
+ * Candles must be added in close time order.
+ *
+ * The values are also kept in parallel primitive arrays, indicators should read
+ * them with {@link #closeAt(int)} etc. instead of going through the candle objects. */
 public class PriceHistory {
     private int maxLength;
-    private final List<Candlestick> history = new ArrayList<>();
+    private Candlestick[] buffer;
+    private long[] closeTimes;
+    private double[] opens;
+    private double[] highs;
+    private double[] lows;
+    private double[] closes;
+    private long[] volumes;
+    /** Index of the oldest candle in the buffer */
+    private int head = 0;
+    private int size = 0;
+    private final List<Candlestick> view = new AbstractList<Candlestick>() {
+        @Override
+        public Candlestick get(int index) {
+            return PriceHistory.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    };
 
     public PriceHistory(int maxLength) {
+        if (maxLength <= 0) throw new IllegalArgumentException("Max length must be greater than 0");
         this.maxLength = maxLength;
+        allocate(maxLength);
+    }
+
+    private void allocate(int capacity) {
+        this.buffer = new Candlestick[capacity];
+        this.closeTimes = new long[capacity];
+        this.opens = new double[capacity];
+        this.highs = new double[capacity];
+        this.lows = new double[capacity];
+        this.closes = new double[capacity];
+        this.volumes = new long[capacity];
+    }
+
+    private void set(int slot, Candlestick candle) {
+        buffer[slot] = candle;
+        closeTimes[slot] = candle.getCloseTime();
+        opens[slot] = candle.getOpen();
+        highs[slot] = candle.getHigh();
+        lows[slot] = candle.getLow();
+        closes[slot] = candle.getClose();
+        volumes[slot] = candle.getVolume();
     }
 
+    /** Add the newest candle, evicting the oldest when full.
+     * A candle with the same close time as the latest replaces it (e.g. the final version of a live candle)
+     * @throws IllegalArgumentException If the candle closed before the latest one */
     public void add(Candlestick candlestick) {
-        if (history.contains(candlestick)) throw new IllegalArgumentException("Candlestick already exists in history");
-        history.add(candlestick);
-        if (history.size() > maxLength) history.remove(0);
+        if (size > 0) {
+            long latest = getLatestCloseTime();
+            if (candlestick.getCloseTime() == latest) {
+                set(slot(size - 1), candlestick);
+                return;
+            }
+
+            if (candlestick.getCloseTime() < latest) throw new IllegalArgumentException("Candlestick is older than the latest in history");
+        }
+
+        if (size == maxLength) {
+            set(head, candlestick);
+            head = (head + 1) % maxLength;
+        } else {
+            set(slot(size++), candlestick);
+        }
+    }
+
+    private int slot(int index) {
+        int slot = head + index;
+        return slot >= maxLength ? slot - maxLength : slot;
     }
 
     public int length() {
-        return history.size();
+        return size;
     }
 
+    /** @return A read-only view of the history, oldest first */
     public List<Candlestick> get() {
-        return history;
+        return view;
     }
 
     public Candlestick get(int index) {
-        return history.get(index);
+        return buffer[checkedSlot(index)];
+    }
+
+    private int checkedSlot(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return slot(index);
+    }
+
+    public long closeTimeAt(int index) {
+        return closeTimes[checkedSlot(index)];
+    }
+
+    public double openAt(int index) {
+        return opens[checkedSlot(index)];
+    }
+
+    public double highAt(int index) {
+        return highs[checkedSlot(index)];
+    }
+
+    public double lowAt(int index) {
+        return lows[checkedSlot(index)];
+    }
+
+    public double closeAt(int index) {
+        return closes[checkedSlot(index)];
+    }
+
+    public long volumeAt(int index) {
+        return volumes[checkedSlot(index)];
     }
 
     public Candlestick getLatest() {
-        if (history.size() == 0) return null;
-        return history.get(history.size() - 1);
+        if (size == 0) return null;
+        return buffer[slot(size - 1)];
+    }
+
+    /** @return The close time of the latest candle, or -1 if the history is empty */
+    public long getLatestCloseTime() {
+        if (size == 0) return -1;
+        return closeTimes[slot(size - 1)];
     }
 
+    /** Binary search, the history is in close time order */
     public Candlestick getByTime(long closingTime) {
-        for (Candlestick candlestick : history)
-            if (candlestick.getCloseTime() == closingTime) return candlestick;
+        int low = 0;
+        int high = size - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long time = closeTimes[slot(mid)];
+
+            if (time < closingTime) low = mid + 1;
+            else if (time > closingTime) high = mid - 1;
+            else return get(mid);
+        }
 
         return null;
     }
 
     public void clear() {
-        history.clear();
+        for (int i = 0; i < size; i++) buffer[slot(i)] = null;
+        head = 0;
+        size = 0;
     }
 
     public int getMaxLength() {
         return maxLength;
     }
 
+    /** Resize the history, keeping the latest candles that fit */
     public void setMaxLength(int maxLength) {
+        if (maxLength <= 0) throw new IllegalArgumentException("Max length must be greater than 0");
+        Candlestick[] kept = new Candlestick[Math.min(size, maxLength)];
+
+        for (int i = 0; i < kept.length; i++)
+            kept[i] = get(size - kept.length + i);
+
+        allocate(maxLength);
+        for (int i = 0; i < kept.length; i++) set(i, kept[i]);
         this.maxLength = maxLength;
+        this.head = 0;
+        this.size = kept.length;
     }
 }
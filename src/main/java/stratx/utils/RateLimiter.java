@@ -0,0 +1,49 @@
+package stratx.utils;
+
+/** Weight based token bucket, mirrors the exchange's "request weight per minute" limit.
+ * Weight refills continuously, so a burst up to the full budget is allowed
+ * and after that requests are spaced out evenly. Thread safe. */
+public class RateLimiter {
+    private final double capacity;
+    private final double refillPerMs;
+    private double available;
+    private long lastRefill;
+    private long acquired = 0;
+
+
+    public RateLimiter(int weightPerMinute) {
+        if (weightPerMinute <= 0) throw new IllegalArgumentException("Weight per minute must be greater than 0");
+        this.capacity = weightPerMinute;
+        this.refillPerMs = weightPerMinute / 60_000.0;
+        this.available = weightPerMinute;
+        this.lastRefill = System.currentTimeMillis();
+    }
+
+    /** Blocks until the weight is available, then uses it */
+    public synchronized void acquire(int weight) throws InterruptedException {
+        if (weight > capacity) throw new IllegalArgumentException("Weight " + weight + " is more than the limit of " + capacity);
+
+        while (true) {
+            refill();
+            if (available >= weight) {
+                available -= weight;
+                acquired += weight;
+                return;
+            }
+
+            long waitMs = (long) Math.ceil((weight - available) / refillPerMs);
+            this.wait(Math.max(waitMs, 1));
+        }
+    }
+
+    /** @return The total weight used so far */
+    public synchronized long getAcquired() {
+        return acquired;
+    }
+
+    private void refill() {
+        long now = System.currentTimeMillis();
+        available = Math.min(capacity, available + (now - lastRefill) * refillPerMs);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,57 @@
+package stratx.utils;
+
+import com.binance.api.client.domain.market.CandlestickInterval;
+
+import java.io.IOException;
+
+/** Streams higher interval candles built from a lower interval source,
+ * e.g. 5m, 15m or 1h candles out of a 1m download.
+ * A trailing bucket the source ends in the middle of is left out, it never closed,
+ * like a leading one the source starts in the middle of (See {@link CandleAggregator}).
+ * @throws IllegalArgumentException While reading, if the interval isn't longer than the source's */
+public class Resampler extends CandleSource {
+    private final CandleSource source;
+    private final CandleAggregator aggregator;
+
+
+    public Resampler(CandleSource source, CandlestickInterval interval) {
+        this.source = source;
+        this.aggregator = new CandleAggregator(interval);
+    }
+
+    @Override
+    protected boolean advance() throws IOException {
+        while (!aggregator.poll()) {
+            if (!source.advance()) return false;
+            aggregator.add(source.closeTime, source.open, source.high, source.low, source.close, source.volume);
+        }
+
+        closeTime = aggregator.getCloseTime();
+        open = aggregator.getOpen();
+        high = aggregator.getHigh();
+        low = aggregator.getLow();
+        close = aggregator.getClose();
+        volume = aggregator.getVolume();
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    /** Resample a whole series */
+    public static CandleSeries resample(CandleSeries series, CandlestickInterval interval) {
+        CandleAggregator aggregator = new CandleAggregator(interval);
+        CandleSeries resampled = new CandleSeries();
+
+        for (int i = 0; i < series.size(); i++) {
+            aggregator.add(series.getCloseTime(i), series.getOpen(i), series.getHigh(i), series.getLow(i), series.getClose(i), series.getVolume(i));
+
+            while (aggregator.poll())
+                resampled.add(aggregator.getCloseTime(), aggregator.getOpen(), aggregator.getHigh(), aggregator.getLow(), aggregator.getClose(), aggregator.getVolume());
+        }
+
+        return resampled;
+    }
+}
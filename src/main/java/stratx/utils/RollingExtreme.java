@@ -0,0 +1,95 @@
+package stratx.utils;
+
+/** Highest (or lowest) of the latest size values, O(1) amortized & allocation free per value.
+ * Keeps a monotonic deque of the window's candidates. Replacing the latest value
+ * rebuilds the deque from the window, O(size). */
+public class RollingExtreme {
+    private final boolean highest;
+    /** The window, the value added as number n is in slot n % size */
+    private final double[] values;
+    /** Numbers of the candidate values, best first, in a circular buffer */
+    private final long[] deque;
+    private int dequeHead = 0;
+    private int dequeSize = 0;
+    /** How many values were added */
+    private long added = 0;
+
+
+    public RollingExtreme(int size, boolean highest) {
+        if (size <= 0) throw new IllegalArgumentException("Size must be greater than 0");
+        this.highest = highest;
+        this.values = new double[size];
+        this.deque = new long[size];
+    }
+
+    public static RollingExtreme highest(int size) {
+        return new RollingExtreme(size, true);
+    }
+
+    public static RollingExtreme lowest(int size) {
+        return new RollingExtreme(size, false);
+    }
+
+    public void add(double value) {
+        values[(int) (added % values.length)] = value;
+        push(added++);
+    }
+
+    /** Replace the latest value */
+    public void replaceLast(double value) {
+        if (added == 0) {
+            add(value);
+            return;
+        }
+
+        values[(int) ((added - 1) % values.length)] = value;
+        dequeHead = dequeSize = 0;
+        for (long n = Math.max(0, added - values.length); n < added; n++) push(n);
+    }
+
+    private void push(long number) {
+        double value = valueOf(number);
+
+        // Values the new one beats can never be the extreme again
+        while (dequeSize > 0) {
+            double back = valueOf(deque[slot(dequeSize - 1)]);
+            if (highest ? back > value : back < value) break;
+            dequeSize--;
+        }
+
+        // Out of the window
+        if (dequeSize > 0 && deque[dequeHead] <= number - values.length) {
+            dequeHead = slot(1);
+            dequeSize--;
+        }
+
+        deque[slot(dequeSize++)] = number;
+    }
+
+    private double valueOf(long number) {
+        return values[(int) (number % values.length)];
+    }
+
+    private int slot(int index) {
+        int slot = dequeHead + index;
+        return slot >= deque.length ? slot - deque.length : slot;
+    }
+
+    /** @return The extreme of the window, NaN if it is empty */
+    public double get() {
+        return dequeSize == 0 ? Double.NaN : valueOf(deque[dequeHead]);
+    }
+
+    public boolean isFull() {
+        return added >= values.length;
+    }
+
+    public int getSize() {
+        return values.length;
+    }
+
+    public void reset() {
+        dequeHead = dequeSize = 0;
+        added = 0;
+    }
+}
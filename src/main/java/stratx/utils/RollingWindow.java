@@ -0,0 +1,102 @@
+package stratx.utils;
+
+/** Sum & sum of squares of the latest size values, O(1) & allocation free per value.
+ * The sums are recomputed from the window every so often, so floating point error can't build up.
+ * The latest value can be replaced, e.g. when a candle is updated before it closes. */
+public class RollingWindow {
+    private final double[] values;
+    /** Slot the next value goes in */
+    private int next = 0;
+    private int count = 0;
+    private double sum = 0;
+    private double sumSquares = 0;
+    private final int recomputeEvery;
+    private int sinceRecompute = 0;
+
+
+    public RollingWindow(int size) {
+        if (size <= 0) throw new IllegalArgumentException("Size must be greater than 0");
+        this.values = new double[size];
+        this.recomputeEvery = Math.max(1024, size);
+    }
+
+    public void add(double value) {
+        if (count == values.length) {
+            double evicted = values[next];
+            sum -= evicted;
+            sumSquares -= evicted * evicted;
+        } else {
+            count++;
+        }
+
+        values[next] = value;
+        next = next + 1 == values.length ? 0 : next + 1;
+        sum += value;
+        sumSquares += value * value;
+
+        if (++sinceRecompute >= recomputeEvery) recompute();
+    }
+
+    /** Replace the latest value */
+    public void replaceLast(double value) {
+        if (count == 0) {
+            add(value);
+            return;
+        }
+
+        int slot = next == 0 ? values.length - 1 : next - 1;
+        double old = values[slot];
+        values[slot] = value;
+        sum += value - old;
+        sumSquares += value * value - old * old;
+    }
+
+    private void recompute() {
+        sum = 0;
+        sumSquares = 0;
+
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+            sumSquares += values[i] * values[i];
+        }
+
+        sinceRecompute = 0;
+    }
+
+    public boolean isFull() {
+        return count == values.length;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getSize() {
+        return values.length;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    /** @return The average of the values in the window, 0 if it is empty */
+    public double getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /** @return The population variance of the values in the window */
+    public double getVariance() {
+        if (count == 0) return 0;
+        double mean = sum / count;
+        return Math.max(sumSquares / count - mean * mean, 0);
+    }
+
+    public double getStdDev() {
+        return Math.sqrt(getVariance());
+    }
+
+    public void reset() {
+        next = count = sinceRecompute = 0;
+        sum = sumSquares = 0;
+    }
+}
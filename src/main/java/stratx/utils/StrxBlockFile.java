@@ -0,0 +1,259 @@
+package stratx.utils;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/** Reader for v2 (compressed) .strx files.
+ *
+ * Layout: header, then blocks of up to BLOCK_SIZE candles:
+ * count (int), byte length (int), encoded data (see {@link StrxCodec})
+ * followed by the footer index:
+ * block count (int), per block: first close time, last close time, file offset (longs), count (int)
+ * and finally the footer offset (long) & FOOTER_MAGIC (int)
+ * If the footer is missing (Interrupted write) the index is rebuilt by walking the blocks. */
+public class StrxBlockFile implements Closeable {
+    public static final int BLOCK_SIZE = 1024;
+    public static final int FOOTER_MAGIC = 0xb4ffb4ff;
+    private static final int INDEX_ENTRY_SIZE = 28;
+
+    private final FileChannel channel;
+    private final long startTime;
+    private final long endTime;
+    private long[] firstCloseTime;
+    private long[] lastCloseTime;
+    private long[] offset;
+    private int[] count;
+    private int size;
+    /** Where the block data ends (The footer offset) */
+    private long dataEnd;
+    private boolean recovered = false;
+
+    // Reused between block reads
+    private final long[] closeTimeBuf = new long[BLOCK_SIZE];
+    private final double[] openBuf = new double[BLOCK_SIZE];
+    private final double[] highBuf = new double[BLOCK_SIZE];
+    private final double[] lowBuf = new double[BLOCK_SIZE];
+    private final double[] closeBuf = new double[BLOCK_SIZE];
+    private final long[] volumeBuf = new long[BLOCK_SIZE];
+
+
+    public StrxBlockFile(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+        try {
+            long length = channel.size();
+            if (length < StrxFormat.HEADER_SIZE) throw new IOException("File is too small to be a v2 strx file");
+
+            ByteBuffer header = read(0, StrxFormat.HEADER_SIZE);
+            if ((header.get(0) & 0xff) != 0xb4
+                    || (header.get(1) & 0xff) != 0xff
+                    || (header.get(2) & 0xff) != 0xb4
+                    || (header.get(3) & 0xff) != 0xff
+                    || (header.get(4) & 0xff) != StrxFormat.VERSION_2) {
+                throw new IOException("Not a valid v2 strx file!");
+            }
+
+            this.startTime = header.getLong(5);
+            this.endTime = header.getLong(13);
+
+            long footerOffset = findFooter(length);
+            if (footerOffset >= 0) readIndex(footerOffset);
+            else scanBlocks(length); // Interrupted before the footer was written
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** @return The footer offset, or -1 if the footer is missing or corrupt */
+    private long findFooter(long length) throws IOException {
+        if (length < StrxFormat.HEADER_SIZE + 16) return -1;
+
+        ByteBuffer trailer = read(length - 12, 12);
+        long footerOffset = trailer.getLong(0);
+        if (trailer.getInt(8) != FOOTER_MAGIC || footerOffset < StrxFormat.HEADER_SIZE || footerOffset > length - 16)
+            return -1;
+
+        int blocks = read(footerOffset, 4).getInt(0);
+        if (blocks < 0 || footerOffset + 4 + (long) blocks * INDEX_ENTRY_SIZE + 12 != length)
+            return -1;
+
+        return footerOffset;
+    }
+
+    private void readIndex(long footerOffset) throws IOException {
+        int blocks = read(footerOffset, 4).getInt(0);
+        this.firstCloseTime = new long[blocks];
+        this.lastCloseTime = new long[blocks];
+        this.offset = new long[blocks];
+        this.count = new int[blocks];
+
+        ByteBuffer index = read(footerOffset + 4, blocks * INDEX_ENTRY_SIZE);
+        long total = 0;
+        for (int i = 0; i < blocks; i++) {
+            firstCloseTime[i] = index.getLong();
+            lastCloseTime[i] = index.getLong();
+            offset[i] = index.getLong();
+            count[i] = index.getInt();
+            total += count[i];
+        }
+
+        if (total > Integer.MAX_VALUE) throw new IOException("Too many candles in file: " + total);
+        this.size = (int) total;
+        this.dataEnd = footerOffset;
+    }
+
+    /** Rebuild the index by walking the blocks, stopping at the first incomplete or invalid one */
+    private void scanBlocks(long length) throws IOException {
+        int blocks = 0;
+        long total = 0;
+        long position = StrxFormat.HEADER_SIZE;
+        this.firstCloseTime = new long[16];
+        this.lastCloseTime = new long[16];
+        this.offset = new long[16];
+        this.count = new int[16];
+
+        while (position + 8 <= length) {
+            int candles;
+            try {
+                candles = decodeAt(position, length);
+            } catch (IOException | RuntimeException e) {
+                break;
+            }
+
+            if (candles <= 0 || (blocks > 0 && closeTimeBuf[0] <= lastCloseTime[blocks - 1])) break;
+
+            if (blocks == count.length) {
+                firstCloseTime = Arrays.copyOf(firstCloseTime, blocks * 2);
+                lastCloseTime = Arrays.copyOf(lastCloseTime, blocks * 2);
+                offset = Arrays.copyOf(offset, blocks * 2);
+                count = Arrays.copyOf(count, blocks * 2);
+            }
+
+            firstCloseTime[blocks] = closeTimeBuf[0];
+            lastCloseTime[blocks] = closeTimeBuf[candles - 1];
+            offset[blocks] = position;
+            count[blocks] = candles;
+            blocks++;
+            total += candles;
+            position += 8 + read(position + 4, 4).getInt(0);
+        }
+
+        this.firstCloseTime = Arrays.copyOf(firstCloseTime, blocks);
+        this.lastCloseTime = Arrays.copyOf(lastCloseTime, blocks);
+        this.offset = Arrays.copyOf(offset, blocks);
+        this.count = Arrays.copyOf(count, blocks);
+        this.size = (int) Math.min(total, Integer.MAX_VALUE);
+        this.dataEnd = position;
+        this.recovered = true;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException("Unexpected end of strx file");
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    /** Decode a block and append its candles to the series */
+    public void readBlock(int block, CandleSeries into) throws IOException {
+        readBlock(block, into, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /** Decode a block and append the candles closing within [fromTime, toTime] to the series */
+    public void readBlock(int block, CandleSeries into, long fromTime, long toTime) throws IOException {
+        int candles = decodeAt(offset[block], dataEnd);
+        if (candles != count[block]) throw new IOException("Corrupt strx block " + block);
+
+        for (int i = 0; i < candles; i++) {
+            if (closeTimeBuf[i] < fromTime || closeTimeBuf[i] > toTime) continue;
+            into.add(closeTimeBuf[i], openBuf[i], highBuf[i], lowBuf[i], closeBuf[i], volumeBuf[i]);
+        }
+    }
+
+    /** Decode the block at the offset into the buffers
+     * @return The amount of candles in the block */
+    private int decodeAt(long position, long limit) throws IOException {
+        ByteBuffer sizes = read(position, 8);
+        int candles = sizes.getInt(0);
+        int length = sizes.getInt(4);
+        if (candles < 0 || candles > BLOCK_SIZE || length < 0 || position + 8 + length > limit)
+            throw new IOException("Corrupt strx block at " + position);
+
+        byte[] data = read(position + 8, length).array();
+        StrxCodec.decodeBlock(data, closeTimeBuf, openBuf, highBuf, lowBuf, closeBuf, volumeBuf, candles);
+        return candles;
+    }
+
+    /** Binary search on the footer index
+     * @return The first block with candles closing at or after the time, or getBlockCount() if there is none */
+    public int findBlock(long closeTime) {
+        int low = 0;
+        int high = count.length;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lastCloseTime[mid] < closeTime) low = mid + 1;
+            else high = mid;
+        }
+
+        return low;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public int getBlockCount() {
+        return count.length;
+    }
+
+    public int getBlockSize(int block) {
+        return count[block];
+    }
+
+    public long getBlockFirstCloseTime(int block) {
+        return firstCloseTime[block];
+    }
+
+    public long getBlockLastCloseTime(int block) {
+        return lastCloseTime[block];
+    }
+
+    public long getBlockOffset(int block) {
+        return offset[block];
+    }
+
+    /** @return Where the block data ends, new blocks can be appended from here */
+    public long getDataEnd() {
+        return dataEnd;
+    }
+
+    /** @return If the footer was missing (Interrupted write) and the index was rebuilt from the blocks */
+    public boolean isRecovered() {
+        return recovered;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,285 @@
+package stratx.utils;
+
+import java.util.Arrays;
+
+/** Block codec for v2 .strx files.
+ * Each block is stored column by column in one bit stream:
+ * - close times as delta-of-delta (almost always a single 0 bit for fixed intervals)
+ * - open, high, low & close as deltas of scaled integers when every value in the
+ *   block is a short decimal (exchange prices almost always are), otherwise as
+ *   Gorilla style XOR'd doubles
+ * - volume as zigzag deltas with a 7 bit length prefix */
+final class StrxCodec {
+    private static final int MAX_DECIMALS = 8;
+    private static final int XOR_MODE = 0xf;
+    private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8 };
+
+    private StrxCodec() {}
+
+    static byte[] encodeBlock(long[] closeTime, double[] open, double[] high, double[] low, double[] close, long[] volume, int count) {
+        BitWriter out = new BitWriter(count * 16);
+        encodeTimes(out, closeTime, count);
+        encodeDoubles(out, open, count);
+        encodeDoubles(out, high, count);
+        encodeDoubles(out, low, count);
+        encodeDoubles(out, close, count);
+        encodeLongs(out, volume, count);
+        return out.toByteArray();
+    }
+
+    static void decodeBlock(byte[] data, long[] closeTime, double[] open, double[] high, double[] low, double[] close, long[] volume, int count) {
+        BitReader in = new BitReader(data);
+        decodeTimes(in, closeTime, count);
+        decodeDoubles(in, open, count);
+        decodeDoubles(in, high, count);
+        decodeDoubles(in, low, count);
+        decodeDoubles(in, close, count);
+        decodeLongs(in, volume, count);
+    }
+
+    private static void encodeTimes(BitWriter out, long[] values, int count) {
+        if (count == 0) return;
+        out.writeBits(values[0], 64);
+        if (count == 1) return;
+
+        long prevDelta = values[1] - values[0];
+        out.writeBits(prevDelta, 64);
+
+        for (int i = 2; i < count; i++) {
+            long delta = values[i] - values[i - 1];
+            long dod = delta - prevDelta;
+            prevDelta = delta;
+
+            if (dod == 0) {
+                out.writeBits(0b0, 1);
+            } else if (dod >= -64 && dod <= 63) {
+                out.writeBits(0b10, 2);
+                out.writeBits(dod, 7);
+            } else if (dod >= -256 && dod <= 255) {
+                out.writeBits(0b110, 3);
+                out.writeBits(dod, 9);
+            } else if (dod >= -2048 && dod <= 2047) {
+                out.writeBits(0b1110, 4);
+                out.writeBits(dod, 12);
+            } else {
+                out.writeBits(0b1111, 4);
+                out.writeBits(dod, 64);
+            }
+        }
+    }
+
+    private static void decodeTimes(BitReader in, long[] values, int count) {
+        if (count == 0) return;
+        values[0] = in.readBits(64);
+        if (count == 1) return;
+
+        long delta = in.readBits(64);
+        values[1] = values[0] + delta;
+
+        for (int i = 2; i < count; i++) {
+            long dod;
+            if (in.readBits(1) == 0) dod = 0;
+            else if (in.readBits(1) == 0) dod = signExtend(in.readBits(7), 7);
+            else if (in.readBits(1) == 0) dod = signExtend(in.readBits(9), 9);
+            else if (in.readBits(1) == 0) dod = signExtend(in.readBits(12), 12);
+            else dod = in.readBits(64);
+
+            delta += dod;
+            values[i] = values[i - 1] + delta;
+        }
+    }
+
+    private static void encodeDoubles(BitWriter out, double[] values, int count) {
+        int decimals = findDecimals(values, count);
+        out.writeBits(decimals, 4);
+
+        if (decimals != XOR_MODE) {
+            long prev = 0;
+            for (int i = 0; i < count; i++) {
+                long scaled = Math.round(values[i] * POW10[decimals]);
+                writeZigzag(out, scaled - prev);
+                prev = scaled;
+            }
+        } else {
+            encodeXor(out, values, count);
+        }
+    }
+
+    private static void decodeDoubles(BitReader in, double[] values, int count) {
+        int decimals = (int) in.readBits(4);
+
+        if (decimals != XOR_MODE) {
+            long prev = 0;
+            for (int i = 0; i < count; i++) {
+                prev += readZigzag(in);
+                values[i] = prev / POW10[decimals];
+            }
+        } else {
+            decodeXor(in, values, count);
+        }
+    }
+
+    /** @return The fewest decimals every value can be exactly restored from (Bit for bit, so NaN & -0.0 are XOR'd), or XOR_MODE */
+    private static int findDecimals(double[] values, int count) {
+        int decimals = 0;
+
+        for (int i = 0; i < count; i++) {
+            double value = values[i];
+            long bits = Double.doubleToRawLongBits(value);
+            while (decimals <= MAX_DECIMALS) {
+                double scaled = value * POW10[decimals];
+                if (Math.abs(scaled) < (1L << 52) && Double.doubleToRawLongBits(Math.round(scaled) / POW10[decimals]) == bits) break;
+                decimals++;
+            }
+
+            if (decimals > MAX_DECIMALS) return XOR_MODE;
+        }
+
+        return decimals;
+    }
+
+    private static void encodeXor(BitWriter out, double[] values, int count) {
+        if (count == 0) return;
+        long prev = Double.doubleToRawLongBits(values[0]);
+        out.writeBits(prev, 64);
+        int prevLeading = Integer.MAX_VALUE;
+        int prevTrailing = 0;
+
+        for (int i = 1; i < count; i++) {
+            long bits = Double.doubleToRawLongBits(values[i]);
+            long xor = bits ^ prev;
+            prev = bits;
+
+            if (xor == 0) {
+                out.writeBits(0b0, 1);
+                continue;
+            }
+
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+
+            if (leading >= prevLeading && trailing >= prevTrailing) { // Fits in the previous window
+                out.writeBits(0b10, 2);
+                out.writeBits(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+            } else {
+                int significant = 64 - leading - trailing;
+                out.writeBits(0b11, 2);
+                out.writeBits(leading, 5);
+                out.writeBits(significant - 1, 6);
+                out.writeBits(xor >>> trailing, significant);
+                prevLeading = leading;
+                prevTrailing = trailing;
+            }
+        }
+    }
+
+    private static void decodeXor(BitReader in, double[] values, int count) {
+        if (count == 0) return;
+        long prev = in.readBits(64);
+        values[0] = Double.longBitsToDouble(prev);
+        int prevLeading = 0;
+        int prevTrailing = 0;
+
+        for (int i = 1; i < count; i++) {
+            if (in.readBits(1) != 0) {
+                if (in.readBits(1) != 0) {
+                    prevLeading = (int) in.readBits(5);
+                    int significant = (int) in.readBits(6) + 1;
+                    prevTrailing = 64 - prevLeading - significant;
+                }
+
+                prev ^= in.readBits(64 - prevLeading - prevTrailing) << prevTrailing;
+            }
+
+            values[i] = Double.longBitsToDouble(prev);
+        }
+    }
+
+    private static void encodeLongs(BitWriter out, long[] values, int count) {
+        long prev = 0;
+
+        for (int i = 0; i < count; i++) {
+            writeZigzag(out, values[i] - prev);
+            prev = values[i];
+        }
+    }
+
+    private static void decodeLongs(BitReader in, long[] values, int count) {
+        long prev = 0;
+
+        for (int i = 0; i < count; i++) {
+            prev += readZigzag(in);
+            values[i] = prev;
+        }
+    }
+
+    private static void writeZigzag(BitWriter out, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        int length = 64 - Long.numberOfLeadingZeros(zigzag);
+        out.writeBits(length, 7);
+        out.writeBits(zigzag, length);
+    }
+
+    private static long readZigzag(BitReader in) {
+        long zigzag = in.readBits((int) in.readBits(7));
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static long signExtend(long value, int bits) {
+        return (value << (64 - bits)) >> (64 - bits);
+    }
+
+    /** Writes bits most significant first into a growing byte array */
+    private static final class BitWriter {
+        private byte[] buffer;
+        private long position = 0;
+
+        BitWriter(int initialBytes) {
+            this.buffer = new byte[Math.max(initialBytes, 16)];
+        }
+
+        void writeBits(long value, int bits) {
+            while (bits > 0) {
+                int index = (int) (position >>> 3);
+                if (index == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+
+                int free = 8 - (int) (position & 7);
+                int n = Math.min(free, bits);
+                int chunk = (int) ((value >>> (bits - n)) & ((1 << n) - 1));
+                buffer[index] |= (byte) (chunk << (free - n));
+
+                position += n;
+                bits -= n;
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, (int) ((position + 7) >>> 3));
+        }
+    }
+
+    private static final class BitReader {
+        private final byte[] buffer;
+        private long position = 0;
+
+        BitReader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        long readBits(int bits) {
+            long value = 0;
+
+            while (bits > 0) {
+                int available = 8 - (int) (position & 7);
+                int n = Math.min(available, bits);
+                int current = buffer[(int) (position >>> 3)] & 0xff;
+                value = (value << n) | ((current >>> (available - n)) & ((1 << n) - 1));
+
+                position += n;
+                bits -= n;
+            }
+
+            return value;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package stratx.utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/** Constants & header helpers shared by the .strx readers and writers.
+ *
+ * Every version starts with the same 21 byte header:
+ * 'b4 ff b4 ff' + version byte, start time (long), end time (long)
+ *
+ * v1: fixed 48 byte records follow the header, see {@link StrxMappedFile}
+ * v2: compressed blocks & a time index footer follow the header, see {@link StrxBlockFile} */
+public final class StrxFormat {
+    public static final int VERSION_1 = 0x01;
+    public static final int VERSION_2 = 0x02;
+    public static final int HEADER_SIZE = 21;
+
+    private StrxFormat() {}
+
+    public static void writeHeader(DataOutput output, int version, long startTime, long endTime) throws IOException {
+        // the magic string is 'b4 ff b4 ff' + the version number
+        output.writeByte(0xb4);
+        output.writeByte(0xff);
+        output.writeByte(0xb4);
+        output.writeByte(0xff);
+        output.writeByte(version);
+
+        output.writeLong(startTime);
+        output.writeLong(endTime);
+    }
+
+    /** @return The format version of the file, or -1 if it is not a strx file */
+    public static int readVersion(File file) throws IOException {
+        if (file.length() < HEADER_SIZE) return -1;
+
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(file.toPath()))) {
+            if (input.readUnsignedByte() != 0xb4
+                    || input.readUnsignedByte() != 0xff
+                    || input.readUnsignedByte() != 0xb4
+                    || input.readUnsignedByte() != 0xff) {
+                return -1;
+            }
+
+            return input.readUnsignedByte();
+        }
+    }
+}
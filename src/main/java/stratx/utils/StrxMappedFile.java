@@ -0,0 +1,133 @@
+package stratx.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/** Read-only, memory mapped view of a (v1) .strx file.
+ * Candle records are read straight out of the page cache with absolute
+ * gets, nothing is copied or parsed until a value is asked for.
+ *
+ * Layout: 'b4 ff b4 ff 01' magic, start time (long), end time (long),
+ * followed by fixed size records of:
+ * close time (long), open, high, low, close (doubles), volume (long) */
+public class StrxMappedFile implements Closeable {
+    public static final int HEADER_SIZE = 21;
+    public static final int RECORD_SIZE = 48;
+    /** A single mapping is limited to 2GB, so big files are mapped in record aligned chunks */
+    private static final int RECORDS_PER_CHUNK = Integer.MAX_VALUE / RECORD_SIZE;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final long startTime;
+    private final long endTime;
+    private final int size;
+
+
+    public StrxMappedFile(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+        try {
+            long length = channel.size();
+            if (length < HEADER_SIZE) throw new IOException("File is too small to be a strx file");
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            // the magic string is 'b4 ff b4 ff' + the version number
+            if ((header.get(0) & 0xff) != 0xb4
+                    || (header.get(1) & 0xff) != 0xff
+                    || (header.get(2) & 0xff) != 0xb4
+                    || (header.get(3) & 0xff) != 0xff
+                    || (header.get(4) & 0xff) != 0x01) {
+                throw new IOException("Not a valid strx file! (Or outdated version)");
+            }
+
+            this.startTime = header.getLong(5);
+            this.endTime = header.getLong(13);
+
+            // A partially written trailing record (interrupted download) is ignored
+            long records = (length - HEADER_SIZE) / RECORD_SIZE;
+            if (records > Integer.MAX_VALUE) throw new IOException("Too many candles in file: " + records);
+            this.size = (int) records;
+
+            int numChunks = (int) ((records + RECORDS_PER_CHUNK - 1) / RECORDS_PER_CHUNK);
+            this.chunks = new MappedByteBuffer[numChunks];
+            for (int i = 0; i < numChunks; i++) {
+                long first = (long) i * RECORDS_PER_CHUNK;
+                long count = Math.min(RECORDS_PER_CHUNK, records - first);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * RECORD_SIZE, count * RECORD_SIZE);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** @return The amount of complete candle records in the file */
+    public int size() {
+        return size;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public long getCloseTime(int index) {
+        return chunk(index).getLong(offset(index));
+    }
+
+    public double getOpen(int index) {
+        return chunk(index).getDouble(offset(index) + 8);
+    }
+
+    public double getHigh(int index) {
+        return chunk(index).getDouble(offset(index) + 16);
+    }
+
+    public double getLow(int index) {
+        return chunk(index).getDouble(offset(index) + 24);
+    }
+
+    public double getClose(int index) {
+        return chunk(index).getDouble(offset(index) + 32);
+    }
+
+    public long getVolume(int index) {
+        return chunk(index).getLong(offset(index) + 40);
+    }
+
+    /** Binary search on close time
+     * @return The index of the first candle closing at or after the time, or size() if there is none */
+    public int indexOf(long closeTime) {
+        int low = 0;
+        int high = size;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getCloseTime(mid) < closeTime) low = mid + 1;
+            else high = mid;
+        }
+
+        return low;
+    }
+
+    private MappedByteBuffer chunk(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return chunks[index / RECORDS_PER_CHUNK];
+    }
+
+    private static int offset(int index) {
+        return (index % RECORDS_PER_CHUNK) * RECORD_SIZE;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,257 @@
+package stratx.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Writes candles to a .strx file in either format version.
+ * Candles must be written in close time order. */
+public abstract class StrxWriter implements Closeable {
+    protected final DataOutputStream output;
+    protected long position;
+    protected int written = 0;
+    protected long lastCloseTime = Long.MIN_VALUE;
+
+    /** The file being written to */
+    private final File file;
+    private final long startTime;
+    /** When appending, the file that is atomically replaced on close */
+    private File target = null;
+    private long endTime;
+    private boolean endTimeChanged = false;
+    private boolean closed = false;
+
+
+    protected StrxWriter(File file, int version, long startTime, long endTime) throws IOException {
+        this.file = file;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath()), 1 << 16));
+        StrxFormat.writeHeader(output, version, startTime, endTime);
+        this.position = StrxFormat.HEADER_SIZE;
+    }
+
+    /** Continue writing at the end of an existing file copy */
+    protected StrxWriter(File file, long position, long startTime, long endTime, long lastCloseTime) throws IOException {
+        this.file = file;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath(), StandardOpenOption.APPEND), 1 << 16));
+        this.position = position;
+        this.lastCloseTime = lastCloseTime;
+    }
+
+    public static StrxWriter create(File file, int version, long startTime, long endTime) throws IOException {
+        if (version == StrxFormat.VERSION_1) return new V1(file, startTime, endTime);
+        if (version == StrxFormat.VERSION_2) return new V2(file, startTime, endTime);
+        throw new IllegalArgumentException("Unknown strx version: " + version);
+    }
+
+    /** Append candles to an existing file, in the format it already has.
+     * The writes go to a copy which replaces the file in one atomic move on
+     * {@link #close()}, so a failed or interrupted append never damages it.
+     * A trailing partial record, or a missing v2 footer from an interrupted
+     * download, is dropped/rebuilt so the file can be resumed. */
+    public static StrxWriter append(File file) throws IOException {
+        int version = StrxFormat.readVersion(file);
+        File temp = new File(file.getPath() + ".part");
+        StrxWriter writer;
+
+        if (version == StrxFormat.VERSION_1) {
+            try (StrxMappedFile existing = new StrxMappedFile(file)) {
+                long dataEnd = StrxFormat.HEADER_SIZE + (long) existing.size() * StrxMappedFile.RECORD_SIZE;
+                long last = existing.size() == 0 ? Long.MIN_VALUE : existing.getCloseTime(existing.size() - 1);
+                copyPrefix(file, temp, dataEnd);
+                writer = new V1(temp, dataEnd, existing.getStartTime(), existing.getEndTime(), last);
+            }
+        } else if (version == StrxFormat.VERSION_2) {
+            try (StrxBlockFile existing = new StrxBlockFile(file)) {
+                int blocks = existing.getBlockCount();
+                long last = blocks == 0 ? Long.MIN_VALUE : existing.getBlockLastCloseTime(blocks - 1);
+                copyPrefix(file, temp, existing.getDataEnd());
+                V2 v2 = new V2(temp, existing.getDataEnd(), existing.getStartTime(), existing.getEndTime(), last);
+
+                for (int i = 0; i < blocks; i++)
+                    v2.index.add(new long[] { existing.getBlockFirstCloseTime(i), existing.getBlockLastCloseTime(i), existing.getBlockOffset(i), existing.getBlockSize(i) });
+                writer = v2;
+            }
+        } else {
+            throw new IOException("Not a valid strx file: " + file.getName());
+        }
+
+        writer.target = file;
+        return writer;
+    }
+
+    private static void copyPrefix(File from, File to, long length) throws IOException {
+        try (FileChannel in = FileChannel.open(from.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(to.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long copied = 0;
+            while (copied < length) copied += in.transferTo(copied, length - copied, out);
+        }
+    }
+
+    public void write(long closeTime, double open, double high, double low, double close, long volume) throws IOException {
+        if (closeTime <= lastCloseTime) throw new IllegalArgumentException("Candles must be written in close time order");
+        lastCloseTime = closeTime;
+        written++;
+        writeCandle(closeTime, open, high, low, close, volume);
+    }
+
+    protected abstract void writeCandle(long closeTime, double open, double high, double low, double close, long volume) throws IOException;
+
+    /** Called before closing, to write anything still buffered */
+    protected void finish() throws IOException {}
+
+    /** @return The amount of candles written so far (Not counting ones already in an appended file) */
+    public int getWritten() {
+        return written;
+    }
+
+    /** @return The close time of the last candle in the file, or Long.MIN_VALUE if there is none */
+    public long getLastCloseTime() {
+        return lastCloseTime;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /** Change the end time in the header, it is updated on close */
+    public void setEndTime(long endTime) {
+        this.endTime = endTime;
+        this.endTimeChanged = true;
+    }
+
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+
+        try {
+            finish();
+        } finally {
+            output.close();
+        }
+
+        if (endTimeChanged) {
+            try (RandomAccessFile header = new RandomAccessFile(file, "rw")) {
+                header.seek(13);
+                header.writeLong(endTime);
+            }
+        }
+
+        if (target != null) {
+            try {
+                Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /** Stop writing without finishing. An append leaves the original file untouched */
+    public void abort() throws IOException {
+        if (closed) return;
+        closed = true;
+        output.close();
+        if (target != null) Files.deleteIfExists(file.toPath());
+    }
+
+    /** Raw 48 byte records */
+    private static class V1 extends StrxWriter {
+        V1(File file, long startTime, long endTime) throws IOException {
+            super(file, StrxFormat.VERSION_1, startTime, endTime);
+        }
+
+        V1(File file, long position, long startTime, long endTime, long lastCloseTime) throws IOException {
+            super(file, position, startTime, endTime, lastCloseTime);
+        }
+
+        @Override
+        protected void writeCandle(long closeTime, double open, double high, double low, double close, long volume) throws IOException {
+            output.writeLong(closeTime);
+            output.writeDouble(open);
+            output.writeDouble(high);
+            output.writeDouble(low);
+            output.writeDouble(close);
+            output.writeLong(volume);
+            position += StrxMappedFile.RECORD_SIZE;
+        }
+    }
+
+    /** Compressed blocks of {@link StrxBlockFile#BLOCK_SIZE} candles & a footer index */
+    private static class V2 extends StrxWriter {
+        private final long[] closeTime = new long[StrxBlockFile.BLOCK_SIZE];
+        private final double[] open = new double[StrxBlockFile.BLOCK_SIZE];
+        private final double[] high = new double[StrxBlockFile.BLOCK_SIZE];
+        private final double[] low = new double[StrxBlockFile.BLOCK_SIZE];
+        private final double[] close = new double[StrxBlockFile.BLOCK_SIZE];
+        private final long[] volume = new long[StrxBlockFile.BLOCK_SIZE];
+        private final List<long[]> index = new ArrayList<>(); // first time, last time, offset, count
+        private int count = 0;
+
+        V2(File file, long startTime, long endTime) throws IOException {
+            super(file, StrxFormat.VERSION_2, startTime, endTime);
+        }
+
+        V2(File file, long position, long startTime, long endTime, long lastCloseTime) throws IOException {
+            super(file, position, startTime, endTime, lastCloseTime);
+        }
+
+        @Override
+        protected void writeCandle(long closeTime, double open, double high, double low, double close, long volume) throws IOException {
+            this.closeTime[count] = closeTime;
+            this.open[count] = open;
+            this.high[count] = high;
+            this.low[count] = low;
+            this.close[count] = close;
+            this.volume[count] = volume;
+
+            if (++count == StrxBlockFile.BLOCK_SIZE) writeBlock();
+        }
+
+        private void writeBlock() throws IOException {
+            if (count == 0) return;
+            byte[] data = StrxCodec.encodeBlock(closeTime, open, high, low, close, volume, count);
+
+            index.add(new long[] { closeTime[0], closeTime[count - 1], position, count });
+            output.writeInt(count);
+            output.writeInt(data.length);
+            output.write(data);
+            position += 8 + data.length;
+            count = 0;
+        }
+
+        @Override
+        protected void finish() throws IOException {
+            writeBlock();
+
+            long footerOffset = position;
+            output.writeInt(index.size());
+            for (long[] block : index) {
+                output.writeLong(block[0]);
+                output.writeLong(block[1]);
+                output.writeLong(block[2]);
+                output.writeInt((int) block[3]);
+            }
+
+            output.writeLong(footerOffset);
+            output.writeInt(StrxBlockFile.FOOTER_MAGIC);
+        }
+    }
+}
@@ -108,6 +108,7 @@ public class Utils {
         final String[] configFiles = {
                 "/config/config.yml",
                 "/config/login.yml",
+                "/config/downloads.yml",
                 "/config/strategies/grid.yml"
         };
 
@@ -0,0 +1,87 @@
+package stratx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import stratx.utils.CandleSeries;
+import stratx.utils.StrxFormat;
+import stratx.utils.StrxWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LoaderTest {
+    private static final long MINUTE = 60_000L;
+
+    @TempDir
+    Path folder;
+
+    /** Minute candles with volume = i, so the loaded volumes give the indexes */
+    private File write(int version, int count) throws IOException {
+        File file = folder.resolve("BTCUSDT_1m_v" + version + ".strx").toFile();
+        try (StrxWriter writer = StrxWriter.create(file, version, 0, count * MINUTE)) {
+            for (int i = 0; i < count; i++) writer.write(closeTime(i), 1, 1, 1, 1, i);
+        }
+        return file;
+    }
+
+    private static long closeTime(int i) {
+        return (i + 1) * MINUTE - 1;
+    }
+
+    /** Assert the series holds exactly the candles from..to (Inclusive) */
+    private static void assertRange(int from, int to, CandleSeries series) {
+        assertEquals(to - from + 1, series.size());
+        for (int i = 0; i < series.size(); i++) {
+            assertEquals(from + i, series.getVolume(i));
+            assertEquals(closeTime(from + i), series.getCloseTime(i));
+        }
+    }
+
+    @Test
+    void includesCandlesClosingExactlyOnTheBounds() throws IOException {
+        for (int version : new int[]{StrxFormat.VERSION_1, StrxFormat.VERSION_2}) {
+            File file = write(version, 3000);
+            assertRange(10, 20, Loader.loadRange(file, closeTime(10), closeTime(20)));
+            assertRange(11, 19, Loader.loadRange(file, closeTime(10) + 1, closeTime(20) - 1));
+            assertRange(5, 5, Loader.loadRange(file, closeTime(5), closeTime(5)));
+            assertRange(0, 0, Loader.loadRange(file, Long.MIN_VALUE, closeTime(0)));
+            assertRange(2999, 2999, Loader.loadRange(file, closeTime(2999), Long.MAX_VALUE));
+            assertRange(0, 2999, Loader.loadRange(file, Long.MIN_VALUE, Long.MAX_VALUE));
+        }
+    }
+
+    /** Version 2 files are in blocks of 1024 candles */
+    @Test
+    void readsARangeAcrossBlocks() throws IOException {
+        File file = write(StrxFormat.VERSION_2, 5000);
+        assertRange(1023, 1024, Loader.loadRange(file, closeTime(1023), closeTime(1024)));
+        assertRange(1000, 3100, Loader.loadRange(file, closeTime(1000), closeTime(3100)));
+        assertRange(1024, 2047, Loader.loadRange(file, closeTime(1024), closeTime(2047)));
+        assertRange(4096, 4999, Loader.loadRange(file, closeTime(4096) - 1, closeTime(6000)));
+    }
+
+    /** Version 1 files are searched by close time, check every edge of the search */
+    @Test
+    void searchesVersion1Files() throws IOException {
+        File file = write(StrxFormat.VERSION_1, 1001);
+        for (int i = 0; i < 1001; i += 37) {
+            assertRange(i, 1000, Loader.loadRange(file, closeTime(i), Long.MAX_VALUE));
+            assertRange(0, i, Loader.loadRange(file, Long.MIN_VALUE, closeTime(i)));
+            assertRange(i, i, Loader.loadRange(file, closeTime(i) - MINUTE + 1, closeTime(i) + MINUTE - 1));
+        }
+    }
+
+    @Test
+    void loadsNothingOutsideTheFile() throws IOException {
+        for (int version : new int[]{StrxFormat.VERSION_1, StrxFormat.VERSION_2}) {
+            File file = write(version, 2000);
+            assertEquals(0, Loader.loadRange(file, Long.MIN_VALUE, closeTime(0) - 1).size());
+            assertEquals(0, Loader.loadRange(file, closeTime(1999) + 1, Long.MAX_VALUE).size());
+            assertEquals(0, Loader.loadRange(file, closeTime(10) + 1, closeTime(11) - 1).size());
+            assertEquals(0, Loader.loadRange(file, closeTime(20), closeTime(10)).size());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package stratx.indicators;
+
+import org.junit.jupiter.api.Test;
+import stratx.utils.Signal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ADXTest {
+    @Test
+    void matchesTheReference() {
+        ADX adx = new ADX(14, 25);
+        IndicatorGraph graph = Candles.graphOf(adx);
+        Candles candles = Candles.randomWalk(7, 500);
+        double[][] expected = Reference.dmi(candles, 14);
+
+        for (int i = 0; i < candles.size(); i++) {
+            candles.feed(graph, i, true);
+            Reference.assertValue(expected[0][i], adx.getPlusDI(), "+DI at " + i);
+            Reference.assertValue(expected[1][i], adx.getMinusDI(), "-DI at " + i);
+            Reference.assertValue(expected[2][i], adx.getValue(), "ADX at " + i);
+
+            Signal signal = Signal.HOLD;
+            if (expected[2][i] >= 25) signal = expected[0][i] > expected[1][i] ? Signal.BUY : Signal.SELL;
+            assertEquals(signal, adx.getSignal(), "Signal at " + i);
+        }
+    }
+
+    /** Wilder's worked steps at period 2 (Each smoothing halves the gap to the new value), small enough to check by hand:
+     * +DM 2, 1, 0, 0, 3 & -DM 0, 0, 2, 1, 0 over true ranges 3, 3, 4, 4, 6 smooth to +DM 1.5, 0.75, 0.375, 1.6875,
+     * -DM 0, 1, 1, 0.5 & TR 3, 3.5, 3.75, 4.875, DX = 100 * |+DM - -DM| / (+DM + -DM) = 100, 100/7, 500/11, 380/7
+     * & the ADX starts at their first 2's mean */
+    @Test
+    void matchesAWorkedExample() {
+        ADX adx = new ADX(2, 25);
+        IndicatorGraph graph = Candles.graphOf(adx);
+        Candles candles = Candles.of(new double[][]{
+                {10, 8, 9}, {12, 9, 11}, {13, 10, 12}, {12, 8, 9}, {11, 7, 8}, {14, 9, 13}});
+        double nan = Double.NaN;
+        double[] plusDI = {nan, nan, 50, 100 * 0.75 / 3.5, 10, 100 * 1.6875 / 4.875};
+        double[] minusDI = {nan, nan, 0, 100 / 3.5, 100 / 3.75, 100 * 0.5 / 4.875};
+        double[] value = {nan, nan, nan, 400.0 / 7, 3950.0 / 77, 4065.0 / 77};
+        Signal[] signal = {Signal.HOLD, Signal.HOLD, Signal.HOLD, Signal.SELL, Signal.SELL, Signal.BUY};
+        double[][] reference = Reference.dmi(candles, 2);
+
+        for (int i = 0; i < candles.size(); i++) {
+            candles.feed(graph, i, false);
+            Reference.assertValue(plusDI[i], adx.getPlusDI(), "+DI at " + i);
+            Reference.assertValue(minusDI[i], adx.getMinusDI(), "-DI at " + i);
+            Reference.assertValue(value[i], adx.getValue(), "ADX at " + i);
+            assertEquals(signal[i], adx.getSignal(), "Signal at " + i);
+
+            Reference.assertValue(plusDI[i], reference[0][i], "Reference +DI at " + i);
+            Reference.assertValue(minusDI[i], reference[1][i], "Reference -DI at " + i);
+            Reference.assertValue(value[i], reference[2][i], "Reference ADX at " + i);
+        }
+    }
+}
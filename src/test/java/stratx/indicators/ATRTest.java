@@ -0,0 +1,32 @@
+package stratx.indicators;
+
+import org.junit.jupiter.api.Test;
+
+class ATRTest {
+    /** True ranges 2, 2, 3 & 3: the first ATR is their average, then Wilder's smoothing */
+    @Test
+    void smoothsTheTrueRanges() {
+        ATR atr = new ATR(3);
+        IndicatorGraph graph = Candles.graphOf(atr);
+        Candles candles = Candles.of(new double[][]{{10, 8, 9}, {11, 9, 10}, {12, 9, 11}, {13, 10, 12}});
+        double[] expected = {Double.NaN, Double.NaN, 7 / 3.0, 23 / 9.0};
+
+        for (int i = 0; i < candles.size(); i++) {
+            candles.feed(graph, i, false);
+            Reference.assertValue(expected[i], atr.getATR(), "ATR at " + i);
+        }
+    }
+
+    @Test
+    void matchesTheReference() {
+        ATR atr = new ATR(14);
+        IndicatorGraph graph = Candles.graphOf(atr);
+        Candles candles = Candles.randomWalk(5, 500);
+        double[] expected = Reference.atr(candles, 14);
+
+        for (int i = 0; i < candles.size(); i++) {
+            candles.feed(graph, i, true);
+            Reference.assertValue(expected[i], atr.getValue(), "ATR at " + i);
+        }
+    }
+}
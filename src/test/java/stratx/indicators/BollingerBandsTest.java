@@ -0,0 +1,36 @@
+package stratx.indicators;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BollingerBandsTest {
+    /** The textbook population standard deviation example, mean 5 & deviation 2 */
+    @Test
+    void usesThePopulationDeviation() {
+        BollingerBands bands = new BollingerBands(8, 2);
+        IndicatorGraph graph = Candles.graphOf(bands);
+        Candles candles = Candles.ofCloses(2, 4, 4, 4, 5, 5, 7, 9);
+        for (int i = 0; i < candles.size(); i++) candles.feed(graph, i, false);
+
+        assertEquals(5, bands.getMiddle(), 1e-12);
+        assertEquals(9, bands.getUpper(), 1e-12);
+        assertEquals(1, bands.getLower(), 1e-12);
+        assertEquals(1.6, bands.getBandwidth(), 1e-12);
+    }
+
+    @Test
+    void matchesTheReference() {
+        BollingerBands bands = new BollingerBands(20, 2);
+        IndicatorGraph graph = Candles.graphOf(bands);
+        Candles candles = Candles.randomWalk(4, 500);
+        double[][] expected = Reference.bollinger(candles.close, 20, 2);
+
+        for (int i = 0; i < candles.size(); i++) {
+            candles.feed(graph, i, true);
+            Reference.assertValue(expected[0][i], bands.getValue(), "Middle at " + i);
+            Reference.assertValue(expected[1][i], bands.getUpper(), "Upper at " + i);
+            Reference.assertValue(expected[2][i], bands.getLower(), "Lower at " + i);
+        }
+    }
+}
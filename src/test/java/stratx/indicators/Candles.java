@@ -0,0 +1,115 @@
+package stratx.indicators;
+
+import stratx.strategies.Strategy;
+import stratx.utils.CandleSeries;
+import stratx.utils.Candlestick;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Minute candles for the indicator tests, kept as arrays so {@link Reference} can compute the expected values */
+final class Candles {
+    static final long MINUTE = 60_000L;
+
+    final double[] open;
+    final double[] high;
+    final double[] low;
+    final double[] close;
+    final long[] volume;
+
+    private Candles(int count) {
+        open = new double[count];
+        high = new double[count];
+        low = new double[count];
+        close = new double[count];
+        volume = new long[count];
+    }
+
+    /** A random walk, the same for the same seed */
+    static Candles randomWalk(long seed, int count) {
+        Candles candles = new Candles(count);
+        Random random = new Random(seed);
+        double price = 100;
+
+        for (int i = 0; i < count; i++) {
+            double open = price;
+            price = Math.max(1, price + random.nextGaussian() * (i % 200 < 100 ? 1 : 3)); // Calm & volatile stretches
+            candles.open[i] = open;
+            candles.high[i] = Math.max(open, price) + random.nextDouble();
+            candles.low[i] = Math.max(0, Math.min(open, price) - random.nextDouble());
+            candles.close[i] = price;
+            candles.volume[i] = random.nextInt(1000);
+        }
+
+        return candles;
+    }
+
+    /** @param hlc High, low & close of each candle, open = previous close */
+    static Candles of(double[][] hlc, long... volume) {
+        Candles candles = new Candles(hlc.length);
+        for (int i = 0; i < hlc.length; i++) {
+            candles.open[i] = i == 0 ? hlc[i][2] : hlc[i - 1][2];
+            candles.high[i] = hlc[i][0];
+            candles.low[i] = hlc[i][1];
+            candles.close[i] = hlc[i][2];
+            candles.volume[i] = volume.length == 0 ? 1 : volume[i];
+        }
+        return candles;
+    }
+
+    /** @param closes The closes, high = low = close */
+    static Candles ofCloses(double... closes) {
+        double[][] hlc = new double[closes.length][];
+        for (int i = 0; i < closes.length; i++)
+            hlc[i] = new double[]{closes[i], closes[i], closes[i]};
+        return of(hlc);
+    }
+
+    int size() {
+        return close.length;
+    }
+
+    static long closeTime(int i) {
+        return (i + 1) * MINUTE - 1;
+    }
+
+    Candlestick get(int i) {
+        return new Candlestick(closeTime(i), open[i], high[i], low[i], close[i], volume[i], null);
+    }
+
+    CandleSeries toSeries() {
+        CandleSeries series = new CandleSeries(size());
+        for (int i = 0; i < size(); i++) series.add(closeTime(i), open[i], high[i], low[i], close[i], volume[i]);
+        return series;
+    }
+
+    /** Update the graph with the i-th candle
+     * @param replacing First update it with another candle of the same close time, which the real one replaces,
+     * then with the candle before it again, which is too old & ignored */
+    void feed(IndicatorGraph graph, int i, boolean replacing) {
+        if (replacing) graph.update(new Candlestick(closeTime(i), open[i], high[i] + 3, Math.max(0, low[i] - 2), close[i] + 1.5, volume[i] + 50, null));
+        graph.update(get(i));
+        if (replacing && i > 0) graph.update(get(i - 1));
+    }
+
+    /** Assert {@link Indicator#computeAll} gives exactly the values of candle by candle updates,
+     * by a strategy so the indicator gets the price history it reads */
+    static void assertComputesAllTheSame(Indicator indicator, Indicator batch, Candles candles) {
+        Strategy strategy = new Strategy("Test", "test_strategy.yml", indicator);
+        double[] values = batch.computeAll(candles.toSeries());
+        assertEquals(candles.size(), values.length);
+
+        for (int i = 0; i < candles.size(); i++) {
+            strategy.closeCandle(candles.get(i));
+            assertEquals(indicator.getValue(), values[i], "At " + i); // Exactly, the same operations in the same order (NaN equals NaN)
+        }
+    }
+
+    /** @return A graph with just the indicator & its inputs */
+    static IndicatorGraph graphOf(Indicator indicator) {
+        IndicatorGraph graph = new IndicatorGraph();
+        graph.add(indicator);
+        return graph;
+    }
+}
@@ -0,0 +1,42 @@
+package stratx.indicators;
+
+import org.junit.jupiter.api.Test;
+import stratx.utils.Signal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DonchianChannelsTest {
+    /** A breakout is a close beyond the channel of the candles before it */
+    @Test
+    void signalsBreakouts() {
+        DonchianChannels channels = new DonchianChannels(3);
+        IndicatorGraph graph = Candles.graphOf(channels);
+        Candles candles = Candles.of(new double[][]{{12, 8, 10}, {14, 9, 13}, {13, 10, 11}, {16, 11, 15}, {15, 7, 8}});
+
+        for (int i = 0; i < 3; i++) candles.feed(graph, i, false);
+        assertEquals(14, channels.getUpper());
+        assertEquals(8, channels.getLower());
+        assertEquals(Signal.HOLD, channels.getSignal());
+
+        candles.feed(graph, 3, false);
+        assertEquals(Signal.BUY, channels.getSignal(), "15 closes above 14");
+        candles.feed(graph, 4, false);
+        assertEquals(Signal.SELL, channels.getSignal(), "8 closes below 9");
+    }
+
+    @Test
+    void matchesTheReference() {
+        DonchianChannels channels = new DonchianChannels(20);
+        IndicatorGraph graph = Candles.graphOf(channels);
+        Candles candles = Candles.randomWalk(10, 500);
+        double[] upper = Reference.highest(candles.high, 20);
+        double[] lower = Reference.lowest(candles.low, 20);
+
+        for (int i = 0; i < candles.size(); i++) {
+            candles.feed(graph, i, true);
+            Reference.assertValue(upper[i], channels.getUpper(), "Upper at " + i);
+            Reference.assertValue(lower[i], channels.getLower(), "Lower at " + i);
+            Reference.assertValue((upper[i] + lower[i]) / 2, channels.getValue(), "Middle at " + i);
+        }
+    }
+}
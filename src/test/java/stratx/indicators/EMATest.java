@@ -0,0 +1,10 @@
+package stratx.indicators;
+
+import org.junit.jupiter.api.Test;
+
+class EMATest {
+    @Test
+    void computesAllTheSameAsUpdates() {
+        Candles.assertComputesAllTheSame(new EMA(20), new EMA(20), Candles.randomWalk(7, 3000));
+    }
+}
@@ -0,0 +1,128 @@
+package stratx.indicators;
+
+import org.junit.jupiter.api.Test;
+import stratx.utils.CandleSeries;
+import stratx.utils.Candlestick;
+import stratx.utils.Signal;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class IndicatorCacheTest {
+    private static final Supplier<CandleSeries> SERIES = () -> new CandleSeries(0);
+    /** The size of a cached column of 1000 values */
+    private static final long COLUMN_BYTES = 1000 * 8 + 96;
+
+    /** Computes 1000 values in batch, or none */
+    private static class Column extends Indicator {
+        private final String key;
+        private final boolean batch;
+        int computed = 0;
+
+        Column(String key, boolean batch) {
+            super("Column");
+            this.key = key;
+            this.batch = batch;
+        }
+
+        Column(String key) {
+            this(key, true);
+        }
+
+        @Override
+        public double[] computeAll(CandleSeries series) {
+            computed++;
+            return batch ? new double[1000] : null;
+        }
+
+        @Override
+        public String getCacheKey() {
+            return key;
+        }
+
+        @Override
+        public void update(Candlestick candle) {}
+
+        @Override
+        public Signal getSignal() {
+            return Signal.HOLD;
+        }
+    }
+
+    /** The same key as Column, from another class */
+    private static class OtherColumn extends Column {
+        OtherColumn(String key) {
+            super(key);
+        }
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsed() {
+        IndicatorCache cache = new IndicatorCache(3 * COLUMN_BYTES);
+        Column a = new Column("a");
+        Column b = new Column("b");
+        Column c = new Column("c");
+        Column d = new Column("d");
+
+        double[] first = cache.get("data", a, SERIES);
+        cache.get("data", b, SERIES);
+        cache.get("data", c, SERIES);
+        assertSame(first, cache.get("data", a, SERIES), "a is now the most recently used");
+
+        cache.get("data", d, SERIES); // Over the budget, b goes
+        assertEquals(3, cache.size());
+        assertEquals(3 * COLUMN_BYTES, cache.getBytes());
+
+        cache.get("data", a, SERIES);
+        cache.get("data", c, SERIES);
+        cache.get("data", d, SERIES);
+        assertEquals(1, a.computed, "Still cached");
+        assertEquals(1, c.computed);
+        assertEquals(1, d.computed);
+        cache.get("data", b, SERIES);
+        assertEquals(2, b.computed, "b was evicted");
+    }
+
+    @Test
+    void staysWithinTheMemoryBudget() {
+        IndicatorCache cache = new IndicatorCache(COLUMN_BYTES * 5 / 2);
+        for (int i = 0; i < 10; i++) {
+            cache.get("data", new Column("c" + i), SERIES);
+            assertEquals(Math.min(i + 1, 2), cache.size());
+            assertEquals(cache.size() * COLUMN_BYTES, cache.getBytes());
+        }
+
+        IndicatorCache tiny = new IndicatorCache(COLUMN_BYTES - 1);
+        Column column = new Column("c");
+        tiny.get("data", column, SERIES);
+        tiny.get("data", column, SERIES);
+        assertEquals(0, tiny.size(), "A column larger than the whole budget isn't cached");
+        assertEquals(2, column.computed);
+    }
+
+    @Test
+    void keysByDatasetAndClass() {
+        IndicatorCache cache = new IndicatorCache(10 * COLUMN_BYTES);
+        double[] values = cache.get("data", new Column("key"), SERIES);
+        assertSame(values, cache.get("data", new Column("key"), SERIES));
+        assertNotSame(values, cache.get("other data", new Column("key"), SERIES));
+        assertNotSame(values, cache.get("data", new OtherColumn("key"), SERIES));
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    void doesNotCountIndicatorsWithoutBatchValuesAsMisses() {
+        IndicatorCache cache = new IndicatorCache(10 * COLUMN_BYTES);
+        Column column = new Column("key", false);
+        assertNull(cache.get("data", column, SERIES));
+        assertNull(cache.get("data", column, SERIES));
+        assertEquals(0, cache.getMisses());
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,77 @@
+package stratx.indicators;
+
+import com.binance.api.client.domain.market.CandlestickInterval;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IndicatorGraphTest {
+    @Test
+    void sharesIdenticalInputs() {
+        MACD macd = new MACD(12, 26, 9);
+        EMA ema = new EMA(12);
+        IndicatorGraph graph = new IndicatorGraph();
+        graph.add(macd);
+        graph.add(ema);
+
+        assertEquals(1, graph.getShared());
+        assertSame(ema, macd.getInput(0), "The EMA added directly takes the shared input's place");
+        assertEquals(3, graph.getNodes().size());
+    }
+
+    @Test
+    void ownedInputsFollowTheTimeframe() {
+        MACD macd = new MACD(12, 26, 9);
+        macd.setTimeframe(CandlestickInterval.HOURLY);
+        SuperTrend supertrend = new SuperTrend(10, 3);
+        supertrend.setTimeframe(CandlestickInterval.FOUR_HOURLY);
+
+        assertEquals(CandlestickInterval.HOURLY, macd.getInput(0).getTimeframe());
+        assertEquals(CandlestickInterval.HOURLY, macd.getInput(1).getTimeframe());
+        assertEquals(CandlestickInterval.FOUR_HOURLY, supertrend.getInput(0).getTimeframe());
+
+        IndicatorGraph graph = new IndicatorGraph();
+        graph.add(macd);
+        new IndicatorGraph().add(supertrend);
+        assertEquals(3, graph.getNodes().size());
+    }
+
+    @Test
+    void crossoversTakeTheirInputsAlong() {
+        EMA fast = new EMA(5);
+        EMA slow = new EMA(20);
+        Crossover crossover = new Crossover(fast, slow);
+        crossover.setTimeframe(CandlestickInterval.HOURLY);
+
+        assertEquals(CandlestickInterval.HOURLY, fast.getTimeframe());
+        assertEquals(CandlestickInterval.HOURLY, slow.getTimeframe());
+        new IndicatorGraph().add(crossover);
+    }
+
+    @Test
+    void rejectsInputsOfAnotherTimeframe() {
+        EMA fast = new EMA(5);
+        fast.setTimeframe(CandlestickInterval.FOUR_HOURLY);
+        Crossover crossover = new Crossover(fast, new EMA(20));
+        crossover.setTimeframe(CandlestickInterval.HOURLY);
+
+        assertEquals(CandlestickInterval.FOUR_HOURLY, fast.getTimeframe(), "Set to its own timeframe, so it keeps it");
+        assertThrows(IllegalArgumentException.class, () -> new IndicatorGraph().add(crossover));
+    }
+
+    @Test
+    void doesNotShareAcrossTimeframes() {
+        MACD hourly = new MACD(12, 26, 9);
+        hourly.setTimeframe(CandlestickInterval.HOURLY);
+        MACD daily = new MACD(12, 26, 9);
+        daily.setTimeframe(CandlestickInterval.DAILY);
+
+        IndicatorGraph graph = new IndicatorGraph();
+        graph.add(new MACD(12, 26, 9));
+        graph.add(hourly.getInput(0));
+        graph.add(daily.getInput(0));
+        assertEquals(0, graph.getShared());
+    }
+}
@@ -0,0 +1,79 @@
+package stratx.indicators;
+
+import org.junit.jupiter.api.Test;
+import stratx.utils.Signal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MACDTest {
+    @Test
+    void matchesTheReference() {
+        MACD macd = new MACD(12, 26, 9);
+        IndicatorGraph graph = Candles.graphOf(macd);
+        Candles candles = Candles.randomWalk(2, 500);
+        double[] fast = Reference.ema(candles.close, 12);
+        double[] slow = Reference.ema(candles.close, 26);
+        double[] line = new double[candles.size()];
+        for (int i = 0; i < line.length; i++) line[i] = fast[i] - slow[i];
+        double[] signal = Reference.ema(line, 9);
+
+        for (int i = 0; i < candles.size(); i++) {
+            candles.feed(graph, i, true);
+            Reference.assertValue(line[i], macd.getValue(), "MACD at " + i);
+            Reference.assertValue(signal[i], macd.getSignalLine(), "Signal line at " + i);
+            Reference.assertValue(line[i] - signal[i], macd.getHistogram(), "Histogram at " + i);
+        }
+    }
+
+    /** The signal line needs slow + signal - 1 candles */
+    @Test
+    void isReadyAfterTheSignalLine() {
+        MACD macd = new MACD(3, 5, 4);
+        IndicatorGraph graph = Candles.graphOf(macd);
+        Candles candles = Candles.randomWalk(3, 8);
+
+        for (int i = 0; i < 7; i++) candles.feed(graph, i, false);
+        assertFalse(macd.isReady());
+        candles.feed(graph, 7, false);
+        assertTrue(macd.isReady());
+    }
+
+    @Test
+    void sharesTheEMAsOfAnotherMACD() {
+        IndicatorGraph graph = new IndicatorGraph();
+        graph.add(new MACD(12, 26, 9));
+        graph.add(new MACD(12, 26, 5));
+        assertEquals(2, graph.getShared());
+    }
+
+    /** EMAs seeded with the SMA like TradingView's, small enough to check by hand:
+     * EMA(2) = 11, 13, 13, 15, 15, 17 & EMA(3) = 12, 12.5, 14.25, 14.625, 16.3125 from the 2nd & 3rd candle,
+     * the signal line starts at the mean of the first 2 MACDs (1, 0.5) */
+    @Test
+    void matchesAWorkedExample() {
+        MACD macd = new MACD(2, 3, 2);
+        IndicatorGraph graph = Candles.graphOf(macd);
+        Candles candles = Candles.ofCloses(10, 12, 14, 13, 16, 15, 18);
+        double nan = Double.NaN;
+        double[] line = {nan, nan, 1, 0.5, 0.75, 0.375, 0.6875};
+        double[] signalLine = {nan, nan, nan, 0.75, 0.75, 0.5, 0.625};
+        double[] histogram = {nan, nan, nan, -0.25, 0, -0.125, 0.0625};
+        Signal[] signal = {Signal.HOLD, Signal.HOLD, Signal.HOLD, Signal.SELL, Signal.HOLD, Signal.SELL, Signal.BUY};
+        double[] fast = Reference.ema(candles.close, 2);
+        double[] slow = Reference.ema(candles.close, 3);
+        double[] reference = Reference.ema(line, 2);
+
+        for (int i = 0; i < candles.size(); i++) {
+            candles.feed(graph, i, false);
+            Reference.assertValue(line[i], macd.getValue(), "MACD at " + i);
+            Reference.assertValue(signalLine[i], macd.getSignalLine(), "Signal line at " + i);
+            Reference.assertValue(histogram[i], macd.getHistogram(), "Histogram at " + i);
+            assertEquals(signal[i], macd.getSignal(), "Signal at " + i);
+
+            Reference.assertValue(line[i], fast[i] - slow[i], "Reference MACD at " + i);
+            Reference.assertValue(signalLine[i], reference[i], "Reference signal line at " + i);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package stratx.indicators;
+
+import org.junit.jupiter.api.Test;
+
+class OBVTest {
+    /** Volume is added on up closes, subtracted on down closes & ignored on unchanged ones */
+    @Test
+    void totalsTheVolume() {
+        OBV obv = new OBV(3);
+        IndicatorGraph graph = Candles.graphOf(obv);
+        Candles candles = Candles.of(new double[][]{{10, 10, 10}, {11, 11, 11}, {10.5, 10.5, 10.5}, {10.5, 10.5, 10.5}, {12, 12, 12}},
+                100, 200, 300, 400, 500);
+        double[] expected = {0, 200, -100, -100, 400};
+
+        for (int i = 0; i < candles.size(); i++) {
+            candles.feed(graph, i, false);
+            Reference.assertValue(expected[i], obv.getOBV(), "OBV at " + i);
+        }
+    }
+
+    @Test
+    void matchesTheReference() {
+        OBV obv = new OBV(20);
+        IndicatorGraph graph = Candles.graphOf(obv);
+        Candles candles = Candles.randomWalk(8, 500);
+        double[] expected = Reference.obv(candles);
+        double[] average = Reference.ema(expected, 20);
+
+        for (int i = 0; i < candles.size(); i++) {
+            candles.feed(graph, i, true);
+            Reference.assertValue(expected[i], obv.getValue(), "OBV at " + i);
+            Reference.assertValue(average[i], obv.getAverage(), "Average at " + i);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package stratx.indicators;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class RSITest {
+    @ParameterizedTest
+    @EnumSource(RSI.Smoothing.class)
+    void computesAllTheSameAsUpdates(RSI.Smoothing smoothing) {
+        Candles.assertComputesAllTheSame(new RSI(14, 70, 30, smoothing), new RSI(14, 70, 30, smoothing), Candles.randomWalk(7, 3000));
+    }
+}
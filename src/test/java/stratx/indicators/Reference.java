@@ -0,0 +1,212 @@
+package stratx.indicators;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Expected values, straight ports of TradingView's Pine definitions (ta.sma, ta.ema, ta.rma, ta.atr, ta.stoch, ta.dmi,
+ * ta.bb, ta.obv, ta.vwap, ta.supertrend), recomputed over the whole series without any of the indicators' shortcuts.
+ * NaN where Pine's value is na */
+final class Reference {
+    private Reference() {}
+
+    static double[] sma(double[] values, int period) {
+        double[] result = nan(values.length);
+        for (int i = period - 1; i < values.length; i++) {
+            double sum = 0;
+            for (int j = i - period + 1; j <= i; j++) sum += values[j];
+            result[i] = sum / period; // NaN while the window holds a NaN
+        }
+        return result;
+    }
+
+    static double[] ema(double[] values, int period) {
+        return average(values, period, 2.0 / (period + 1));
+    }
+
+    /** Wilder's moving average */
+    static double[] rma(double[] values, int period) {
+        return average(values, period, 1.0 / period);
+    }
+
+    /** Seeded with the SMA of the first period values that aren't NaN, like Pine */
+    private static double[] average(double[] values, int period, double alpha) {
+        double[] sma = sma(values, period);
+        double[] result = nan(values.length);
+        for (int i = 0; i < values.length; i++) {
+            double previous = i == 0 ? Double.NaN : result[i - 1];
+            result[i] = Double.isNaN(previous) ? sma[i] : alpha * values[i] + (1 - alpha) * previous;
+        }
+        return result;
+    }
+
+    static double[] highest(double[] values, int period) {
+        double[] result = nan(values.length);
+        for (int i = period - 1; i < values.length; i++) {
+            result[i] = Double.NEGATIVE_INFINITY;
+            for (int j = i - period + 1; j <= i; j++) result[i] = Math.max(result[i], values[j]);
+        }
+        return result;
+    }
+
+    static double[] lowest(double[] values, int period) {
+        double[] result = nan(values.length);
+        for (int i = period - 1; i < values.length; i++) {
+            result[i] = Double.POSITIVE_INFINITY;
+            for (int j = i - period + 1; j <= i; j++) result[i] = Math.min(result[i], values[j]);
+        }
+        return result;
+    }
+
+    /** Population standard deviation, Pine's default */
+    static double[] stdev(double[] values, int period) {
+        double[] mean = sma(values, period);
+        double[] result = nan(values.length);
+        for (int i = period - 1; i < values.length; i++) {
+            double sum = 0;
+            for (int j = i - period + 1; j <= i; j++) sum += (values[j] - mean[i]) * (values[j] - mean[i]);
+            result[i] = Math.sqrt(sum / period);
+        }
+        return result;
+    }
+
+    /** @param handleNa If the first candle's true range is high - low instead of na, ta.tr(true) */
+    static double[] trueRange(Candles candles, boolean handleNa) {
+        double[] result = nan(candles.size());
+        for (int i = 0; i < result.length; i++) {
+            double range = candles.high[i] - candles.low[i];
+            if (i == 0) result[i] = handleNa ? range : Double.NaN;
+            else result[i] = Math.max(range, Math.max(Math.abs(candles.high[i] - candles.close[i - 1]), Math.abs(candles.low[i] - candles.close[i - 1])));
+        }
+        return result;
+    }
+
+    static double[] atr(Candles candles, int period) {
+        return rma(trueRange(candles, true), period);
+    }
+
+    /** @return %K & %D */
+    static double[][] stochastic(Candles candles, int kPeriod, int dPeriod) {
+        double[] highest = highest(candles.high, kPeriod);
+        double[] lowest = lowest(candles.low, kPeriod);
+        double[] k = nan(candles.size());
+        for (int i = 0; i < k.length; i++)
+            k[i] = 100 * (candles.close[i] - lowest[i]) / (highest[i] - lowest[i]);
+        return new double[][]{k, sma(k, dPeriod)};
+    }
+
+    /** @return +DI, -DI & the ADX, smoothed over the same period */
+    static double[][] dmi(Candles candles, int period) {
+        int n = candles.size();
+        double[] plusMove = nan(n);
+        double[] minusMove = nan(n);
+        for (int i = 1; i < n; i++) {
+            double up = candles.high[i] - candles.high[i - 1];
+            double down = candles.low[i - 1] - candles.low[i];
+            plusMove[i] = up > down && up > 0 ? up : 0;
+            minusMove[i] = down > up && down > 0 ? down : 0;
+        }
+
+        double[] trueRange = rma(trueRange(candles, false), period);
+        double[] plusSmoothed = rma(plusMove, period);
+        double[] minusSmoothed = rma(minusMove, period);
+        double[] plus = nan(n);
+        double[] minus = nan(n);
+        double[] dx = nan(n);
+        for (int i = 0; i < n; i++) {
+            plus[i] = 100 * plusSmoothed[i] / trueRange[i];
+            minus[i] = 100 * minusSmoothed[i] / trueRange[i];
+            double sum = plus[i] + minus[i];
+            dx[i] = Math.abs(plus[i] - minus[i]) / (sum == 0 ? 1 : sum);
+        }
+
+        double[] adx = rma(dx, period);
+        for (int i = 0; i < n; i++) adx[i] *= 100;
+        return new double[][]{plus, minus, adx};
+    }
+
+    /** @return The middle, upper & lower band */
+    static double[][] bollinger(double[] closes, int period, double deviations) {
+        double[] middle = sma(closes, period);
+        double[] stdev = stdev(closes, period);
+        double[] upper = nan(closes.length);
+        double[] lower = nan(closes.length);
+        for (int i = 0; i < closes.length; i++) {
+            upper[i] = middle[i] + deviations * stdev[i];
+            lower[i] = middle[i] - deviations * stdev[i];
+        }
+        return new double[][]{middle, upper, lower};
+    }
+
+    static double[] obv(Candles candles) {
+        double[] result = new double[candles.size()];
+        for (int i = 1; i < result.length; i++)
+            result[i] = result[i - 1] + Math.signum(candles.close[i] - candles.close[i - 1]) * candles.volume[i];
+        return result;
+    }
+
+    /** Of hlc3, restarting every anchor ms */
+    static double[] vwap(Candles candles, long anchorMs) {
+        double[] result = nan(candles.size());
+        for (int i = 0; i < result.length; i++) {
+            long session = Math.floorDiv(Candles.closeTime(i), anchorMs);
+            double priceVolume = 0;
+            double volume = 0;
+            for (int j = i; j >= 0 && Math.floorDiv(Candles.closeTime(j), anchorMs) == session; j--) {
+                priceVolume += (candles.high[j] + candles.low[j] + candles.close[j]) / 3 * candles.volume[j];
+                volume += candles.volume[j];
+            }
+            result[i] = priceVolume / volume;
+        }
+        return result;
+    }
+
+    /** @return The supertrend & Pine's direction (-1 up, 1 down) */
+    static double[][] supertrend(Candles candles, double factor, int atrPeriod) {
+        int n = candles.size();
+        double[] atr = atr(candles, atrPeriod);
+        double[] upper = nan(n);
+        double[] lower = nan(n);
+        double[] supertrend = nan(n);
+        double[] direction = nan(n);
+
+        for (int i = 0; i < n; i++) {
+            double source = (candles.high[i] + candles.low[i]) / 2;
+            upper[i] = source + factor * atr[i];
+            lower[i] = source - factor * atr[i];
+            if (Double.isNaN(atr[i])) continue;
+
+            double previousLower = nz(lower[i - 1]);
+            double previousUpper = nz(upper[i - 1]);
+            lower[i] = lower[i] > previousLower || candles.close[i - 1] < previousLower ? lower[i] : previousLower;
+            upper[i] = upper[i] < previousUpper || candles.close[i - 1] > previousUpper ? upper[i] : previousUpper;
+
+            if (Double.isNaN(atr[i - 1])) direction[i] = 1;
+            else if (supertrend[i - 1] == upper[i - 1]) direction[i] = candles.close[i] > upper[i] ? -1 : 1;
+            else direction[i] = candles.close[i] < lower[i] ? 1 : -1;
+            supertrend[i] = direction[i] == -1 ? lower[i] : upper[i];
+        }
+
+        return new double[][]{supertrend, direction};
+    }
+
+    private static double nz(double value) {
+        return Double.isNaN(value) ? 0 : value;
+    }
+
+    private static double[] nan(int length) {
+        double[] result = new double[length];
+        Arrays.fill(result, Double.NaN);
+        return result;
+    }
+
+    /** Every indicator output is NaN while Pine's value is na */
+    static void assertValue(double expected, double actual, String message) {
+        if (Double.isNaN(expected)) {
+            assertTrue(Double.isNaN(actual), message + ": expected not ready, got " + actual);
+        } else {
+            assertEquals(expected, actual, 1e-9 * Math.max(1, Math.abs(expected)), message);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package stratx.indicators;
+
+import org.junit.jupiter.api.Test;
+import stratx.utils.Signal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SMATest {
+    /** StockCharts' 5 day SMA example */
+    @Test
+    void averagesThePublishedExample() {
+        SMA sma = new SMA(5);
+        IndicatorGraph graph = Candles.graphOf(sma);
+        Candles candles = Candles.ofCloses(11, 12, 13, 14, 15, 16, 17);
+        double[] expected = {Double.NaN, Double.NaN, Double.NaN, Double.NaN, 13, 14, 15};
+
+        for (int i = 0; i < candles.size(); i++) {
+            candles.feed(graph, i, false);
+            Reference.assertValue(expected[i], sma.getSMA(), "SMA at " + i);
+        }
+        assertEquals(Signal.BUY, sma.getSignal());
+    }
+
+    @Test
+    void matchesTheReference() {
+        SMA sma = new SMA(20);
+        IndicatorGraph graph = Candles.graphOf(sma);
+        Candles candles = Candles.randomWalk(1, 500);
+        double[] expected = Reference.sma(candles.close, 20);
+
+        for (int i = 0; i < candles.size(); i++) {
+            candles.feed(graph, i, true);
+            Reference.assertValue(expected[i], sma.getValue(), "SMA at " + i);
+            if (!Double.isNaN(expected[i]))
+                assertEquals(candles.close[i] > expected[i] ? Signal.BUY : Signal.SELL, sma.getSignal(), "Signal at " + i);
+        }
+    }
+}
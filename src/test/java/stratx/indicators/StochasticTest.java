@@ -0,0 +1,36 @@
+package stratx.indicators;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StochasticTest {
+    /** %K is where the close is in the range of the latest kPeriod candles */
+    @Test
+    void placesTheCloseInTheRange() {
+        Stochastic stochastic = new Stochastic(3, 2, 80, 20);
+        IndicatorGraph graph = Candles.graphOf(stochastic);
+        Candles candles = Candles.of(new double[][]{{12, 8, 10}, {14, 9, 13}, {13, 10, 11}, {11, 6, 7}});
+        double[] k = {Double.NaN, Double.NaN, 50, 12.5};
+
+        for (int i = 0; i < candles.size(); i++) {
+            candles.feed(graph, i, false);
+            Reference.assertValue(k[i], stochastic.getK(), "%K at " + i);
+        }
+        assertEquals(31.25, stochastic.getD(), 1e-12);
+    }
+
+    @Test
+    void matchesTheReference() {
+        Stochastic stochastic = new Stochastic(14, 3, 80, 20);
+        IndicatorGraph graph = Candles.graphOf(stochastic);
+        Candles candles = Candles.randomWalk(6, 500);
+        double[][] expected = Reference.stochastic(candles, 14, 3);
+
+        for (int i = 0; i < candles.size(); i++) {
+            candles.feed(graph, i, true);
+            Reference.assertValue(expected[0][i], stochastic.getValue(), "%K at " + i);
+            Reference.assertValue(expected[1][i], stochastic.getD(), "%D at " + i);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package stratx.indicators;
+
+import org.junit.jupiter.api.Test;
+import stratx.utils.Signal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SuperTrendTest {
+    @Test
+    void matchesTheReference() {
+        SuperTrend supertrend = new SuperTrend(10, 3);
+        IndicatorGraph graph = Candles.graphOf(supertrend);
+        Candles candles = Candles.randomWalk(11, 2000);
+        double[][] expected = Reference.supertrend(candles, 3, 10);
+        int flips = 0;
+
+        for (int i = 0; i < candles.size(); i++) {
+            candles.feed(graph, i, true);
+            Reference.assertValue(expected[0][i], supertrend.getValue(), "SuperTrend at " + i);
+            if (Double.isNaN(expected[1][i])) continue;
+
+            assertEquals(expected[1][i] == -1, supertrend.isUptrend(), "Trend at " + i);
+            assertEquals(expected[1][i] == -1 ? Signal.BUY : Signal.SELL, supertrend.getSignal(), "Signal at " + i);
+            if (i > 0 && expected[1][i] != expected[1][i - 1] && !Double.isNaN(expected[1][i - 1])) flips++;
+        }
+
+        assertTrue(flips > 10, "The series should flip the trend often, it flipped " + flips + " times");
+    }
+
+    /** Like TradingView, the first candle with an ATR is in a downtrend */
+    @Test
+    void startsInADowntrend() {
+        SuperTrend supertrend = new SuperTrend(3, 3);
+        IndicatorGraph graph = Candles.graphOf(supertrend);
+        Candles candles = Candles.ofCloses(10, 11, 12);
+        for (int i = 0; i < candles.size(); i++) candles.feed(graph, i, false);
+
+        assertFalse(supertrend.isUptrend());
+        assertEquals(Signal.SELL, supertrend.getSignal());
+    }
+
+    /** Factor 1 & ATR(2), small enough to check by hand: ATR 2, 2, 3, 2.5, 3.75, 2.875 from the 2nd candle.
+     * The upper band holds at 13 until the close crosses it, then the lower band rises from 11.5 to 13.5,
+     * the close falls through it & the new upper band tightens from 16.75 to 15.875 */
+    @Test
+    void matchesAWorkedExample() {
+        SuperTrend supertrend = new SuperTrend(2, 1);
+        IndicatorGraph graph = Candles.graphOf(supertrend);
+        Candles candles = Candles.of(new double[][]{
+                {11, 9, 10}, {12, 10, 11}, {13, 11, 12}, {16, 13, 15.5}, {17, 15, 16}, {15, 11, 12}, {14, 12, 13}});
+        double[] value = {Double.NaN, 13, 13, 11.5, 13.5, 16.75, 15.875};
+        boolean[] uptrend = {false, false, false, true, true, false, false};
+        double[][] reference = Reference.supertrend(candles, 1, 2);
+
+        for (int i = 0; i < candles.size(); i++) {
+            candles.feed(graph, i, false);
+            Reference.assertValue(value[i], supertrend.getValue(), "SuperTrend at " + i);
+            Reference.assertValue(value[i], reference[0][i], "Reference SuperTrend at " + i);
+            if (i == 0) continue;
+
+            assertEquals(uptrend[i], supertrend.isUptrend(), "Trend at " + i);
+            assertEquals(uptrend[i] ? Signal.BUY : Signal.SELL, supertrend.getSignal(), "Signal at " + i);
+            assertEquals(uptrend[i] ? -1 : 1, reference[1][i], "Reference direction at " + i);
+        }
+    }
+}
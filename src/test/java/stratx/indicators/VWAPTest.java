@@ -0,0 +1,35 @@
+package stratx.indicators;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VWAPTest {
+    /** Typical prices 10 & 13 with volumes 1 & 2, then a new session */
+    @Test
+    void restartsEverySession() {
+        VWAP vwap = new VWAP(2 * Candles.MINUTE);
+        IndicatorGraph graph = Candles.graphOf(vwap);
+        Candles candles = Candles.of(new double[][]{{11, 9, 10}, {14, 12, 13}, {21, 19, 20}}, 1, 2, 5);
+
+        candles.feed(graph, 0, false);
+        assertEquals(10, vwap.getVWAP(), 1e-12);
+        candles.feed(graph, 1, false);
+        assertEquals(12, vwap.getVWAP(), 1e-12);
+        candles.feed(graph, 2, false);
+        assertEquals(20, vwap.getVWAP(), 1e-12);
+    }
+
+    @Test
+    void matchesTheReference() {
+        VWAP vwap = new VWAP(60 * Candles.MINUTE);
+        IndicatorGraph graph = Candles.graphOf(vwap);
+        Candles candles = Candles.randomWalk(9, 500);
+        double[] expected = Reference.vwap(candles, 60 * Candles.MINUTE);
+
+        for (int i = 0; i < candles.size(); i++) {
+            candles.feed(graph, i, true);
+            Reference.assertValue(expected[i], vwap.getValue(), "VWAP at " + i);
+        }
+    }
+}
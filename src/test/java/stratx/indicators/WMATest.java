@@ -0,0 +1,11 @@
+package stratx.indicators;
+
+import org.junit.jupiter.api.Test;
+
+class WMATest {
+    /** Past the 1000 candles after which both recompute the sums, so they must do it on the same candle */
+    @Test
+    void computesAllTheSameAsUpdates() {
+        Candles.assertComputesAllTheSame(new WMA(30), new WMA(30), Candles.randomWalk(7, 3000));
+    }
+}
@@ -0,0 +1,47 @@
+package stratx.modes;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import stratx.indicators.SMA;
+import stratx.strategies.Strategy;
+import stratx.utils.StrxFormat;
+import stratx.utils.StrxWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BackTestTest {
+    private static final long MINUTE = 60_000L;
+
+    @TempDir
+    Path folder;
+
+    private File write(int count) throws IOException {
+        File file = folder.resolve("ETHUSDT_1m_test.strx").toFile();
+        try (StrxWriter writer = StrxWriter.create(file, StrxFormat.VERSION_2, 0, count * MINUTE)) {
+            for (int i = 0; i < count; i++) writer.write((i + 1) * MINUTE - 1, 10, 11, 9, 10, 1);
+        }
+        return file;
+    }
+
+    private static Strategy strategy() {
+        return new Strategy("Test", "test_strategy.yml", new SMA(2));
+    }
+
+    @Test
+    void takesTheCoinFromTheFileName() throws IOException {
+        BackTest test = new BackTest(strategy(), write(100), 0, 50 * MINUTE);
+        assertEquals("ETH", test.getCoin().getCrypto());
+        assertEquals("USDT", test.getCoin().getFiat());
+    }
+
+    @Test
+    void rejectsAnEmptyRange() throws IOException {
+        File file = write(100);
+        assertThrows(IllegalArgumentException.class, () -> new BackTest(strategy(), file, 200 * MINUTE, 300 * MINUTE));
+    }
+}
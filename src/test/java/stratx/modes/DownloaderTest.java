@@ -0,0 +1,189 @@
+package stratx.modes;
+
+import com.binance.api.client.BinanceApiRestClient;
+import com.binance.api.client.domain.market.Candlestick;
+import com.binance.api.client.domain.market.CandlestickInterval;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import stratx.Loader;
+import stratx.utils.CandleSeries;
+import stratx.utils.RateLimiter;
+import stratx.utils.StrxBlockFile;
+import stratx.utils.StrxFormat;
+import stratx.utils.StrxWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Runs the download pipeline against a local stand-in for the klines endpoint */
+class DownloaderTest {
+    private static final long MINUTE = 60_000L;
+    /** A whole minute, so the windows line up with the candles */
+    private static final long START = 26_666_640L * MINUTE;
+    private static final int WINDOWS = 5;
+    private static final long END = START + WINDOWS * 1000 * MINUTE;
+
+    @TempDir
+    Path folder;
+
+    /** Serves 1m candles up to the current one, which is still open, optionally leaving some out,
+     * failing windows & repeating the candle before each window */
+    private static final class Klines {
+        final long start;
+        final Set<Long> missingOpenTimes = ConcurrentHashMap.newKeySet();
+        final Set<Long> failingWindows = ConcurrentHashMap.newKeySet();
+        /** How many times a failing window fails before it is served, -1 for always */
+        int failures = 1;
+        boolean overlap = false;
+        final AtomicInteger calls = new AtomicInteger();
+        final List<Integer> completed = new CopyOnWriteArrayList<>();
+        private final ConcurrentHashMap<Long, AtomicInteger> failed = new ConcurrentHashMap<>();
+
+        Klines() {
+            this(START);
+        }
+
+        /** @param start The open time of the first window */
+        Klines(long start) {
+            this.start = start;
+        }
+
+        List<Candlestick> get(int limit, long startTime, long endTime) throws InterruptedException {
+            calls.incrementAndGet();
+            int window = (int) ((startTime - start) / (1000 * MINUTE));
+
+            if (failingWindows.contains(startTime)) {
+                int count = failed.computeIfAbsent(startTime, k -> new AtomicInteger()).incrementAndGet();
+                if (failures == -1 || count <= failures) throw new RuntimeException("Stand-in failure");
+            }
+
+            Thread.sleep(Math.max(WINDOWS - window, 0) * 40L); // Later windows answer first
+            List<Candlestick> candles = new ArrayList<>();
+            long first = overlap && window > 0 ? startTime - MINUTE : startTime;
+            int max = first < startTime ? limit + 1 : limit; // The repeated candle is extra
+
+            long last = Math.min(endTime, System.currentTimeMillis());
+            for (long open = first; open <= last && candles.size() < max; open += MINUTE) {
+                if (missingOpenTimes.contains(open)) continue;
+                Candlestick candle = new Candlestick();
+                candle.setOpenTime(open);
+                candle.setCloseTime(open + MINUTE - 1);
+                candle.setOpen("100.5");
+                candle.setHigh("101.0");
+                candle.setLow("99.5");
+                candle.setClose(String.valueOf(100 + (open - START) / MINUTE % 7));
+                candle.setVolume("12.0");
+                candles.add(candle);
+            }
+
+            completed.add(window);
+            return candles;
+        }
+
+        BinanceApiRestClient client() {
+            return (BinanceApiRestClient) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{BinanceApiRestClient.class}, (proxy, method, args) -> {
+                if (method.getName().equals("getCandlestickBars") && args.length == 5)
+                    return get((Integer) args[2], (Long) args[3], (Long) args[4]);
+                throw new UnsupportedOperationException(method.getName());
+            });
+        }
+    }
+
+    private File emptyFile() throws IOException {
+        return emptyFile(START, END);
+    }
+
+    private File emptyFile(long start, long end) throws IOException {
+        File file = folder.resolve("BTCUSDT_1m_test.strx").toFile();
+        StrxWriter.create(file, StrxFormat.VERSION_2, start, end).close();
+        return file;
+    }
+
+    @Test
+    void writesOutOfOrderWindowsInOrder() throws Exception {
+        Klines klines = new Klines();
+        RateLimiter limiter = new RateLimiter(1000);
+        File file = emptyFile();
+
+        assertEquals(WINDOWS * 1000, new Downloader(klines.client(), limiter).update(file, END));
+        assertNotEquals(0, (int) klines.completed.get(0), "The first window should have been answered after a later one");
+
+        CandleSeries series = Loader.loadSeries(file);
+        assertEquals(WINDOWS * 1000, series.size());
+        for (int i = 0; i < series.size(); i++)
+            assertEquals(START + (i + 1) * MINUTE - 1, series.getCloseTime(i));
+    }
+
+    @Test
+    void retriesAndCountsTheWeightOfEveryRequest() throws Exception {
+        Klines klines = new Klines();
+        klines.failingWindows.add(START + 2 * 1000 * MINUTE);
+        RateLimiter limiter = new RateLimiter(1000);
+
+        assertEquals(WINDOWS * 1000, new Downloader(klines.client(), limiter).update(emptyFile(), END));
+        assertEquals(WINDOWS + 1, klines.calls.get());
+        assertEquals(2L * (WINDOWS + 1), limiter.getAcquired(), "Every attempt, including the retry, uses the klines weight");
+    }
+
+    @Test
+    void leavesTheFileUnchangedWhenRetriesRunOut() throws Exception {
+        Klines klines = new Klines();
+        klines.failingWindows.add(START + 1000 * MINUTE);
+        klines.failures = -1;
+        File file = emptyFile();
+        long length = file.length();
+
+        assertThrows(IOException.class, () -> new Downloader(klines.client(), new RateLimiter(1000)).update(file, END));
+        assertEquals(length, file.length());
+        assertEquals(0, Loader.loadSeries(file).size());
+    }
+
+    @Test
+    void reportsGapsAndSkipsOverlaps() throws Exception {
+        Klines klines = new Klines();
+        klines.overlap = true;
+        for (int i = 1500; i < 1510; i++) klines.missingOpenTimes.add(START + i * MINUTE);
+        klines.missingOpenTimes.add(START + 3200 * MINUTE);
+        Downloader downloader = new Downloader(klines.client(), new RateLimiter(1000));
+        File file = emptyFile();
+
+        assertEquals(WINDOWS * 1000 - 11, downloader.update(file, END));
+        assertEquals(2, downloader.getReport().getGaps());
+        assertEquals(11, downloader.getReport().getMissing());
+        assertEquals(WINDOWS - 1, downloader.getReport().getDuplicates());
+
+        CandleSeries series = Loader.loadSeries(file);
+        for (int i = 1; i < series.size(); i++)
+            assertTrue(series.getCloseTime(i) > series.getCloseTime(i - 1));
+    }
+
+    /** Updating to "now" (Or later) gets the current candle too, which is still open & would never be corrected */
+    @Test
+    void leavesOutTheOpenCandle() throws Exception {
+        long start = Math.floorDiv(System.currentTimeMillis(), MINUTE) * MINUTE - 100 * MINUTE;
+        Klines klines = new Klines(start);
+        File file = emptyFile(start, start);
+        Downloader downloader = new Downloader(klines.client(), new RateLimiter(1000));
+
+        long written = downloader.update(file, start + 200 * MINUTE);
+        long now = System.currentTimeMillis();
+        assertTrue(written >= 100 && written <= 101, "The candles closed by now, got " + written); // A minute may have passed
+
+        CandleSeries series = Loader.loadSeries(file);
+        assertEquals(written, series.size());
+        assertTrue(series.getCloseTime(series.size() - 1) < now, "The last candle is closed");
+        try (StrxBlockFile blocks = new StrxBlockFile(file)) {
+            assertTrue(blocks.getEndTime() <= now, "The header ends at the last closed candle, not the requested end");
+        }
+    }
+}
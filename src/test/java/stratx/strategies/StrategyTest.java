@@ -0,0 +1,148 @@
+package stratx.strategies;
+
+import com.binance.api.client.domain.market.CandlestickInterval;
+import org.junit.jupiter.api.Test;
+import stratx.indicators.EMA;
+import stratx.indicators.Indicator;
+import stratx.indicators.RSI;
+import stratx.indicators.SMA;
+import stratx.indicators.WMA;
+import stratx.strategies.rules.RuleSet;
+import stratx.utils.BuySellSignals;
+import stratx.utils.CandleSeries;
+import stratx.utils.Candlestick;
+import stratx.utils.Resampler;
+import stratx.utils.Signal;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StrategyTest {
+    private static Candlestick candle(int i, double close) {
+        return new Candlestick((i + 1) * 60_000L - 1, close, close, close, close, 1, null);
+    }
+
+    @Test
+    void takesTheSignalsOncePerCandle() {
+        Strategy strategy = new Strategy("Test", "test_strategy.yml", new SMA(2));
+        strategy.closeCandle(candle(0, 10));
+        strategy.closeCandle(candle(1, 12));
+
+        BuySellSignals signals = strategy.getBuySellSignals();
+        assertEquals(1, signals.buySignals, "12 is above the SMA of 11");
+        assertSame(signals, strategy.getBuySellSignals());
+
+        strategy.closeCandle(candle(2, 8));
+        assertEquals(1, strategy.getBuySellSignals().sellSignals);
+    }
+
+    /** An override that doesn't call super & updates its indicator itself */
+    @Test
+    void retakesTheSignalsWhenOnCandleCloseIsOverridden() {
+        SMA sma = new SMA(2);
+        Strategy strategy = new Strategy("Test", "test_strategy.yml", sma) {
+            @Override
+            public void onCandleClose(Candlestick candle) {
+                sma.update(candle);
+            }
+        };
+
+        strategy.closeCandle(candle(0, 10));
+        strategy.closeCandle(candle(1, 12));
+        assertEquals(1, strategy.getBuySellSignals().buySignals);
+
+        strategy.closeCandle(candle(2, 8));
+        assertEquals(0, strategy.getBuySellSignals().buySignals);
+        assertEquals(1, strategy.getBuySellSignals().sellSignals);
+    }
+
+    /** With min-signals -1 every indicator that can buy has to, rules with only an exit rule can't */
+    @Test
+    void countsOnlyRulesThatCanGiveTheSignal() {
+        Strategy exitOnly = new Strategy("Test", "test_strategy.yml", new SMA(2), new RuleSet(null, "close < 5"));
+        assertEquals(1, exitOnly.countSignalling(Signal.BUY));
+        assertEquals(2, exitOnly.countSignalling(Signal.SELL));
+
+        Strategy entryOnly = new Strategy("Test", "test_strategy.yml", new RuleSet("close > 5", null));
+        assertEquals(1, entryOnly.countSignalling(Signal.BUY));
+        assertEquals(Integer.MAX_VALUE, entryOnly.countSignalling(Signal.SELL), "Nothing can sell");
+    }
+
+    /** A random walk of minute candles, starting on the hour */
+    private static CandleSeries minutes(int count) {
+        CandleSeries series = new CandleSeries(count);
+        Random random = new Random(3);
+        double price = 100;
+        for (int i = 0; i < count; i++) {
+            double open = price;
+            price = Math.max(1, price + random.nextGaussian());
+            series.add((i + 1) * 60_000L - 1, open, Math.max(open, price) + random.nextDouble(), Math.min(open, price) - random.nextDouble(), price, random.nextInt(1000));
+        }
+        return series;
+    }
+
+    private static RSI hourlyRsi() {
+        RSI rsi = new RSI(14, 70, 30, RSI.Smoothing.WILDER);
+        rsi.setTimeframe(CandlestickInterval.HOURLY);
+        return rsi;
+    }
+
+    @Test
+    void rejectsATimeframeNotLongerThanTheCandles() {
+        Strategy strategy = new Strategy("Test", "test_strategy.yml", hourlyRsi());
+        strategy.checkTimeframes(60_000L);
+        strategy.checkTimeframes(0);
+        assertThrows(IllegalArgumentException.class, () -> strategy.checkTimeframes(60 * 60_000L));
+
+        CandleSeries hours = Resampler.resample(minutes(600), CandlestickInterval.HOURLY);
+        assertThrows(IllegalArgumentException.class, () -> strategy.precompute(hours), "Before any candle is traded on");
+    }
+
+    /** The strategy aggregates its candles to the timeframe as they close, which must match resampling them up front */
+    @Test
+    void updatesTimeframesLikeResampledCandles() {
+        CandleSeries minutes = minutes(60 * 40);
+        RSI hourly = hourlyRsi();
+        Strategy strategy = new Strategy("Test", "test_strategy.yml", hourly);
+        RSI reference = new RSI(14, 70, 30, RSI.Smoothing.WILDER);
+        Strategy resampled = new Strategy("Test", "test_strategy.yml", reference);
+
+        List<Candlestick> hours = Resampler.resample(minutes, CandlestickInterval.HOURLY).toCandlesticks();
+        assertEquals(40, hours.size());
+        List<Candlestick> candles = minutes.toCandlesticks();
+
+        for (int i = 0; i < candles.size(); i++) {
+            strategy.closeCandle(candles.get(i));
+            if (i % 60 != 59) continue;
+
+            resampled.closeCandle(hours.get(i / 60));
+            assertEquals(reference.getValue(), hourly.getValue(), "After hour " + i / 60);
+        }
+        assertFalse(Double.isNaN(hourly.getValue()));
+    }
+
+    @Test
+    void precomputedRunsMatchCandleByCandleRuns() {
+        CandleSeries minutes = minutes(60 * 40);
+        Indicator[] updated = {new EMA(20), new WMA(30), new RSI(14, 70, 30, RSI.Smoothing.SIMPLE), hourlyRsi(), new SMA(10)};
+        Indicator[] precomputed = {new EMA(20), new WMA(30), new RSI(14, 70, 30, RSI.Smoothing.SIMPLE), hourlyRsi(), new SMA(10)};
+        Strategy perCandle = new Strategy("Test", "test_strategy.yml", updated);
+        Strategy upFront = new Strategy("Test", "test_strategy.yml", precomputed);
+        assertEquals(4, upFront.precompute(minutes), "Every indicator but the SMA");
+
+        for (Candlestick candle : minutes.toCandlesticks()) {
+            perCandle.closeCandle(candle);
+            upFront.closeCandle(candle);
+
+            for (int i = 0; i < updated.length; i++)
+                assertEquals(updated[i].getValue(), precomputed[i].getValue(), updated[i].getName() + " at " + candle.getCloseTime());
+            assertEquals(perCandle.getBuySellSignals().buySignals, upFront.getBuySellSignals().buySignals);
+            assertEquals(perCandle.getBuySellSignals().sellSignals, upFront.getBuySellSignals().sellSignals);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package stratx.strategies.rules;
+
+import org.junit.jupiter.api.Test;
+import stratx.indicators.EMA;
+import stratx.indicators.Indicator;
+import stratx.indicators.IndicatorGraph;
+import stratx.utils.Candlestick;
+import stratx.utils.PriceHistory;
+import stratx.utils.Signal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RuleSetTest {
+    /** Updates the rules & their inputs like a strategy does */
+    private static final class Feed {
+        private final IndicatorGraph graph = new IndicatorGraph();
+        private final PriceHistory history = new PriceHistory(1);
+        private final RuleSet rules;
+        private int candles = 0;
+
+        Feed(RuleSet rules) {
+            this.rules = rules;
+            graph.add(rules);
+
+            int lookback = 1;
+            for (Indicator node : graph.getNodes()) lookback = Math.max(lookback, node.getLookback());
+            history.setMaxLength(lookback);
+            for (Indicator node : graph.getNodes()) node.setPriceHistory(history);
+        }
+
+        Signal add(double close) {
+            return add(close, false);
+        }
+
+        /** @param replace Replace the latest candle instead of adding one */
+        Signal add(double close, boolean replace) {
+            if (!replace) candles++;
+            Candlestick candle = new Candlestick(candles * 60_000L - 1, close - 1, close, close - 1, close, 1, null); // Rising
+            history.add(candle);
+            graph.update(candle);
+            return rules.getSignal();
+        }
+    }
+
+    private static int test(String rule) {
+        return new RuleParser(new RuleSet(null, null)).parse(rule).test();
+    }
+
+    private static String error(String rule) {
+        return assertThrows(IllegalArgumentException.class, () -> new RuleSet(rule, null)).getMessage();
+    }
+
+    @Test
+    void followsOperatorPrecedence() {
+        assertEquals(Condition.TRUE, test("1 + 2 * 3 == 7"));
+        assertEquals(Condition.TRUE, test("(1 + 2) * 3 == 9"));
+        assertEquals(Condition.TRUE, test("10 - 4 - 3 == 3"), "Left associative");
+        assertEquals(Condition.TRUE, test("12 / 2 / 3 == 2"));
+        assertEquals(Condition.TRUE, test("-2 * -3 == 6"));
+        assertEquals(Condition.TRUE, test("1 > 2 and 2 > 3 or 3 > 2"), "and binds tighter than or");
+        assertEquals(Condition.FALSE, test("1 > 2 and (2 > 3 or 3 > 2)"));
+        assertEquals(Condition.TRUE, test("not 1 > 2 and 2 > 1"), "not binds tighter than and");
+        assertEquals(Condition.FALSE, test("not (1 < 2 and 2 > 1)"));
+        assertEquals(Condition.TRUE, test("1 != 2 and 2 <= 2 and 2 >= 2 and 1 < 2"));
+    }
+
+    @Test
+    void readsEarlierCandlesByOffset() {
+        RuleSet rules = new RuleSet("close[0] == 5 and close[4] == 1 and close[1] - close[2] == 1", "close[5] > 0");
+        assertEquals(6, rules.getLookback());
+        Feed feed = new Feed(rules);
+
+        for (int close = 1; close <= 4; close++) assertEquals(Signal.HOLD, feed.add(close));
+        assertEquals(Signal.BUY, feed.add(5), "There is no 6th latest candle yet, so the exit doesn't hold");
+        assertEquals(Signal.SELL, feed.add(6));
+        assertFalse(rules.isEntered());
+        assertTrue(rules.isExited());
+    }
+
+    @Test
+    void crossesOnTheCandleItHappens() {
+        RuleSet rules = new RuleSet("close crosses above 10", "close crosses below 10");
+        Feed feed = new Feed(rules);
+
+        assertEquals(Signal.HOLD, feed.add(9), "No candle before it to cross from");
+        assertEquals(Signal.BUY, feed.add(11));
+        assertEquals(Signal.HOLD, feed.add(12), "Still above, no new crossing");
+        assertEquals(Signal.SELL, feed.add(8));
+        assertEquals(Signal.HOLD, feed.add(10));
+        assertEquals(Signal.HOLD, feed.add(10, true), "From 8 to 10 isn't above");
+        assertEquals(Signal.BUY, feed.add(11, true), "Replaced, from 8 to 11 crosses");
+        assertEquals(Signal.HOLD, feed.add(9, true), "Replaced, from 8 to 9 doesn't");
+    }
+
+    @Test
+    void sharesIdenticalInputs() {
+        RuleSet rules = new RuleSet("ema(9) crosses above ema(21) and rsi(14) < 70", "ema(9) < EMA(21) or rsi() > 70");
+        assertEquals(3, rules.getInputs().size(), "rsi() is rsi(14)");
+
+        EMA ema = new EMA(9);
+        IndicatorGraph graph = new IndicatorGraph();
+        graph.add(ema);
+        graph.add(rules);
+        assertSame(ema, rules.input(0), "Shared with the strategy's EMA(9)");
+    }
+
+    /** A rule reading a value that isn't known yet doesn't hold, not even when negated */
+    @Test
+    void doesNotHoldOnUnknownValues() {
+        RuleSet rules = new RuleSet(null, "not (rsi(14) < 70)");
+        Feed feed = new Feed(rules);
+
+        for (int i = 0; i < 13; i++) assertEquals(Signal.HOLD, feed.add(10 + i), "RSI isn't ready after " + (i + 1) + " candles");
+        assertEquals(Signal.SELL, feed.add(30), "Only rising candles, the RSI is 100");
+    }
+
+    @Test
+    void decidesAndOrWhenTheKnownSideDoes() {
+        Feed feed = new Feed(new RuleSet("rsi(14) > 70 or close > 0", "rsi(14) > 70 or close < 0"));
+        assertEquals(Signal.BUY, feed.add(10), "Unknown or true is true, unknown or false is unknown");
+
+        feed = new Feed(new RuleSet("not (rsi(14) > 70 and close < 0)", "not (rsi(14) > 70 and close > 0)"));
+        assertEquals(Signal.BUY, feed.add(10), "Unknown and false is false, unknown and true is unknown");
+    }
+
+    @Test
+    void reportsWhereARuleIsInvalid() {
+        assertEquals("Unexpected end of rule at 8 in \"close >\"", error("close >"));
+        assertEquals("Unknown value 'foo' at 18 in \"rsi(14) < 30 and foo > 1\"", error("rsi(14) < 30 and foo > 1"));
+        assertEquals("Unexpected ')' at 13 in \"rsi(14) > 30)\"", error("rsi(14) > 30)"));
+        assertEquals("Expected a candle offset at 7 in \"close[1.5] > 1\"", error("close[1.5] > 1"));
+        assertEquals("ema needs 1 argument(s) at 1 in \"ema() > 1\"", error("ema() > 1"));
+        assertEquals("Expected a condition, not a value at 1 in \"close + 1\"", error("close + 1"));
+        assertEquals("Expected 'above' or 'below' at 15 in \"close crosses 10\"", error("close crosses 10"));
+        assertTrue(error("macd().upper > 0").startsWith("macd has no output 'upper' at 8"));
+    }
+}
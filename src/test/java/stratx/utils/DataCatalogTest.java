@@ -0,0 +1,119 @@
+package stratx.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataCatalogTest {
+    private static final long MINUTE = 60_000L;
+
+    @TempDir
+    Path folder;
+
+    private File write(String name, int candles) throws IOException {
+        File file = folder.resolve(name).toFile();
+        try (StrxWriter writer = StrxWriter.create(file, StrxFormat.VERSION_2, 0, candles * MINUTE)) {
+            for (int i = 0; i < candles; i++) writer.write((i + 1) * MINUTE - 1, 100, 101, 99, 100.5, 10);
+        }
+        return file;
+    }
+
+    @Test
+    void indexesDownloaderFiles() throws IOException {
+        write("BTCUSDT_1m_1.1.2022.strx", 50);
+        DataCatalog catalog = new DataCatalog(folder.toFile());
+        catalog.refresh();
+
+        DataCatalog.Entry entry = catalog.getEntries().get(0);
+        assertTrue(entry.isIndexed());
+        assertEquals("BTCUSDT", entry.getSymbol());
+        assertEquals("1m", entry.getInterval());
+        assertEquals(50, entry.getCount());
+        assertEquals(MINUTE - 1, entry.getFirstCloseTime());
+        assertEquals(50 * MINUTE - 1, entry.getLastCloseTime());
+        assertEquals(1, catalog.find("btcusdt", "1m", 0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    void listsFilesItCantIndex() throws IOException {
+        write("BTCUSDT_1m_1.1.2022.strx", 10);
+        write("renamed.strx", 10);
+        Files.write(folder.resolve("ETHUSDT_1m_corrupt.strx"), "not price data".getBytes(StandardCharsets.UTF_8));
+
+        DataCatalog catalog = new DataCatalog(folder.toFile());
+        catalog.refresh();
+        List<DataCatalog.Entry> entries = catalog.getEntries();
+
+        assertEquals(3, entries.size());
+        assertTrue(entries.get(0).isIndexed());
+        assertEquals("ETHUSDT_1m_corrupt.strx", entries.get(1).toString());
+        assertFalse(entries.get(1).isIndexed());
+        assertNotNull(entries.get(1).getError());
+        assertEquals("renamed.strx", entries.get(2).toString());
+        assertFalse(entries.get(2).isIndexed());
+
+        assertEquals(1, catalog.getSymbols().size());
+        assertTrue(catalog.find("ETHUSDT", "1m", 0, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    void remembersFailuresUntilTheFileChanges() throws IOException {
+        Path corrupt = folder.resolve("ETHUSDT_1m_corrupt.strx");
+        Files.write(corrupt, "not price data".getBytes(StandardCharsets.UTF_8));
+        DataCatalog catalog = new DataCatalog(folder.toFile());
+        catalog.refresh();
+
+        File index = folder.resolve(DataCatalog.INDEX_FILE).toFile();
+        long saved = index.lastModified();
+        assertTrue(index.setLastModified(saved - 10_000));
+
+        // Nothing changed, so neither refresh opens the file or saves the index again
+        catalog.refresh();
+        DataCatalog reloaded = new DataCatalog(folder.toFile());
+        reloaded.refresh();
+        assertEquals(saved - 10_000, index.lastModified());
+        assertFalse(reloaded.getEntries().get(0).isIndexed());
+
+        // Once it's a valid file it is indexed
+        write("ETHUSDT_1m_corrupt.strx", 5);
+        assertTrue(corrupt.toFile().setLastModified(corrupt.toFile().lastModified() + 5_000));
+        reloaded.refresh();
+        assertTrue(reloaded.getEntries().get(0).isIndexed());
+        assertEquals(5, reloaded.getEntries().get(0).getCount());
+    }
+
+    @Test
+    void checksumsFilesOnlyWhenVerified() throws IOException {
+        File file = write("BTCUSDT_1m_1.1.2022.strx", 50);
+        DataCatalog catalog = new DataCatalog(folder.toFile());
+        catalog.refresh();
+
+        DataCatalog.Entry entry = catalog.getEntries().get(0);
+        assertEquals(-1, entry.getChecksum(), "Indexing doesn't read the whole file");
+        assertTrue(catalog.verify(entry));
+        assertNotEquals(-1, entry.getChecksum());
+
+        // The first checksum is kept in the index
+        DataCatalog reloaded = new DataCatalog(folder.toFile());
+        reloaded.refresh();
+        DataCatalog.Entry reloadedEntry = reloaded.getEntries().get(0);
+        assertEquals(entry.getChecksum(), reloadedEntry.getChecksum());
+        assertTrue(reloaded.verify(reloadedEntry));
+
+        // Corrupted in place, without changing the size or modified time
+        long modified = file.lastModified();
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[StrxFormat.HEADER_SIZE + 20] ^= 1;
+        Files.write(file.toPath(), bytes);
+        assertTrue(file.setLastModified(modified));
+        assertFalse(reloaded.verify(reloadedEntry));
+    }
+}
@@ -0,0 +1,35 @@
+package stratx.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+    @Test
+    void allowsABurstUpToTheLimit() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(1000);
+        long start = System.nanoTime();
+        for (int i = 0; i < 500; i++) limiter.acquire(2);
+
+        assertTrue(System.nanoTime() - start < 500_000_000L);
+        assertEquals(1000, limiter.getAcquired());
+    }
+
+    @Test
+    void waitsForTheWeightToRefill() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(60_000); // 1 weight per ms
+        limiter.acquire(60_000);
+
+        long start = System.nanoTime();
+        limiter.acquire(200);
+        long waitedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(waitedMs >= 150, "Waited " + waitedMs + "ms");
+        assertEquals(60_200, limiter.getAcquired());
+    }
+
+    @Test
+    void rejectsWeightAboveTheLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(10).acquire(11));
+    }
+}
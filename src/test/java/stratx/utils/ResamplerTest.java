@@ -0,0 +1,89 @@
+package stratx.utils;
+
+import com.binance.api.client.domain.market.CandlestickInterval;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResamplerTest {
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+
+    /** Candles of the interval, the i-th opening at start + i * interval, with close = i */
+    private static CandleSeries candles(long start, long intervalMs, int count) {
+        CandleSeries series = new CandleSeries();
+        for (int i = 0; i < count; i++)
+            series.add(start + (i + 1) * intervalMs - 1, i, i + 0.5, i - 0.5, i, 1);
+        return series;
+    }
+
+    @Test
+    void aggregatesWholeBuckets() {
+        CandleSeries resampled = Resampler.resample(candles(0, MINUTE, 20), CandlestickInterval.FIVE_MINUTES);
+
+        assertEquals(4, resampled.size());
+        assertEquals(5 * MINUTE - 1, resampled.getCloseTime(0));
+        assertEquals(0, resampled.getOpen(0));
+        assertEquals(4.5, resampled.getHigh(0));
+        assertEquals(-0.5, resampled.getLow(0));
+        assertEquals(4, resampled.getClose(0));
+        assertEquals(5, resampled.getVolume(0));
+        assertEquals(20 * MINUTE - 1, resampled.getCloseTime(3));
+    }
+
+    @Test
+    void dropsALeadingPartialBucket() {
+        CandleSeries resampled = Resampler.resample(candles(2 * MINUTE, MINUTE, 13), CandlestickInterval.FIVE_MINUTES);
+
+        assertEquals(2, resampled.size(), "3 candles of the first bucket, 2 whole buckets");
+        assertEquals(10 * MINUTE - 1, resampled.getCloseTime(0));
+        assertEquals(3, resampled.getOpen(0));
+    }
+
+    @Test
+    void dropsAFirstBucketStartedOnItsLastCandle() {
+        CandleSeries resampled = Resampler.resample(candles(4 * MINUTE, MINUTE, 6), CandlestickInterval.FIVE_MINUTES);
+
+        assertEquals(1, resampled.size());
+        assertEquals(10 * MINUTE - 1, resampled.getCloseTime(0));
+    }
+
+    @Test
+    void keepsBucketsCompletedByAGap() {
+        CandleSeries series = candles(0, MINUTE, 7); // 0-6
+        CandleSeries later = candles(20 * MINUTE, MINUTE, 5);
+        for (int i = 0; i < later.size(); i++)
+            series.add(later.getCloseTime(i), later.getOpen(i), later.getHigh(i), later.getLow(i), later.getClose(i), later.getVolume(i));
+
+        CandleSeries resampled = Resampler.resample(series, CandlestickInterval.FIVE_MINUTES);
+        assertEquals(3, resampled.size());
+        assertEquals(10 * MINUTE - 1, resampled.getCloseTime(1), "Completed by the candle after the gap");
+        assertEquals(2, resampled.getVolume(1));
+        assertEquals(25 * MINUTE - 1, resampled.getCloseTime(2));
+    }
+
+    @Test
+    void rejectsIntervalsNotLongerThanTheSource() {
+        assertThrows(IllegalArgumentException.class, () -> Resampler.resample(candles(0, HOUR, 10), CandlestickInterval.FIVE_MINUTES));
+        assertThrows(IllegalArgumentException.class, () -> Resampler.resample(candles(0, HOUR, 10), CandlestickInterval.HOURLY));
+        assertEquals(2, Resampler.resample(candles(0, HOUR, 10), CandlestickInterval.FOUR_HOURLY).size());
+    }
+
+    @Test
+    void streamsTheSameCandles() throws IOException {
+        CandleSeries source = candles(3 * MINUTE, MINUTE, 500);
+        CandleSeries expected = Resampler.resample(source, CandlestickInterval.FIFTEEN_MINUTES);
+
+        try (Resampler resampler = new Resampler(CandleSource.of(source), CandlestickInterval.FIFTEEN_MINUTES)) {
+            CandleSeries streamed = resampler.toSeries();
+            assertEquals(expected.size(), streamed.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.getCloseTime(i), streamed.getCloseTime(i));
+                assertEquals(expected.getOpen(i), streamed.getOpen(i));
+                assertEquals(expected.getClose(i), streamed.getClose(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package stratx.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import stratx.Loader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StrxBlockFileTest {
+    private static final long MINUTE = 60_000L;
+
+    @TempDir
+    Path folder;
+
+    /** Minute candles with close = i / 100, written in the version's format */
+    static File write(File file, int version, int count) throws IOException {
+        try (StrxWriter writer = StrxWriter.create(file, version, 0, count * MINUTE)) {
+            for (int i = 0; i < count; i++)
+                writer.write((i + 1) * MINUTE - 1, i / 100.0, (i + 5) / 100.0, Math.max(0, i - 5) / 100.0, (i + 1) / 100.0, i);
+        }
+        return file;
+    }
+
+    static void assertCandles(int count, CandleSeries series) {
+        assertEquals(count, series.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals((i + 1) * MINUTE - 1, series.getCloseTime(i));
+            assertEquals(i / 100.0, series.getOpen(i));
+            assertEquals((i + 5) / 100.0, series.getHigh(i));
+            assertEquals(Math.max(0, i - 5) / 100.0, series.getLow(i));
+            assertEquals((i + 1) / 100.0, series.getClose(i));
+            assertEquals(i, series.getVolume(i));
+        }
+    }
+
+    static CandleSeries readAll(StrxBlockFile file) throws IOException {
+        CandleSeries series = new CandleSeries(file.size());
+        for (int i = 0; i < file.getBlockCount(); i++) file.readBlock(i, series);
+        return series;
+    }
+
+    static void truncate(File file, long length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        }
+    }
+
+    @Test
+    void readsAPartialLastBlock() throws IOException {
+        File file = write(folder.resolve("a.strx").toFile(), StrxFormat.VERSION_2, 2500);
+
+        try (StrxBlockFile blocks = new StrxBlockFile(file)) {
+            assertFalse(blocks.isRecovered());
+            assertEquals(3, blocks.getBlockCount());
+            assertEquals(2500 - 2 * StrxBlockFile.BLOCK_SIZE, blocks.getBlockSize(2));
+            assertEquals(2048 * MINUTE + MINUTE - 1, blocks.getBlockFirstCloseTime(2));
+            assertEquals(2500 * MINUTE - 1, blocks.getBlockLastCloseTime(2));
+            assertEquals(2500 * MINUTE, blocks.getEndTime());
+            assertCandles(2500, readAll(blocks));
+        }
+    }
+
+    @Test
+    void findsBlocksByCloseTime() throws IOException {
+        File file = write(folder.resolve("a.strx").toFile(), StrxFormat.VERSION_2, 2500);
+
+        try (StrxBlockFile blocks = new StrxBlockFile(file)) {
+            assertEquals(0, blocks.findBlock(Long.MIN_VALUE));
+            assertEquals(0, blocks.findBlock(1024 * MINUTE - 1), "The last close time of block 0");
+            assertEquals(1, blocks.findBlock(1024 * MINUTE));
+            assertEquals(2, blocks.findBlock(2500 * MINUTE - 1));
+            assertEquals(3, blocks.findBlock(2500 * MINUTE), "After the last candle");
+        }
+    }
+
+    @Test
+    void rebuildsAMissingFooter() throws IOException {
+        File file = write(folder.resolve("a.strx").toFile(), StrxFormat.VERSION_2, 2500);
+        long dataEnd;
+        try (StrxBlockFile blocks = new StrxBlockFile(file)) {
+            dataEnd = blocks.getDataEnd();
+        }
+
+        truncate(file, dataEnd);
+        try (StrxBlockFile blocks = new StrxBlockFile(file)) {
+            assertTrue(blocks.isRecovered());
+            assertEquals(3, blocks.getBlockCount());
+            assertEquals(dataEnd, blocks.getDataEnd());
+            assertCandles(2500, readAll(blocks));
+        }
+    }
+
+    @Test
+    void dropsATruncatedBlock() throws IOException {
+        File file = write(folder.resolve("a.strx").toFile(), StrxFormat.VERSION_2, 2500);
+        long lastBlock;
+        try (StrxBlockFile blocks = new StrxBlockFile(file)) {
+            lastBlock = blocks.getBlockOffset(2);
+        }
+
+        truncate(file, lastBlock + 20); // Cut off inside the last block
+        try (StrxBlockFile blocks = new StrxBlockFile(file)) {
+            assertTrue(blocks.isRecovered());
+            assertEquals(2, blocks.getBlockCount());
+            assertEquals(lastBlock, blocks.getDataEnd(), "Appends continue where the last whole block ends");
+            assertCandles(2 * StrxBlockFile.BLOCK_SIZE, readAll(blocks));
+        }
+
+        truncate(file, StrxFormat.HEADER_SIZE + 5);
+        try (StrxBlockFile blocks = new StrxBlockFile(file)) {
+            assertEquals(0, blocks.getBlockCount());
+            assertEquals(0, blocks.size());
+        }
+    }
+
+    @Test
+    void loadsVersion1Files() throws IOException {
+        File small = write(folder.resolve("small.strx").toFile(), StrxFormat.VERSION_1, 3000);
+        assertEquals(StrxFormat.VERSION_1, StrxFormat.readVersion(small));
+        assertCandles(3000, Loader.loadSeries(small));
+
+        try (CandleSource source = Loader.stream(small)) {
+            assertCandles(3000, source.toSeries());
+        }
+
+        // Over the size that is memory mapped instead of streamed
+        File large = write(folder.resolve("large.strx").toFile(), StrxFormat.VERSION_1, 200_000);
+        assertTrue(large.length() >= 8L * 1024 * 1024);
+        assertCandles(200_000, Loader.loadSeries(large));
+    }
+
+    @Test
+    void loadsVersion2FilesTheSame() throws IOException {
+        File file = write(folder.resolve("a.strx").toFile(), StrxFormat.VERSION_2, 3000);
+        assertCandles(3000, Loader.loadSeries(file));
+
+        try (CandleSource source = Loader.stream(file)) {
+            assertCandles(3000, source.toSeries());
+        }
+    }
+}
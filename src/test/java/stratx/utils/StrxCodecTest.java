@@ -0,0 +1,120 @@
+package stratx.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StrxCodecTest {
+    /** One encoded block, decoded back */
+    private static final class Block {
+        final long[] closeTime;
+        final double[] open;
+        final double[] high;
+        final double[] low;
+        final double[] close;
+        final long[] volume;
+
+        Block(int count) {
+            closeTime = new long[count];
+            open = new double[count];
+            high = new double[count];
+            low = new double[count];
+            close = new double[count];
+            volume = new long[count];
+        }
+
+        byte[] encode() {
+            return StrxCodec.encodeBlock(closeTime, open, high, low, close, volume, closeTime.length);
+        }
+
+        Block roundTrip() {
+            Block decoded = new Block(closeTime.length);
+            StrxCodec.decodeBlock(encode(), decoded.closeTime, decoded.open, decoded.high, decoded.low, decoded.close, decoded.volume, closeTime.length);
+            return decoded;
+        }
+
+        void assertSame(Block other) {
+            assertArrayEquals(closeTime, other.closeTime);
+            assertBits(open, other.open);
+            assertBits(high, other.high);
+            assertBits(low, other.low);
+            assertBits(close, other.close);
+            assertArrayEquals(volume, other.volume);
+        }
+
+        private static void assertBits(double[] expected, double[] actual) {
+            for (int i = 0; i < expected.length; i++)
+                assertEquals(Double.doubleToRawLongBits(expected[i]), Double.doubleToRawLongBits(actual[i]), "Value " + i + ": " + expected[i] + " != " + actual[i]);
+        }
+    }
+
+    /** Minute candles priced in cents */
+    private static Block prices(int count, long seed) {
+        Block block = new Block(count);
+        Random random = new Random(seed);
+        long cents = 3_000_000;
+
+        for (int i = 0; i < count; i++) {
+            block.closeTime[i] = 1_600_000_000_000L + (i + 1) * 60_000L - 1;
+            long open = cents;
+            cents += random.nextInt(2001) - 1000;
+            block.open[i] = open / 100.0;
+            block.close[i] = cents / 100.0;
+            block.high[i] = (Math.max(open, cents) + random.nextInt(500)) / 100.0;
+            block.low[i] = (Math.min(open, cents) - random.nextInt(500)) / 100.0;
+            block.volume[i] = random.nextInt(1_000_000);
+        }
+
+        return block;
+    }
+
+    @Test
+    void scalesShortDecimals() {
+        Block block = prices(StrxBlockFile.BLOCK_SIZE, 1);
+        block.assertSame(block.roundTrip());
+        assertTrue(block.encode().length < StrxBlockFile.BLOCK_SIZE * 16, "Scaled cents should take well under 16 bytes a candle, took " + block.encode().length);
+    }
+
+    @Test
+    void fallsBackToXorForLongDecimals() {
+        Block block = prices(500, 2);
+        Random random = new Random(3);
+        for (int i = 0; i < 500; i++) block.close[i] = block.close[i] + random.nextDouble(); // Full precision doubles
+        block.close[7] = 1e300; // Too big to scale
+
+        block.assertSame(block.roundTrip());
+    }
+
+    @Test
+    void keepsNaNAndNegativeZero() {
+        Block block = prices(64, 4);
+        block.open[3] = Double.NaN;
+        block.high[5] = -0.0;
+        block.low[9] = Double.longBitsToDouble(0x7ff8_0000_0000_0123L); // Another NaN
+        block.close[0] = Double.POSITIVE_INFINITY;
+        block.close[1] = Double.NEGATIVE_INFINITY;
+
+        block.assertSame(block.roundTrip());
+    }
+
+    @Test
+    void restoresIrregularTimeDeltas() {
+        long[] deltas = { 60_000, 60_000, 60_001, 59_950, 60_200, 58_000, 62_047, 3_600_000, 1, 86_400_000L * 365, 60_000 };
+        Block block = prices(deltas.length + 1, 5);
+        for (int i = 0; i < deltas.length; i++) block.closeTime[i + 1] = block.closeTime[i] + deltas[i];
+
+        block.assertSame(block.roundTrip());
+    }
+
+    @Test
+    void encodesTinyBlocks() {
+        for (int count = 0; count <= 2; count++) {
+            Block block = prices(count, 6);
+            block.assertSame(block.roundTrip());
+        }
+    }
+}
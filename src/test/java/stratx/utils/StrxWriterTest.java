@@ -0,0 +1,109 @@
+package stratx.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import stratx.Loader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static stratx.utils.StrxBlockFileTest.assertCandles;
+import static stratx.utils.StrxBlockFileTest.readAll;
+import static stratx.utils.StrxBlockFileTest.truncate;
+import static stratx.utils.StrxBlockFileTest.write;
+
+class StrxWriterTest {
+    private static final long MINUTE = 60_000L;
+
+    @TempDir
+    Path folder;
+
+    /** The candles from..to (Exclusive) as {@link StrxBlockFileTest#write} writes them */
+    private static void writeCandles(StrxWriter writer, int from, int to) throws IOException {
+        for (int i = from; i < to; i++)
+            writer.write((i + 1) * MINUTE - 1, i / 100.0, (i + 5) / 100.0, Math.max(0, i - 5) / 100.0, (i + 1) / 100.0, i);
+    }
+
+    @Test
+    void dropsATruncatedVersion1Record() throws IOException {
+        File file = write(folder.resolve("a.strx").toFile(), StrxFormat.VERSION_1, 100);
+        truncate(file, file.length() - 10); // Cut off inside the last record
+
+        try (StrxWriter writer = StrxWriter.append(file)) {
+            assertEquals(98 * MINUTE + MINUTE - 1, writer.getLastCloseTime());
+            writeCandles(writer, 99, 200);
+        }
+
+        assertEquals(StrxFormat.HEADER_SIZE + 200L * StrxMappedFile.RECORD_SIZE, file.length());
+        assertCandles(200, Loader.loadSeries(file));
+    }
+
+    @Test
+    void appendsToAVersion2FileWithoutAFooter() throws IOException {
+        File file = write(folder.resolve("a.strx").toFile(), StrxFormat.VERSION_2, 2500);
+        long dataEnd;
+        try (StrxBlockFile blocks = new StrxBlockFile(file)) {
+            dataEnd = blocks.getDataEnd();
+        }
+        truncate(file, dataEnd);
+
+        try (StrxWriter writer = StrxWriter.append(file)) {
+            assertEquals(2500 * MINUTE - 1, writer.getLastCloseTime());
+            writeCandles(writer, 2500, 4000);
+        }
+
+        try (StrxBlockFile blocks = new StrxBlockFile(file)) {
+            assertFalse(blocks.isRecovered(), "The footer is rebuilt");
+            assertEquals(5, blocks.getBlockCount(), "The partial last block is kept as it is");
+            assertCandles(4000, readAll(blocks));
+        }
+    }
+
+    @Test
+    void abortLeavesTheFileUntouched() throws IOException {
+        for (int version : new int[]{StrxFormat.VERSION_1, StrxFormat.VERSION_2}) {
+            File file = write(folder.resolve("v" + version + ".strx").toFile(), version, 2500);
+            byte[] original = Files.readAllBytes(file.toPath());
+
+            StrxWriter writer = StrxWriter.append(file);
+            writeCandles(writer, 2500, 4000);
+            writer.setEndTime(4000 * MINUTE);
+            writer.flush();
+            writer.abort();
+
+            assertArrayEquals(original, Files.readAllBytes(file.toPath()));
+            assertFalse(new File(file.getPath() + ".part").exists());
+        }
+    }
+
+    @Test
+    void rewritesTheEndTimeOnClose() throws IOException {
+        File v1 = write(folder.resolve("v1.strx").toFile(), StrxFormat.VERSION_1, 100);
+        try (StrxWriter writer = StrxWriter.append(v1)) {
+            writeCandles(writer, 100, 150);
+            writer.setEndTime(150 * MINUTE);
+        }
+
+        try (StrxMappedFile file = new StrxMappedFile(v1)) {
+            assertEquals(0, file.getStartTime());
+            assertEquals(150 * MINUTE, file.getEndTime());
+        }
+
+        File v2 = write(folder.resolve("v2.strx").toFile(), StrxFormat.VERSION_2, 100);
+        try (StrxWriter writer = StrxWriter.append(v2)) {
+            writeCandles(writer, 100, 150);
+            writer.setEndTime(150 * MINUTE);
+        }
+
+        try (StrxBlockFile file = new StrxBlockFile(v2)) {
+            assertEquals(0, file.getStartTime());
+            assertEquals(150 * MINUTE, file.getEndTime());
+            assertCandles(150, readAll(file));
+        }
+    }
+}